@@ -0,0 +1,263 @@
+package controller;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import model.Canvas;
+import model.VoronoiPolygon;
+import model.math.BigDecimalKernel;
+import model.math.DoubleKernel;
+import model.math.ExactKernel;
+import model.math.NumericKernel;
+import model.math.PointBD;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+
+/**
+ * Builds diagrams from files of points on the command line, without a GUI.
+ *
+ * Each point file has one point per line, as an x and y separated by a space
+ * or a comma. Blank lines and lines starting with # are skipped. The diagram
+ * is written next to it with .cells on the end, one line per cell: the x and
+ * y of its point, then the x and y of each corner in order.
+ *
+ * Usage: BatchRunner [-w width] [-h height] [-e engine] [-k kernel]
+ * [-j threads] [-v] file...
+ *
+ * The canvas is made just big enough for the points unless a width or height
+ * is given. The engine is one of Canvas.Engine, SWEEP_LINE by default, and
+ * the kernel is double, bigdecimal or exact, double by default. The files
+ * are built side by side on a SessionManager with a thread for each core,
+ * or as many threads as -j gives. Logging is turned down to warnings unless
+ * -v is given.
+ *
+ * @author mxw449
+ */
+public class BatchRunner {
+	private static final Logger log = LoggerFactory.getLogger(BatchRunner.class);
+
+	private int width = -1, height = -1;
+	private Canvas.Engine engine = Canvas.Engine.SWEEP_LINE;
+	private String kernel = "double";
+	private int threads = Runtime.getRuntime().availableProcessors();
+
+	public static void main(String[] args) {
+		BatchRunner runner = new BatchRunner();
+		List<String> files = new ArrayList<>();
+		boolean verbose = false;
+
+		try {
+			for (int i = 0; i < args.length; i++) {
+				switch (args[i]) {
+				case "-w":
+					runner.width = Integer.parseInt(args[++i]);
+					break;
+				case "-h":
+					runner.height = Integer.parseInt(args[++i]);
+					break;
+				case "-e":
+					runner.engine = Canvas.Engine.valueOf(args[++i].toUpperCase());
+					break;
+				case "-k":
+					runner.kernel = args[++i];
+					break;
+				case "-j":
+					runner.threads = Integer.parseInt(args[++i]);
+					if (runner.threads < 1) throw new IllegalArgumentException("Need at least one thread");
+					break;
+				case "-v":
+					verbose = true;
+					break;
+				default:
+					files.add(args[i]);
+				}
+			}
+			runner.newKernel();
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			files.clear();
+		}
+
+		if (files.isEmpty()) {
+			System.err.println("Usage: BatchRunner [-w width] [-h height] [-e engine] [-k double|bigdecimal|exact] [-j threads] [-v] file...");
+			System.exit(2);
+		}
+
+		if (!verbose) {
+			Logger root = LoggerFactory.getLogger(Logger.ROOT_LOGGER_NAME);
+			if (root instanceof ch.qos.logback.classic.Logger) ((ch.qos.logback.classic.Logger) root).setLevel(Level.WARN);
+		}
+
+		List<File> in = new ArrayList<>();
+		for (String file : files) {
+			in.add(new File(file));
+		}
+		int failed = runner.runAll(in, System.out, System.err);
+		System.exit(failed == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Build the diagrams of many point files side by side, and write each out
+	 * next to its file
+	 *
+	 * @param report
+	 *            where to say how long each took, and the points a second
+	 *            across all of them
+	 * @param errors
+	 *            where to say which files couldn't be built
+	 * @return how many files couldn't be built
+	 */
+	public int runAll(List<File> files, PrintStream report, PrintStream errors) {
+		SessionManager manager = new SessionManager(threads);
+		List<SessionManager.Session> sessions = new ArrayList<>();
+		int failed = 0;
+		try {
+			for (File file : files) {
+				try {
+					List<PointBD> points = readPoints(file);
+					sessions.add(manager.submit(file.getPath(), newCanvas(points), points));
+				} catch (IOException | IllegalArgumentException e) {
+					log.error("Couldn't read points from {}", file, e);
+					errors.println(file + ": " + e.getMessage());
+					failed++;
+				}
+			}
+
+			for (SessionManager.Session session : sessions) {
+				try {
+					session.await();
+					writeCells(session.getCanvas(), new File(session.getName() + ".cells"));
+					report.printf("%s: %d points, %d cells, %.0f points a second%n", session.getName(), session.getSitesAdded(),
+							session.getCanvas().getPolygons().size(), session.getSitesPerSecond());
+				} catch (IOException | ExecutionException e) {
+					log.error("Couldn't build a diagram from {}", session.getName(), e);
+					errors.println(session.getName() + ": " + e.getMessage());
+					failed++;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			errors.println("Interrupted");
+			return files.size();
+		} finally {
+			manager.shutdown();
+		}
+
+		report.printf("%d files, %d points at %.0f points a second%n", files.size(), manager.getSitesAdded(), manager.getSitesPerSecond());
+		return failed;
+	}
+
+	/**
+	 * Build the diagram of one point file, and write it out
+	 *
+	 * @param report
+	 *            where to say how long it took
+	 */
+	public void run(File in, File out, PrintStream report) throws IOException {
+		List<PointBD> points = readPoints(in);
+
+		long start = System.nanoTime();
+		Canvas canvas = build(points);
+		long built = System.nanoTime();
+
+		writeCells(canvas, out);
+		report.printf("%s: %d points, %d cells, built in %.1f ms%n", in, points.size(), canvas.getPolygons().size(), (built - start) / 1e6);
+	}
+
+	/**
+	 * Build the diagram of some points on a canvas which never waits between
+	 * steps
+	 */
+	public Canvas build(List<PointBD> points) {
+		Canvas canvas = newCanvas(points);
+		canvas.addPoints(points);
+		return canvas;
+	}
+
+	/**
+	 * Make a canvas big enough for some points, which never waits between
+	 * steps
+	 */
+	private Canvas newCanvas(List<PointBD> points) {
+		double maxX = 0, maxY = 0;
+		for (PointBD p : points) {
+			if (p.getXVal() < 0 || p.getYVal() < 0) throw new IllegalArgumentException("Point " + p + " is off the canvas");
+			maxX = Math.max(maxX, p.getXVal());
+			maxY = Math.max(maxY, p.getYVal());
+		}
+		int w = width > 0 ? width : (int) Math.ceil(maxX) + 1;
+		int h = height > 0 ? height : (int) Math.ceil(maxY) + 1;
+		if (maxX > w || maxY > h) throw new IllegalArgumentException("Points go past the " + w + " by " + h + " canvas");
+
+		Canvas canvas = new Canvas(w, h, newKernel(), engine);
+		canvas.setIsManual(true);
+		canvas.setNotificationPolicy(Canvas.NotificationPolicy.NONE);
+		return canvas;
+	}
+
+	private NumericKernel newKernel() {
+		switch (kernel) {
+		case "double":
+			return new DoubleKernel();
+		case "bigdecimal":
+			return new BigDecimalKernel();
+		case "exact":
+			return new ExactKernel();
+		default:
+			throw new IllegalArgumentException("Unknown kernel " + kernel);
+		}
+	}
+
+	/**
+	 * Read a file of points, one per line
+	 */
+	public static List<PointBD> readPoints(File in) throws IOException {
+		List<PointBD> points = new ArrayList<>();
+		try (BufferedReader reader = new BufferedReader(new FileReader(in))) {
+			String line;
+			int number = 0;
+			while ((line = reader.readLine()) != null) {
+				number++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+
+				String[] parts = line.split("[\\s,]+");
+				if (parts.length != 2) throw new IllegalArgumentException("Line " + number + " isn't a point: " + line);
+				try {
+					points.add(new PointBD(Double.parseDouble(parts[0]), Double.parseDouble(parts[1])));
+				} catch (NumberFormatException e) {
+					throw new IllegalArgumentException("Line " + number + " isn't a point: " + line);
+				}
+			}
+		}
+		return points;
+	}
+
+	/**
+	 * Write out each cell of a canvas, one per line
+	 */
+	public static void writeCells(Canvas canvas, File out) throws IOException {
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(out))) {
+			StringBuilder line = new StringBuilder();
+			for (VoronoiPolygon poly : canvas.getPolygons()) {
+				line.setLength(0);
+				line.append(poly.getCentre().getXVal()).append(' ').append(poly.getCentre().getYVal());
+				for (PointBD p : poly.getCorners()) {
+					line.append(' ').append(p.getXVal()).append(' ').append(p.getYVal());
+				}
+				writer.write(line.toString());
+				writer.newLine();
+			}
+		}
+	}
+}
@@ -1,5 +1,6 @@
 package controller;
 
+import java.awt.Rectangle;
 import java.util.List;
 import java.util.Observable;
 import java.util.Observer;
@@ -45,6 +46,28 @@ public class CanvasController implements Observer {
 		holder.next();
 	}
 
+	/**
+	 * Take steps on their own at a steady rate, for the continuous mode
+	 */
+	public void play(double stepsPerSecond) {
+		holder.play(stepsPerSecond);
+	}
+
+	public void pause() {
+		holder.pause();
+	}
+
+	public void resume() {
+		holder.resume();
+	}
+
+	/**
+	 * Stop the canvas for good, if it is waiting to take steps
+	 */
+	public void cancel() {
+		if (holder != null) holder.cancel();
+	}
+
 	public List<VoronoiPolygon> getPolygons() {
 		return canvas.getPolygons();
 	}
@@ -96,7 +119,7 @@ public class CanvasController implements Observer {
 	@Override
 	public void update(Observable o, Object arg) {
 		if (display != null) {
-			display.repaint();
+			display.repaintChanged(arg instanceof Rectangle ? (Rectangle) arg : null);
 		}
 	}
 }
@@ -1,48 +1,233 @@
 package controller;
 
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import model.Canvas.VoronoiState;
+import model.Stepper;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Used to control moving forward a step. When hold() is called, a flag is set
- * to true, and the thread waits for the GUI thread to call next(), at which
- * point the thread is able to continue. This is used for controlling the speed
- * of the continous mode, and to move forward in step-by-step mode.
- * 
+ * Used to control moving forward a step. Each call to next() gives a permit
+ * for one step, and hold() waits until there is a permit to use. Permits are
+ * kept until they are used, so a next() which comes before the hold() isn't
+ * lost. This is used to move forward in step-by-step mode.
+ *
+ * It can also let steps through by itself: at a steady number of steps per
+ * second for the continuous mode, or without stopping until a given state is
+ * reached. Either can be paused and resumed, and cancel() stops the thread
+ * being held for good.
+ *
  * @author mxw449
  */
-public class Holder {
+public class Holder implements Stepper {
 	private static final Logger log = LoggerFactory.getLogger(Holder.class);
 
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition changed = lock.newCondition();
+
+	/** Steps which can be taken without waiting */
+	private long permits;
+
+	/** Nanoseconds between steps while playing, or -1 if not playing */
+	private long period = -1;
+
+	/** When the next step is due while playing */
+	private long nextStep;
+
+	/** The state to run until without stopping, or null */
+	private VoronoiState until;
+
+	/** Should the hold waiting now go on, even if it is at until's state? */
+	private boolean releaseHeld;
+
+	private boolean paused;
+	private boolean cancelled;
+
+	/** Registers if something's holding */
+	private boolean isHeld;
+
 	/**
-	 * Registers if something's holding
+	 * Wait until allowed to take another step
 	 */
-	private boolean isHeld = false;
+	public void hold() {
+		hold(null);
+	}
 
 	/**
-	 * Wait until next is called by different thread
+	 * Wait until allowed to take another step, having just got to a state
+	 *
+	 * @throws CancellationException
+	 *             if cancel is called before or while waiting
 	 */
-	public synchronized void hold() {
+	@Override
+	public void hold(VoronoiState state) {
+		lock.lock();
 		try {
-			log.info("Holding");
 			isHeld = true;
-			this.wait();
-			isHeld = false;
+			while (true) {
+				if (cancelled) throw new CancellationException("Stepping was cancelled");
+
+				if (!paused && until != null) {
+					if (state != until || releaseHeld) {
+						releaseHeld = false;
+						return;
+					}
+					// Hold here, rather than carrying on at the playing rate
+					log.info("Reached {}", state);
+					until = null;
+					period = -1;
+				}
+
+				if (!paused && period >= 0) {
+					long wait = nextStep - System.nanoTime();
+					if (wait <= 0) {
+						// Don't let a slow step cause a burst of fast ones
+						nextStep = Math.max(nextStep, System.nanoTime() - period) + period;
+						return;
+					}
+					changed.awaitNanos(wait);
+					continue;
+				}
+
+				if (permits > 0) {
+					permits--;
+					return;
+				}
+
+				log.info("Holding");
+				changed.await();
+			}
 		} catch (InterruptedException e) {
-			log.info("Interrupted holding, but trying again");
-			hold();
+			Thread.currentThread().interrupt();
+			throw new CancellationException("Interrupted while holding");
+		} finally {
+			isHeld = false;
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Allow one more step
+	 */
+	public void next() {
+		advance(1);
+	}
+
+	/**
+	 * Allow a number of steps
+	 */
+	public void advance(int steps) {
+		lock.lock();
+		try {
+			if (!isHeld) log.info("Told to continue, but not being held, so saving it");
+			permits += steps;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Take steps without stopping until a state is next reached, then hold
+	 * there. This stops any playing, once the state is reached.
+	 */
+	public void runUntil(VoronoiState state) {
+		lock.lock();
+		try {
+			until = state;
+			releaseHeld = isHeld;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Take steps on their own at a steady rate
+	 *
+	 * @param stepsPerSecond
+	 *            how many steps to take each second, or infinity to not wait
+	 *            at all
+	 * @throws IllegalArgumentException
+	 *             if the rate isn't above 0
+	 */
+	public void play(double stepsPerSecond) {
+		if (!(stepsPerSecond > 0)) throw new IllegalArgumentException("Steps per second must be above 0: " + stepsPerSecond);
+		lock.lock();
+		try {
+			period = Double.isInfinite(stepsPerSecond) ? 0 : (long) (TimeUnit.SECONDS.toNanos(1) / stepsPerSecond);
+			nextStep = System.nanoTime() + period;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
 		}
 	}
 
 	/**
-	 * Release the hold
+	 * Stop taking steps on their own, and only take them when told to
 	 */
-	public synchronized void next() {
-		if (isHeld) {
-			log.info("Continuing");
-			this.notify();
-		} else {
-			log.info("Told to continue, but not being held");
+	public void stopPlaying() {
+		lock.lock();
+		try {
+			period = -1;
+			until = null;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stop playing or running until a state, until resumed. Steps can still
+	 * be taken one at a time with next.
+	 */
+	public void pause() {
+		lock.lock();
+		try {
+			paused = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Carry on playing or running until a state
+	 */
+	public void resume() {
+		lock.lock();
+		try {
+			paused = false;
+			nextStep = System.nanoTime() + Math.max(period, 0);
+			changed.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	public boolean isPaused() {
+		lock.lock();
+		try {
+			return paused;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Stop for good. The thread being held, and any which hold later, get a
+	 * CancellationException.
+	 */
+	public void cancel() {
+		lock.lock();
+		try {
+			cancelled = true;
+			changed.signalAll();
+		} finally {
+			lock.unlock();
 		}
 	}
 
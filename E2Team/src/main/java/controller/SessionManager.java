@@ -0,0 +1,352 @@
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import model.Canvas;
+import model.math.PointBD;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs many independent canvases on a fixed number of threads, instead of a
+ * new thread for each one.
+ *
+ * The points of a session are added a chunk at a time, and once a chunk is
+ * done the next one goes to the back of the queue. So every session gets a
+ * turn in order, and a big one can't hold up the small ones queued behind
+ * it. Canvases using a batch engine are built in one go, as adding a chunk
+ * to them rebuilds the whole diagram.
+ *
+ * A canvas with a stepper holds the thread it is running on while it waits,
+ * possibly for the user. Those sessions are given a thread of their own with
+ * submitHeld, so they never stop the pool running the rest.
+ *
+ * @author mxw449
+ */
+public class SessionManager {
+	private static final Logger log = LoggerFactory.getLogger(SessionManager.class);
+
+	/** How many points are added to a session before the next one gets a turn */
+	public static final int DEFAULT_CHUNK = 256;
+
+	private static SessionManager shared;
+
+	private final ThreadPoolExecutor executor;
+	private final int chunk;
+
+	private final AtomicInteger sessions = new AtomicInteger();
+	private final AtomicInteger held = new AtomicInteger();
+	private final AtomicInteger running = new AtomicInteger();
+	private final AtomicLong sitesAdded = new AtomicLong();
+
+	/** Nanoseconds spent with at least one session running */
+	private long busyTime;
+	private long busySince;
+
+	public SessionManager(int threads) {
+		this(threads, DEFAULT_CHUNK);
+	}
+
+	public SessionManager(int threads, int chunk) {
+		if (threads < 1 || chunk < 1) throw new IllegalArgumentException("Need at least one thread and one point a chunk");
+		this.chunk = chunk;
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+					private final AtomicInteger count = new AtomicInteger();
+
+					@Override
+					public Thread newThread(Runnable r) {
+						Thread t = new Thread(r, "canvas-" + count.incrementAndGet());
+						t.setDaemon(true);
+						return t;
+					}
+				});
+	}
+
+	/**
+	 * @return a manager with a thread for each core, shared by the whole
+	 *         program
+	 */
+	public static synchronized SessionManager shared() {
+		if (shared == null) shared = new SessionManager(Runtime.getRuntime().availableProcessors());
+		return shared;
+	}
+
+	/**
+	 * Add points to a canvas, a chunk at a time
+	 */
+	public Session submit(String name, Canvas canvas, List<PointBD> points) {
+		final Session session = new Session(name, canvas, points.size());
+		final List<PointBD> toAdd = new ArrayList<>(points);
+		final int size = canvas.getEngine().isBatch() ? Math.max(1, toAdd.size()) : chunk;
+
+		start(session, new Runnable() {
+			private int next;
+
+			@Override
+			public void run() {
+				if (session.cancelled) {
+					session.finish(new CancellationException("Session " + session.name + " was cancelled"));
+					return;
+				}
+				try {
+					int end = Math.min(toAdd.size(), next + size);
+					session.canvas.addPoints(toAdd.subList(next, end));
+					session.added(end - next);
+					next = end;
+				} catch (RuntimeException | Error e) {
+					session.finish(e);
+					return;
+				}
+
+				if (next < toAdd.size()) {
+					try {
+						executor.execute(this);
+					} catch (RejectedExecutionException e) {
+						// Shut down before the session could finish
+						session.finish(e);
+					}
+				} else {
+					session.finish(null);
+				}
+			}
+		});
+		return session;
+	}
+
+	/**
+	 * Run some work on a canvas in one go, such as filling it with generated
+	 * points
+	 *
+	 * @param sites
+	 *            how many points the work adds, for the progress
+	 */
+	public Session submit(String name, Canvas canvas, int sites, Runnable work) {
+		Session session = new Session(name, canvas, sites);
+		start(session, inOneGo(session, work));
+		return session;
+	}
+
+	/**
+	 * Run some work on a canvas in one go, on a thread of its own instead of
+	 * the pool. For canvases held by a stepper, which could wait on the user
+	 * for as long as they like.
+	 *
+	 * @param sites
+	 *            how many points the work adds, for the progress
+	 */
+	public Session submitHeld(String name, Canvas canvas, int sites, Runnable work) {
+		if (executor.isShutdown()) throw new RejectedExecutionException("Session manager has been shut down");
+		Session session = new Session(name, canvas, sites);
+		count(session);
+		Thread thread = new Thread(inOneGo(session, work), "held-canvas-" + held.incrementAndGet());
+		thread.setDaemon(true);
+		thread.start();
+		return session;
+	}
+
+	private Runnable inOneGo(final Session session, final Runnable work) {
+		return new Runnable() {
+			@Override
+			public void run() {
+				if (session.cancelled) {
+					session.finish(new CancellationException("Session " + session.name + " was cancelled"));
+					return;
+				}
+				try {
+					work.run();
+					session.added(session.sites);
+					session.finish(null);
+				} catch (RuntimeException | Error e) {
+					session.finish(e);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Queue the first part of a session. It is counted first, so it can't
+	 * finish before it starts, and the count is taken back if the executor
+	 * won't take it.
+	 */
+	private void start(Session session, Runnable first) {
+		count(session);
+		try {
+			executor.execute(first);
+		} catch (RejectedExecutionException e) {
+			uncount();
+			throw e;
+		}
+	}
+
+	private void count(Session session) {
+		sessions.incrementAndGet();
+		synchronized (this) {
+			if (running.getAndIncrement() == 0) busySince = System.nanoTime();
+		}
+		log.info("Starting session {} of {} points", session.name, session.sites);
+	}
+
+	private void uncount() {
+		sessions.decrementAndGet();
+		synchronized (this) {
+			if (running.decrementAndGet() == 0) busyTime += System.nanoTime() - busySince;
+		}
+	}
+
+	private void finished(Session session) {
+		synchronized (this) {
+			if (running.decrementAndGet() == 0) busyTime += System.nanoTime() - busySince;
+		}
+		log.info("Session {} finished: {} points at {} a second", session.name, session.getSitesAdded(), (long) session.getSitesPerSecond());
+	}
+
+	/**
+	 * @return how many sessions have been submitted
+	 */
+	public int getSessionCount() {
+		return sessions.get();
+	}
+
+	/**
+	 * @return how many sessions haven't finished yet
+	 */
+	public int getRunningCount() {
+		return running.get();
+	}
+
+	/**
+	 * @return how many points have been added across every session
+	 */
+	public long getSitesAdded() {
+		return sitesAdded.get();
+	}
+
+	/**
+	 * @return the points added a second across every session, over the time
+	 *         any session was running
+	 */
+	public synchronized double getSitesPerSecond() {
+		long busy = busyTime + (running.get() > 0 ? System.nanoTime() - busySince : 0);
+		return busy == 0 ? 0 : sitesAdded.get() * 1e9 / busy;
+	}
+
+	/**
+	 * Stop taking new sessions. Sessions added in one go still finish, but
+	 * ones added a chunk at a time stop before their next chunk, and fail
+	 * with a RejectedExecutionException. Held sessions aren't waited for by
+	 * awaitTermination.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return executor.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * One canvas being worked out, and how far it has got
+	 */
+	public class Session {
+		private final String name;
+		private final Canvas canvas;
+		private final int sites;
+
+		private final AtomicInteger added = new AtomicInteger();
+		private final CountDownLatch done = new CountDownLatch(1);
+		private final long started = System.nanoTime();
+		private volatile long ended;
+		private volatile boolean cancelled;
+		private volatile Throwable failure;
+
+		private Session(String name, Canvas canvas, int sites) {
+			this.name = name;
+			this.canvas = canvas;
+			this.sites = sites;
+		}
+
+		private void added(int count) {
+			added.addAndGet(count);
+			sitesAdded.addAndGet(count);
+		}
+
+		private void finish(Throwable failure) {
+			this.failure = failure;
+			ended = System.nanoTime();
+			// Counted as finished before anyone waiting is let go
+			finished(this);
+			done.countDown();
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public Canvas getCanvas() {
+			return canvas;
+		}
+
+		/**
+		 * @return how many of the session's points have been added
+		 */
+		public int getSitesAdded() {
+			return added.get();
+		}
+
+		/**
+		 * @return the part of the session's points which have been added,
+		 *         from 0 to 1
+		 */
+		public double getProgress() {
+			if (isDone() || sites == 0) return isDone() ? 1 : 0;
+			return Math.min(1, (double) added.get() / sites);
+		}
+
+		/**
+		 * @return the points added a second since the session was submitted
+		 */
+		public double getSitesPerSecond() {
+			long time = (isDone() ? ended : System.nanoTime()) - started;
+			return time == 0 ? 0 : added.get() * 1e9 / time;
+		}
+
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		/**
+		 * Stop before the next chunk is added. A canvas being held by a
+		 * stepper has to be cancelled there too.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+		/**
+		 * Wait for the session to finish
+		 *
+		 * @throws ExecutionException
+		 *             if adding the points failed
+		 * @throws CancellationException
+		 *             if the session was cancelled
+		 */
+		public void await() throws InterruptedException, ExecutionException {
+			done.await();
+			if (failure instanceof CancellationException) throw (CancellationException) failure;
+			if (failure != null) throw new ExecutionException(failure);
+		}
+	}
+}
@@ -0,0 +1,116 @@
+package controller;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+import javax.swing.Timer;
+
+import gui.CanvasView;
+import model.StepLog;
+
+/**
+ * Plays back a StepLog on a CanvasView, at any speed and in either direction,
+ * or jumps straight to a step. Nothing is worked out again, and the canvas
+ * doesn't need to be held, so the display can go back to steps the canvas
+ * has already moved past.
+ *
+ * @author mxw449
+ */
+public class StepPlayer {
+
+	/** How often the display is moved on while playing, in milliseconds */
+	private static final int TICK = 16;
+
+	private final StepLog stepLog;
+	private final CanvasView display;
+	private final Timer timer;
+
+	/** The step being shown, or -1 if the live canvas is being shown */
+	private int position = -1;
+
+	/** Steps per second, negative for backwards */
+	private double speed;
+
+	/** Part of a step not shown yet, carried over to the next tick */
+	private double carried;
+
+	public StepPlayer(StepLog stepLog, CanvasView display) {
+		this.stepLog = stepLog;
+		this.display = display;
+		this.timer = new Timer(TICK, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				tick();
+			}
+		});
+	}
+
+	/**
+	 * Show a step
+	 */
+	public void seek(int step) {
+		int size = stepLog.size();
+		if (size == 0) return;
+		position = Math.max(0, Math.min(size - 1, step));
+		display.showFrame(stepLog.frameAt(position));
+	}
+
+	/**
+	 * Move forwards or backwards a number of steps from the one being shown
+	 */
+	public void step(int steps) {
+		seek((position < 0 ? stepLog.size() - 1 : position) + steps);
+	}
+
+	/**
+	 * Start moving through the steps
+	 *
+	 * @param stepsPerSecond
+	 *            how fast to go, negative to go backwards
+	 */
+	public void play(double stepsPerSecond) {
+		speed = stepsPerSecond;
+		carried = 0;
+		timer.start();
+	}
+
+	/**
+	 * Stop on the step being shown
+	 */
+	public void pause() {
+		timer.stop();
+	}
+
+	/**
+	 * Stop playing back, and show the canvas as it is now
+	 */
+	public void showLive() {
+		timer.stop();
+		position = -1;
+		display.showFrame(null);
+	}
+
+	/**
+	 * @return the step being shown, or -1 if the live canvas is being shown
+	 */
+	public int getPosition() {
+		return position;
+	}
+
+	/**
+	 * @return whether the last step recorded is being shown
+	 */
+	public boolean isAtEnd() {
+		return position >= 0 && position == stepLog.size() - 1;
+	}
+
+	private void tick() {
+		carried += speed * TICK / 1000;
+		int steps = (int) carried;
+		if (steps == 0) return;
+		carried -= steps;
+
+		step(steps);
+		if (position == 0 && speed < 0 || position == stepLog.size() - 1 && speed > 0) pause();
+	}
+}
@@ -2,19 +2,12 @@ package gui;
 
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
-import java.util.concurrent.TimeUnit;
-
-import javax.swing.JButton;
-import javax.swing.JLabel;
-import javax.swing.JTextArea;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import controller.CanvasController;
-import gui.information.PromptHandler;
-import model.Canvas;
-import model.Canvas.VoronoiState;
+import controller.StepPlayer;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -25,56 +18,49 @@ public class CanvasKeyListener implements KeyListener {
 
 	private static final Logger log = LoggerFactory.getLogger(CanvasKeyListener.class);
 	private final CanvasController controller;
-	private Canvas canvas;
-	private JLabel numNodesPlaying;
-	public static int nodeCount;
-	private int numNodes;
-	private JButton nextStep;
-	private JTextArea explanation;
-	private PromptHandler promptHandler;
+	private final StepPlayer player;
 
 	/**
 	 * Instantiates a new canvas key listener.
 	 *
 	 * @param _controller the _controller
-	 * @param canvas the canvas
-	 * @param numNodesPlaying the num nodes playing
-	 * @param nodeCount the node count
-	 * @param numNodes the num nodes
-	 * @param nextStep the next step
-	 * @param explanation the explanation
-	 * @param promptHandler the prompt handler
 	 */
-	public CanvasKeyListener(CanvasController _controller, Canvas canvas, JLabel numNodesPlaying, int nodeCount,
-			int numNodes, JButton nextStep, JTextArea explanation, PromptHandler promptHandler) {
+	public CanvasKeyListener(CanvasController _controller) {
+		this(_controller, null);
+	}
+
+	/**
+	 * Instantiates a new canvas key listener, where the left and right arrows
+	 * go back and forward through the steps already shown.
+	 *
+	 * @param _controller the _controller
+	 * @param _player plays back the steps recorded on the canvas, or null
+	 */
+	public CanvasKeyListener(CanvasController _controller, StepPlayer _player) {
 		this.controller = _controller;
-		this.canvas = canvas;
-		this.numNodesPlaying = numNodesPlaying;
-		CanvasKeyListener.nodeCount = nodeCount;
-		this.numNodes = numNodes;
-		this.nextStep = nextStep;
-		this.explanation = explanation;
-		this.promptHandler = promptHandler;
+		this.player = _player;
 	}
 
 	@Override
 	public void keyReleased(KeyEvent e) {
 		log.info("Key pressed");
-		this.controller.nextVoronoiStep();
-		boolean firstDone = canvas.getState() == VoronoiState.DONE;
-		controller.nextVoronoiStep();
-		if (canvas.getState() == VoronoiState.ADD_POINT_START) {
-			numNodesPlaying.setText(promptHandler.getText("nodenum") + nodeCount + "/" + numNodes);
-		}
-		try {
-			TimeUnit.MILLISECONDS.sleep(100);
-		} catch (InterruptedException e1) {
-		}
-		boolean nextDone = canvas.getState() == VoronoiState.DONE;
-		if (firstDone && nextDone) {
-			nextStep.setVisible(false);
-			explanation.setText(promptHandler.getText("visualcomplete"));
+		if (player != null) {
+			if (e.getKeyCode() == KeyEvent.VK_LEFT) {
+				player.step(-1);
+				return;
+			}
+			if (e.getKeyCode() == KeyEvent.VK_RIGHT && player.getPosition() >= 0) {
+				// Back on the live canvas after the last step recorded
+				if (player.isAtEnd()) {
+					player.showLive();
+				} else {
+					player.step(1);
+				}
+				return;
+			}
+			player.showLive();
 		}
+		controller.nextVoronoiStep();
 	}
 
 	@Override
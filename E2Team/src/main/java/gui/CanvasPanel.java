@@ -18,7 +18,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Observable;
 import java.util.Observer;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
 
 import javax.swing.BorderFactory;
 import javax.swing.ButtonGroup;
@@ -30,6 +30,7 @@ import javax.swing.JRadioButton;
 import javax.swing.JScrollPane;
 import javax.swing.JSlider;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import javax.swing.border.Border;
 import javax.swing.border.EmptyBorder;
 import javax.swing.event.ChangeEvent;
@@ -40,10 +41,13 @@ import org.slf4j.LoggerFactory;
 
 import controller.CanvasController;
 import controller.Holder;
+import controller.SessionManager;
+import controller.StepPlayer;
 import gui.information.ExplanationHandler;
 import gui.information.PromptHandler;
 import model.Canvas;
 import model.Canvas.VoronoiState;
+import model.StepLog;
 
 /**
  * Canvas panel displaying the main visualisation and controls
@@ -68,7 +72,9 @@ public class CanvasPanel extends JPanel implements Observer {
 	private Canvas canvas;
 	private CanvasController controller;
 	private CanvasView canvasDisplay;
-	private Thread playVisThread;
+
+	/** What to do once every point has been added, on the Swing thread */
+	private volatile Runnable whenFinished;
 	
 	private JPanel controls;
 	private JPanel jSlider;
@@ -99,6 +105,7 @@ public class CanvasPanel extends JPanel implements Observer {
 	private GridBagConstraints c;
 	private GridBagConstraints c1;
 	private CanvasKeyListener keyListener;
+	private StepPlayer stepPlayer;
 
 	/**
 	 * instantiate canvas panel
@@ -393,20 +400,9 @@ public class CanvasPanel extends JPanel implements Observer {
 		nextStep.addActionListener(new ActionListener() {
 			@Override
 			public void actionPerformed(ActionEvent e) {
-				boolean firstDone = canvas.getState() == VoronoiState.DONE;
+				// Carry on from the live canvas, not a step being looked back at
+				if (stepPlayer != null) stepPlayer.showLive();
 				controller.nextVoronoiStep();
-				if (canvas.getState() == VoronoiState.ADD_POINT_START) {
-					numNodesPlaying.setText(promptHandler.getText("nodenum") + nodeCount + "/" + numNodes);
-				}
-				try {
-					TimeUnit.MILLISECONDS.sleep(100);
-				} catch (InterruptedException e1) {
-				}
-				boolean nextDone = canvas.getState() == VoronoiState.DONE;
-				if (firstDone && nextDone) {
-					nextStep.setVisible(false);
-					explanation.setText(promptHandler.getText("visualcomplete"));
-				}
 			}
 		});
 
@@ -424,16 +420,15 @@ public class CanvasPanel extends JPanel implements Observer {
 		pauseButton.addMouseListener(new MouseAdapter() {
 			String pauseDesc = ((ImageIcon) pauseButton.getIcon()).getDescription();
 
-			@SuppressWarnings("deprecation")
 			@Override
 			public void mouseClicked(MouseEvent e) {
 				if (pauseDesc == "pause icon") {
-					playVisThread.suspend(); // Ideal method for the job despite deprecation
+					controller.pause();
 					pauseButton.setIcon(play);
 					pauseButton.setToolTipText(promptHandler.getText("playtips"));
 					pauseDesc = ((ImageIcon) pauseButton.getIcon()).getDescription();
 				} else {
-					playVisThread.resume();
+					controller.resume();
 					pauseButton.setIcon(pause);
 					pauseButton.setToolTipText(promptHandler.getText("pausetips"));
 					pauseDesc = ((ImageIcon) pauseButton.getIcon()).getDescription();
@@ -452,8 +447,8 @@ public class CanvasPanel extends JPanel implements Observer {
 		homeButton.addMouseListener(new MouseAdapter() {
 			@Override
 			public void mouseClicked(MouseEvent e) {
-				if (playVisThread != null) {
-					playVisThread.interrupt();
+				if (controller != null) {
+					controller.cancel();
 				}
 				if(explanationPane != null) {
 					explanationPane.removeKeyListener(keyListener);
@@ -613,15 +608,9 @@ public class CanvasPanel extends JPanel implements Observer {
 		canvas.addObserver(display);
 		canvas.addObserver(this);
 		display.setBounds(0, 0, width, height);
+		recordSteps(display);
 
-		Thread canvasThread = new Thread(new Runnable() {
-			@Override
-			public void run() {
-				canvas.fillCanvasWithPoints(getNumNodes(), dotSpread);
-			}
-		});
-
-		canvasThread.start();
+		startCanvasThread();
 
 		return display;
 	}
@@ -642,17 +631,48 @@ public class CanvasPanel extends JPanel implements Observer {
 		canvas.addObserver(display);
 		canvas.addObserver(this);
 		display.setBounds(0, 0, width, height);
+		recordSteps(display);
+
+		startCanvasThread();
+
+		return display;
+	}
+
+	/**
+	 * In step by step mode, record every step so the user can go back
+	 * through the ones already shown
+	 */
+	private void recordSteps(CanvasView display) {
+		stepPlayer = null;
+		if ("continuous".equals(playMode)) return;
 
-		Thread canvasThread = new Thread(new Runnable() {
+		StepLog stepLog = new StepLog();
+		canvas.setStepLog(stepLog);
+		stepPlayer = new StepPlayer(stepLog, display);
+	}
+
+	/**
+	 * Fill the canvas on a session thread of its own, as it is held at each
+	 * step until the user carries on. Once every point has been added,
+	 * whenFinished is run.
+	 */
+	private void startCanvasThread() {
+		final Canvas filling = canvas;
+		final int amount = getNumNodes();
+		SessionManager.shared().submitHeld("visualisation", filling, amount, new Runnable() {
 			@Override
 			public void run() {
-				canvas.fillCanvasWithPoints(getNumNodes(), dotSpread);
+				try {
+					filling.fillCanvasWithPoints(amount, dotSpread);
+				} catch (CancellationException e) {
+					log.info("Visualisation stopped before it finished");
+					return;
+				}
+
+				Runnable finished = whenFinished;
+				if (finished != null) SwingUtilities.invokeLater(finished);
 			}
 		});
-
-		canvasThread.start();
-
-		return display;
 	}
 
 	/**
@@ -678,6 +698,11 @@ public class CanvasPanel extends JPanel implements Observer {
 		log.info("Repainting MainGUI");
 
 		// Update the amount of points
+		nodeCount = canvas.getNodeCount();
+		if (numNodesPlaying != null && this.controller.getState() == VoronoiState.ADD_POINT_START) {
+			numNodesPlaying.setText(promptHandler.getText("nodenum") + nodeCount + "/" + numNodes);
+			numNodesPlaying.setToolTipText(promptHandler.getText("nodenum") + nodeCount + "/" + numNodes);
+		}
 		int amountOfPoints = this.controller.getPolygons().size();
 		this.explanationHandler.setAmountOfPoints(amountOfPoints);
 
@@ -899,63 +924,17 @@ public class CanvasPanel extends JPanel implements Observer {
 					Border controlBorder = BorderFactory.createTitledBorder(promptHandler.getText("controls"));
 					controls1.setBorder(controlBorder);
 
-					// Play visualisation
-					double speed = 1.0 / playSpeed;
-					final double speedMS = speed * 1000;
-					playVisThread = new Thread(new Runnable() {
+					// Play visualisation, at exactly the chosen number of
+					// steps per second
+					whenFinished = new Runnable() {
 						@Override
 						public void run() {
-							boolean firstDone = canvas.getState() == VoronoiState.DONE;
-							controller.nextVoronoiStep();
-							boolean firstAddPoint = canvas.getState() == VoronoiState.ADD_POINT_START;
-							if (firstAddPoint) {
-								// setting the text of numbers of nodes played
-								numNodesPlaying.setText(promptHandler.getText("nodenum") + nodeCount + "/" + numNodes);
-								numNodesPlaying
-										.setToolTipText(promptHandler.getText("nodenum") + nodeCount + "/" + numNodes);
-							}
-							try {
-								TimeUnit.MILLISECONDS.sleep(100);
-							} catch (InterruptedException e) {
-							}
-							boolean nextDone = canvas.getState() == VoronoiState.DONE;
-							while (!(firstDone && nextDone)) {
-								// setting first add point depending on add point started
-								firstAddPoint = canvas.getState() == VoronoiState.ADD_POINT_START;
-								try {
-									TimeUnit.MILLISECONDS.sleep((long) speedMS);
-								} catch (InterruptedException e) {
-									break;
-								}
-								
-								// setting first add point depending on voronoi completed
-								firstDone = canvas.getState() == VoronoiState.DONE;
-								controller.nextVoronoiStep();
-								
-								// setting second add point depending on add point started
-								boolean secondAddPoint = canvas.getState() == VoronoiState.ADD_POINT_START;
-								if (secondAddPoint && firstAddPoint) {
-									numNodesPlaying
-											.setText(promptHandler.getText("nodenum") + nodeCount + "/" + numNodes);
-									numNodesPlaying.setToolTipText(
-											promptHandler.getText("nodenum") + nodeCount + "/" + numNodes);
-								}
-								try {
-									TimeUnit.MILLISECONDS.sleep(100);
-								} catch (InterruptedException e) {
-									break;
-								}
-								nextDone = canvas.getState() == VoronoiState.DONE;
-							}
-							// setting text of label
 							contPlay.setText("<html><center>" + promptHandler.getText("visualcomplete")
 									+ "</center><br/>" + "<center>" + promptHandler.getText("visualcomplete2")
 									+ "</center>" + "</html>");
-
 						}
-					});
-
-					playVisThread.start();
+					};
+					controller.play(playSpeed);
 					// ------------------
 
 					jSlider.revalidate();
@@ -1025,8 +1004,16 @@ public class CanvasPanel extends JPanel implements Observer {
 					buttonsRowOneA.add(homeButton);
 					buttonsRowOneA.add(exitButton);
 					
+					whenFinished = new Runnable() {
+						@Override
+						public void run() {
+							nextStep.setVisible(false);
+							explanation.setText(promptHandler.getText("visualcomplete"));
+						}
+					};
+
 					// Add key listener to allow play through
-					keyListener = new CanvasKeyListener(controller, canvas, numNodesPlaying, nodeCount, numNodes, nextStep, explanation, promptHandler);
+					keyListener = new CanvasKeyListener(controller, stepPlayer);
 					explanationPane.addKeyListener(keyListener);
 					explanationPane.setFocusable(true);
 					explanationPane.requestFocus();
@@ -1036,8 +1023,8 @@ public class CanvasPanel extends JPanel implements Observer {
 					jSlider.repaint();
 				}
 			} else {
-				if (playVisThread != null) {
-					playVisThread.interrupt();
+				if (controller != null) {
+					controller.cancel();
 				}
 				
 				// making panel visible
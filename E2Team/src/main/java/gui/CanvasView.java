@@ -5,8 +5,12 @@ import java.awt.Color;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Polygon;
+import java.awt.Rectangle;
 import java.awt.RenderingHints;
-import java.util.HashMap;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Observable;
@@ -20,6 +24,7 @@ import org.slf4j.LoggerFactory;
 import controller.CanvasController;
 import model.math.LineBD;
 import model.math.PointBD;
+import model.StepLog;
 import model.VoronoiPolygon;
 
 public class CanvasView extends JComponent implements Observer {
@@ -30,7 +35,29 @@ public class CanvasView extends JComponent implements Observer {
 	/**
 	 * Stores the color of each polygon
 	 */
-	private Map<VoronoiPolygon, Color> colorMap = new HashMap<>();
+	private Map<VoronoiPolygon, Color> colorMap = new IdentityHashMap<>();
+
+	/**
+	 * The recorded step being shown instead of the canvas, or null to show
+	 * the canvas
+	 */
+	private StepLog.Frame frame;
+
+	/**
+	 * The finished polygons, points and outlines, kept between paints so only
+	 * the parts which have changed are drawn again
+	 */
+	private BufferedImage layer;
+
+	/**
+	 * How each polygon was when it was last drawn on the layer
+	 */
+	private final Map<VoronoiPolygon, Drawn> drawn = new IdentityHashMap<>();
+
+	/**
+	 * Whether the whole layer needs drawing again
+	 */
+	private boolean redrawAll = true;
 
 	/**
 	 * Colours for general aspects
@@ -69,25 +96,126 @@ public class CanvasView extends JComponent implements Observer {
 	public void paint(Graphics g) {
 		log.info("Canvas state is {}", controller.getState());
 
-		g.setColor(BACKGROUND_COLOR);
-		g.fillRect(0, 0, controller.getWidth(), controller.getHeight());
-
 		Graphics2D g2d = (Graphics2D) g.create();
 
 		g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-		drawAllPolygons(g2d);
-		drawAllPoints(g2d);
-		drawAllPolygonOutlines(g2d);
+		StepLog.Frame shown = frame;
+		if (shown != null) {
+			g2d.setColor(BACKGROUND_COLOR);
+			g2d.fillRect(0, 0, controller.getWidth(), controller.getHeight());
+			drawFrame(g2d, shown);
+			return;
+		}
+
+		updateLayer();
+		g2d.drawImage(layer, 0, 0, null);
 
 		drawStateDependentObjects(g2d);
 	}
 
 	/**
-	 * Draw every polygon
+	 * Redraw the parts of the layer where polygons have changed, been added
+	 * or been removed since it was last drawn. Every polygon crossing those
+	 * parts is drawn again in them, so the layer ends up the same as if it
+	 * had all been drawn again.
+	 */
+	private void updateLayer() {
+		int width = controller.getWidth();
+		int height = controller.getHeight();
+		if (layer == null || layer.getWidth() != width || layer.getHeight() != height) {
+			layer = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+			invalidateLayer();
+		}
+
+		List<VoronoiPolygon> polygons = new ArrayList<>(controller.getPolygons());
+		Map<VoronoiPolygon, Boolean> current = new IdentityHashMap<>(polygons.size());
+		Rectangle dirty = redrawAll ? new Rectangle(0, 0, width, height) : null;
+		for (int i = 0; i < polygons.size(); i++) {
+			VoronoiPolygon p = polygons.get(i);
+			current.put(p, Boolean.TRUE);
+			Drawn last = drawn.get(p);
+			// A polygon moved in the list is drawn over its neighbours in a
+			// different order, so it is drawn again too
+			if (last != null && last.version == p.getVersion() && last.index == i) continue;
+
+			Drawn now = new Drawn(p.getVersion(), i, getDrawnBounds(p));
+			dirty = union(union(dirty, last == null ? null : last.bounds), now.bounds);
+			drawn.put(p, now);
+		}
+		if (drawn.size() > current.size()) {
+			for (Iterator<Map.Entry<VoronoiPolygon, Drawn>> it = drawn.entrySet().iterator(); it.hasNext();) {
+				Map.Entry<VoronoiPolygon, Drawn> entry = it.next();
+				if (current.containsKey(entry.getKey())) continue;
+				dirty = union(dirty, entry.getValue().bounds);
+				it.remove();
+			}
+		}
+		redrawAll = false;
+		if (dirty == null) return;
+
+		Graphics2D g = layer.createGraphics();
+		g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g.clip(dirty);
+		g.setColor(BACKGROUND_COLOR);
+		g.fill(dirty);
+
+		List<VoronoiPolygon> crossing = new ArrayList<>();
+		for (VoronoiPolygon p : polygons) {
+			if (drawn.get(p).bounds.intersects(dirty)) crossing.add(p);
+		}
+		drawAllPolygons(g, crossing);
+		drawAllPoints(g, crossing);
+		drawAllPolygonOutlines(g, crossing);
+		g.dispose();
+	}
+
+	/**
+	 * Draw every polygon again the next time the display is painted
+	 */
+	public void invalidateLayer() {
+		redrawAll = true;
+		drawn.clear();
+	}
+
+	/**
+	 * @return the area a polygon covers when drawn, with its outline and
+	 *         centre point
+	 */
+	private Rectangle getDrawnBounds(VoronoiPolygon p) {
+		Rectangle bounds = p.getJavaPolygon().getBounds();
+		bounds.add(new Rectangle((int) p.getCentre().getXVal() - (POINT_RADIUS / 2), (int) p.getCentre().getYVal() - (POINT_RADIUS / 2), POINT_RADIUS, POINT_RADIUS));
+		int margin = (int) Math.ceil(stroke.getLineWidth()) + 1;
+		bounds.grow(margin, margin);
+		return bounds;
+	}
+
+	/**
+	 * The version and place in the list of a polygon when it was drawn, and
+	 * the area it covered
+	 */
+	private static class Drawn {
+		final int version;
+		final int index;
+		final Rectangle bounds;
+
+		Drawn(int version, int index, Rectangle bounds) {
+			this.version = version;
+			this.index = index;
+			this.bounds = bounds;
+		}
+	}
+
+	private static Rectangle union(Rectangle a, Rectangle b) {
+		if (a == null) return b == null ? null : new Rectangle(b);
+		if (b != null) a.add(b);
+		return a;
+	}
+
+	/**
+	 * Draw some polygons
 	 */
-	private void drawAllPolygons(Graphics2D g) {
-		List<VoronoiPolygon> polygons = this.controller.getPolygons();
+	private void drawAllPolygons(Graphics2D g, List<VoronoiPolygon> polygons) {
 		for (VoronoiPolygon p : polygons) {
 			g.setColor(getPolygonColor(p));
 			drawPolygon(p, g);
@@ -95,12 +223,11 @@ public class CanvasView extends JComponent implements Observer {
 	}
 
 	/**
-	 * Draw every polygon outline
+	 * Draw some polygon outlines
 	 */
-	private void drawAllPolygonOutlines(Graphics2D g) {
+	private void drawAllPolygonOutlines(Graphics2D g, List<VoronoiPolygon> polygons) {
 		g.setStroke(stroke);
 
-		List<VoronoiPolygon> polygons = this.controller.getPolygons();
 		for (VoronoiPolygon p : polygons) {
 			g.setColor(getSecondaryPolygonColor(p));
 			drawPolygonOutline(p, g);
@@ -108,10 +235,10 @@ public class CanvasView extends JComponent implements Observer {
 	}
 
 	/**
-	 * Draw all centre points
+	 * Draw the centre points of some polygons
 	 */
-	private void drawAllPoints(Graphics2D g) {
-		for (VoronoiPolygon p : this.controller.getPolygons()) {
+	private void drawAllPoints(Graphics2D g, List<VoronoiPolygon> polygons) {
+		for (VoronoiPolygon p : polygons) {
 			g.setColor(getSecondaryPolygonColor(p));
 			drawPoint(g, p.getCentre());
 		}
@@ -178,10 +305,94 @@ public class CanvasView extends JComponent implements Observer {
 		}
 	}
 
+	/**
+	 * Show a recorded step instead of the canvas
+	 * 
+	 * @param frame
+	 *            the step to show, or null to go back to showing the canvas
+	 */
+	public void showFrame(StepLog.Frame frame) {
+		this.frame = frame;
+		repaint();
+	}
+
+	/**
+	 * @return the recorded step being shown, or null if the canvas is being
+	 *         shown
+	 */
+	public StepLog.Frame getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Draw a recorded step, in the same way as the canvas is drawn
+	 */
+	@SuppressWarnings("incomplete-switch")
+	private void drawFrame(Graphics2D g, StepLog.Frame shown) {
+		// Cells are colored by the polygon they were, so each keeps the same
+		// color going back and forth through the steps
+		List<Polygon> cells = shown.getCells();
+		List<VoronoiPolygon> polygons = shown.getPolygons();
+		List<PointBD> centres = shown.getCentres();
+		for (int i = 0; i < cells.size(); i++) {
+			g.setColor(getPolygonColor(polygons.get(i)));
+			g.fillPolygon(cells.get(i));
+		}
+		g.setStroke(stroke);
+		for (int i = 0; i < cells.size(); i++) {
+			g.setColor(getSecondaryPolygonColor(polygons.get(i)));
+			drawPoint(g, centres.get(i));
+			g.drawPolygon(cells.get(i));
+		}
+
+		switch (shown.getState()) {
+		case GETTING_BISECTION:
+			g.setColor(BISECTION_COLOR);
+			LineBD line = shown.getBisectionLine();
+			g.drawLine((int) line.getP1().getXVal(), (int) line.getP1().getYVal(), (int) line.getP2().getXVal(), (int) line.getP2().getYVal());
+			break;
+		case TRIMMING_BEFORE:
+		case TRIMMING_AFTER:
+			if (shown.getTrimmingCell() != null) {
+				g.setColor(TRIMMING_COLOR);
+				g.fillPolygon(shown.getTrimmingCell());
+			}
+			break;
+		}
+
+		if (shown.getAddingPoint() != null) {
+			g.setColor(ADDING_POINT_COLOR);
+			drawPoint(g, shown.getAddingPoint());
+		}
+		if (shown.getAddingEdges() != null) {
+			g.setColor(ADDING_POLYGON_COLOR);
+			for (LineBD l : shown.getAddingEdges()) {
+				g.drawLine(l.getX1().intValue(), l.getY1().intValue(), l.getX2().intValue(), l.getY2().intValue());
+			}
+		}
+	}
+
 	@Override
 	public void update(Observable o, Object arg) {
 		log.info("Updating because {} changed", o);
-		repaint();
+		repaintChanged(arg instanceof Rectangle ? (Rectangle) arg : null);
+	}
+
+	/**
+	 * Repaint the part of the display a change to the canvas covers
+	 * 
+	 * @param changed
+	 *            the area of the canvas which changed, or null to repaint the
+	 *            whole display
+	 */
+	public void repaintChanged(Rectangle changed) {
+		if (changed == null || frame != null) {
+			repaint();
+			return;
+		}
+		// Outlines and points are drawn a little past the area itself
+		int margin = POINT_RADIUS / 2 + (int) Math.ceil(stroke.getLineWidth()) + 1;
+		repaint(changed.x - margin, changed.y - margin, changed.width + 2 * margin, changed.height + 2 * margin);
 	}
 
 	/**
@@ -201,6 +201,7 @@ public class ManualFrame extends JFrame {
 					panel.setVisible(false);
 					canvas = new Canvas(panel.getWidth(), panel.getHeight(), null);
 					canvas.setIsManual(true);
+					canvas.setNotificationPolicy(Canvas.NotificationPolicy.EACH_POINT);
 					display = new CanvasView(new CanvasController(canvas, null));
 					canvas.addObserver(display);
 
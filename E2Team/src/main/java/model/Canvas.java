@@ -1,23 +1,38 @@
 package model;
 
+import java.awt.Polygon;
+import java.awt.Rectangle;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Observable;
 import java.util.PriorityQueue;
 import java.util.Queue;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import controller.Holder;
-import gui.CanvasKeyListener;
-import gui.CanvasPanel;
+import model.math.BigDecimalKernel;
+import model.math.ConvexClipper;
 import model.math.LineBD;
 import model.math.MarginedBigDecimal;
+import model.math.NumericKernel;
 import model.math.PointBD;
+import model.math.PointSet;
+import model.math.PointStore;
+import model.math.SiteIndex;
+import model.math.SpatialOrder;
 
 /**
  * The canvas contains the points, and handles adding points, and finding
@@ -34,8 +49,50 @@ public class Canvas extends Observable {
 		STARTING, ADD_POINT_START, GETTING_BISECTION, TRIMMING_BEFORE, TRIMMING_AFTER, DONE_WITHOUT_BORDER, JOINING_WITH_BORDER, DONE
 	}
 
-	/** Current instance of the Holder class */
-	private final Holder holder;
+	/**
+	 * How the diagram is built. INCREMENTAL adds points one at a time,
+	 * trimming the closest polygons, going through each VoronoiState.
+	 * SWEEP_LINE fills the canvas all at once with Fortune's algorithm, and
+	 * adds any other points incrementally. PARALLEL_SWEEP does the same, but
+	 * splits the canvas into strips which are swept on different cores.
+	 * DELAUNAY keeps a Delaunay triangulation of all the points, and rebuilds
+	 * the cells next to each new point from it.
+	 */
+	public enum Engine {
+		INCREMENTAL, SWEEP_LINE, PARALLEL_SWEEP, DELAUNAY;
+
+		/**
+		 * Does this engine build the whole diagram at once?
+		 */
+		public boolean isBatch() {
+			return this == SWEEP_LINE || this == PARALLEL_SWEEP;
+		}
+	}
+
+	/**
+	 * Which states observers are told about. Only those states wait for the
+	 * stepper.
+	 */
+	public enum NotificationPolicy {
+		EVERY_STEP, EACH_POINT, NONE;
+
+		/**
+		 * Are observers told when the canvas changes to a state?
+		 */
+		public boolean publishes(VoronoiState state) {
+			switch (this) {
+			case EVERY_STEP:
+				return true;
+			case EACH_POINT:
+				return state == VoronoiState.ADD_POINT_START || state == VoronoiState.DONE;
+			default:
+				return false;
+			}
+		}
+	}
+
+	/** Decides when to carry on after each step, or null to never wait */
+	private final Stepper stepper;
 
 	/** Variables use to store details about the current state */
 	private VoronoiState currentState;
@@ -47,20 +104,69 @@ public class Canvas extends Observable {
 	/** Are we in manual addition mode? */
 	private boolean isManual;
 
+	/** Which states observers are told about */
+	private NotificationPolicy notifications = NotificationPolicy.EVERY_STEP;
+
+	/** Where each state observers are told about is recorded, if anywhere */
+	private StepLog stepLog;
+
+	/**
+	 * How many points have been added, counting one still being added, for
+	 * showing in the GUI
+	 */
+	private int nodeCount;
+
 	/** List of all the polygons on the canvas */
 	private List<VoronoiPolygon> polygons = new CopyOnWriteArrayList<>();
 
+	/**
+	 * Coordinates of the centre of each polygon, with the same index as in
+	 * polygons. Used for quick scans over all the points.
+	 */
+	private final PointStore sites = new PointStore();
+
+	/** Grid over the sites, for finding the ones near a point */
+	private final SiteIndex siteIndex;
+
+	/** How close two points can be before the kernel has to compare them */
+	private static final double SAME_POINT_DISTANCE = 2 * MarginedBigDecimal.marginOfError();
+
+	/** How far the ends of a side can be from a bisection and still be on it */
+	private static final double SIDE_DISTANCE = 1e-6;
+
 	private int numNodes;
 	private Random gen;
 	private String dotDistrib;
 
-	/** Variables used to keep track of the polygon closest to each corner */
+	/**
+	 * The polygon closest to each corner. These are only worked out when
+	 * asked for, and forgotten whenever the polygons change.
+	 */
 	private VoronoiPolygon topLeft, topRight, bottomLeft, bottomRIght;
 	/** Location of each of the corners */
 	private PointBD[] corners = new PointBD[4];
 
 	private MarginedBigDecimal width, height;
 
+	/** The numeric kernel used for all calculations on this canvas */
+	private final NumericKernel kernel;
+
+	/** How the diagram is built */
+	private final Engine engine;
+
+	/** The triangulation of all the points, when using the DELAUNAY engine */
+	private DelaunayTriangulation triangulation;
+
+	/** The corners of the canvas, in order round it */
+	private final List<PointBD> boundary;
+
+	/**
+	 * The pool the PARALLEL_SWEEP engine and relaxing run on. Canvases share
+	 * one with a thread for each core, unless they are given their own.
+	 */
+	private ForkJoinPool pool;
+	private static ForkJoinPool sharedPool;
+
 	/**
 	 * Is the class being called from GUITest? This allows these tests to run
 	 * quicker by not actually adding the points
@@ -68,19 +174,69 @@ public class Canvas extends Observable {
 	private boolean testing;
 
 	/**
-	 * Takes as parameters the size of the canvas, as well as a holder object
+	 * Is a batch of points being added? The states in between aren't
+	 * published, just the one at the end.
 	 */
-	public Canvas(int width, int height, Holder holder) {
+	private boolean batching;
+
+	/**
+	 * The area changed by the states since observers were last told, and
+	 * whether anything could have changed anywhere instead
+	 */
+	private Rectangle changedArea;
+	private boolean allChanged = true;
+
+	/**
+	 * The area of the state objects observers were last told about, which
+	 * have to be drawn over when they move on
+	 */
+	private Rectangle lastStateArea;
+
+	/**
+	 * Takes as parameters the size of the canvas, as well as a stepper, such
+	 * as a Holder. Uses the reference MarginedBigDecimal kernel.
+	 */
+	public Canvas(int width, int height, Stepper stepper) {
+		this(width, height, stepper, new BigDecimalKernel());
+	}
+
+	/**
+	 * Takes as parameters the size of the canvas, a stepper, and the numeric
+	 * kernel to do calculations with
+	 */
+	public Canvas(int width, int height, Stepper stepper, NumericKernel kernel) {
+		this(width, height, stepper, kernel, Engine.INCREMENTAL);
+	}
+
+	/**
+	 * Create a canvas which never waits between steps, for running without a
+	 * GUI
+	 */
+	public Canvas(int width, int height, NumericKernel kernel, Engine engine) {
+		this(width, height, null, kernel, engine);
+	}
+
+	/**
+	 * Takes as parameters the size of the canvas, a stepper, the numeric
+	 * kernel to do calculations with and the engine to fill the canvas with.
+	 * If the stepper is null the canvas never waits between steps.
+	 */
+	public Canvas(int width, int height, Stepper stepper, NumericKernel kernel, Engine engine) {
 		testing = false;
+		this.kernel = kernel;
+		this.engine = engine;
 		this.width = new MarginedBigDecimal(width);
 		this.height = new MarginedBigDecimal(height);
-		this.holder = holder;
+		this.stepper = stepper;
 
 		polygons = new ArrayList<>();
 
 		gen = new Random();
 		isManual = false;
 		corners = new PointBD[] { new PointBD(0, 0), new PointBD(width, 0), new PointBD(0, height), new PointBD(width, height) };
+		boundary = Arrays.asList(corners[0], corners[1], corners[3], corners[2]);
+		siteIndex = new SiteIndex(sites, width, height);
+		triangulation = engine == Engine.DELAUNAY ? new DelaunayTriangulation(boundary) : null;
 
 		currentState = VoronoiState.STARTING;
 	}
@@ -95,14 +251,17 @@ public class Canvas extends Observable {
 			return;
 		}
 
-		// Update the node count in the GUI
-		CanvasPanel.nodeCount++;
-		CanvasKeyListener.nodeCount++;
+		nodeCount++;
 
 		// Update the state
 		this.stateAddingPoint = newPoint;
 		updateState(VoronoiState.ADD_POINT_START);
 
+		if (engine == Engine.DELAUNAY) {
+			addToTriangulation(newPoint);
+			return;
+		}
+
 		// If this is the first point, instead run the addFirstPoint method
 		if (polygons.size() == 0) {
 			addFirstPoint(newPoint);
@@ -112,73 +271,459 @@ public class Canvas extends Observable {
 		// The new polygon to be created
 		VoronoiPolygon newPolygon = new VoronoiPolygon(newPoint, this);
 		this.stateAddingPolygon = newPolygon;
+		forgetCorners();
+
+		// Start from the polygon containing the new point, and spread out to
+		// the neighbours of each polygon that gets trimmed
+		List<VoronoiPolygon> trimmed = new ArrayList<>();
+		Deque<VoronoiPolygon> toVisit = new ArrayDeque<>();
+		Set<VoronoiPolygon> visited = Collections.newSetFromMap(new IdentityHashMap<VoronoiPolygon, Boolean>());
+		VoronoiPolygon start = findContaining(newPoint);
+		toVisit.add(start);
+		visited.add(start);
+
+		// Add bisectors and trim neighbours until none of the neighbours of
+		// trimmed polygons are cut
+		while (!toVisit.isEmpty()) {
+			VoronoiPolygon currentPolygon = toVisit.poll();
+			if (!trimWithNewPolygon(currentPolygon, newPolygon)) continue;
+
+			trimmed.add(currentPolygon);
+			for (VoronoiPolygon neighbour : currentPolygon.getNeighbours()) {
+				if (visited.add(neighbour)) toVisit.add(neighbour);
+			}
+		}
 
-		// Calculate whether each corner now has newPoint as its closest.
-		if (newPolygon.getCentre().getDistanceSqrd(corners[0]).compareTo(getTopLeft().getCentre().getDistanceSqrd(corners[0])) < 0) setTopLeft(newPolygon);
-		if (newPolygon.getCentre().getDistanceSqrd(corners[1]).compareTo(getTopRight().getCentre().getDistanceSqrd(corners[1])) < 0) setTopRight(newPolygon);
-		if (newPolygon.getCentre().getDistanceSqrd(corners[2]).compareTo(getBottomLeft().getCentre().getDistanceSqrd(corners[2])) < 0) setBottomLeft(newPolygon);
-		if (newPolygon.getCentre().getDistanceSqrd(corners[3]).compareTo(getBottomRight().getCentre().getDistanceSqrd(corners[3])) < 0) setBottomRight(newPolygon);
+		// If the neighbours didn't lead anywhere, fall back to trying every
+		// polygon, closest first
+		if (trimmed.isEmpty()) {
+			log.warn("No neighbour of {} was trimmed, trying every polygon", newPoint);
+			Queue<Integer> toAddQueue = createClosestQueue(newPoint);
+			while (!toAddQueue.isEmpty()) {
+				VoronoiPolygon currentPolygon = polygons.get(toAddQueue.poll());
+				if (trimWithNewPolygon(currentPolygon, newPolygon)) trimmed.add(currentPolygon);
+			}
+		}
 
-		// Create a heap of all the polygons, sorted by closest to current point
-		Queue<VoronoiPolygon> toAddQueue = createClosestQueue(newPoint);
+		List<PointBD> ring = clipNewPolygon(newPolygon, trimmed);
+		updateNeighbours(newPolygon, trimmed);
 
-		// Add bisectors and trim neighbours until the polygon is complete or
-		// has run out of neighbours
-		while (!newPolygon.isCompleteWithoutEdges() && !toAddQueue.isEmpty()) {
-			VoronoiPolygon currentPolygon = toAddQueue.poll();
-			log.debug("\n\nConsidering {} in add polygon", currentPolygon);
+		this.updateState(VoronoiState.DONE_WITHOUT_BORDER);
+
+		newPolygon.setRing(ring);
+		this.updateState(VoronoiState.JOINING_WITH_BORDER);
 
-			// Get the bisector between newPoint and the current polygon, then
-			// get the intersection line
-			LineBD bisection = currentPolygon.getBisection(newPoint);
-			log.debug("Bisection: {}", bisection);
-			LineBD intersectingLine = currentPolygon.getIntersections(bisection);
-			log.debug("Intersecting line: {}", intersectingLine);
+		log.info("Final polygon: {}\n\n\n\n", newPolygon);
+		this.polygons.add(newPolygon);
+		addSite(newPoint);
 
-			// If there isn't an intersecting line, don't attempt to trim
-			if (intersectingLine == null) continue;
+		this.stateAddingPolygon = null;
 
-			this.stateBisectionLine = intersectingLine;
-			this.updateState(VoronoiState.GETTING_BISECTION);
+		this.updateState(VoronoiState.DONE);
+	}
 
+	/**
+	 * Clip the canvas down to the new polygon, with the bisectors of the
+	 * polygons it trimmed. This also gives the edges along the border. The
+	 * corners are then checked against the site index, as in
+	 * LloydRelaxation: a corner closer to another site means the walk missed
+	 * that polygon, so it is trimmed too and the ring clipped again.
+	 * 
+	 * @return the corners of the new polygon
+	 */
+	private List<PointBD> clipNewPolygon(VoronoiPolygon newPolygon, List<VoronoiPolygon> trimmed) {
+		PointBD newPoint = newPolygon.getCentre();
+		Set<VoronoiPolygon> clipped = Collections.newSetFromMap(new IdentityHashMap<VoronoiPolygon, Boolean>());
+		Deque<VoronoiPolygon> toClip = new ArrayDeque<>(trimmed);
+
+		List<PointBD> ring = boundary;
+		while (!toClip.isEmpty()) {
+			VoronoiPolygon poly = toClip.poll();
+			if (clipped.add(poly)) ring = ConvexClipper.clipToCloser(ring, newPoint, poly.getCentre());
+
+			if (toClip.isEmpty()) {
+				VoronoiPolygon missed = closerToCorner(ring, newPoint, clipped);
+				if (missed == null) break;
+
+				log.debug("The walk missed {}", missed.getCentre());
+				toClip.add(missed);
+				if (trimWithNewPolygon(missed, newPolygon)) trimmed.add(missed);
+			}
+		}
+
+		return ConvexClipper.removeRepeats(ring);
+	}
+
+	/**
+	 * Find a polygon, other than those already clipped with, whose centre is
+	 * closer to one of the corners of a ring than the new point is
+	 * 
+	 * @return the polygon, or null if every corner is closest to the new point
+	 */
+	private VoronoiPolygon closerToCorner(List<PointBD> ring, PointBD newPoint, Set<VoronoiPolygon> clipped) {
+		for (PointBD corner : ring) {
+			double x = corner.getXVal(), y = corner.getYVal();
+			int nearest = siteIndex.nearest(x, y);
+			VoronoiPolygon poly = polygons.get(nearest);
+			if (clipped.contains(poly)) continue;
+
+			double toNearest = distanceSqrd(poly.getCentre(), x, y);
+			if (toNearest < distanceSqrd(newPoint, x, y) * (1 - 1e-9)) return poly;
+		}
+		return null;
+	}
+
+	private static double distanceSqrd(PointBD p, double x, double y) {
+		double dx = p.getXVal() - x;
+		double dy = p.getYVal() - y;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Add a point to the triangulation, then rebuild its cell and the cells
+	 * of its new neighbours, which are the only ones to change. Their
+	 * neighbours are taken from the triangulation too.
+	 */
+	private void addToTriangulation(PointBD newPoint) {
+		VoronoiPolygon newPolygon = new VoronoiPolygon(newPoint, this);
+		this.stateAddingPolygon = newPolygon;
+
+		int near = polygons.isEmpty() ? -1 : siteIndex.nearest(newPoint.getXVal(), newPoint.getYVal());
+		int index = triangulation.insert(newPoint, near);
+		forgetCorners();
+
+		for (int neighbour : triangulation.getLastNeighbours()) {
+			VoronoiPolygon currentPolygon = polygons.get(neighbour);
+			this.stateTrimmingPolygon = currentPolygon;
+			this.updateState(VoronoiState.TRIMMING_BEFORE);
+
+			currentPolygon.setRing(triangulation.getCell(neighbour, boundary));
+			this.updateState(VoronoiState.TRIMMING_AFTER);
+		}
+
+		newPolygon.setRing(triangulation.getCell(index, boundary));
+		markChanged(newPolygon);
+		this.polygons.add(newPolygon);
+		addSite(newPoint);
+		neighboursFromTriangulation(index);
+		for (int neighbour : triangulation.getLastNeighbours()) {
+			neighboursFromTriangulation(neighbour);
+		}
+
+		this.stateAddingPolygon = null;
+
+		this.updateState(VoronoiState.DONE);
+	}
+
+	/**
+	 * Remove a point from the canvas. Its cell is shared out between its
+	 * neighbours, which are the only polygons worked out again. The last
+	 * polygon takes the removed polygon's place in the list.
+	 * 
+	 * @return false if the point wasn't on the canvas
+	 */
+	public synchronized boolean removePoint(PointBD point) {
+		int index = indexOf(point);
+		if (index < 0) return false;
+
+		nodeCount--;
+
+		VoronoiPolygon removed = polygons.get(index);
+		int last = polygons.size() - 1;
+		List<VoronoiPolygon> neighbours;
+
+		// The removed cell goes, and the last is drawn in a different order
+		markChanged(removed);
+		markChanged(polygons.get(last));
+
+		if (engine == Engine.DELAUNAY) {
+			// The last site takes the removed one's number, in the
+			// triangulation as in the list of polygons
+			triangulation.remove(index);
+			movePolygon(last, index);
+
+			neighbours = new ArrayList<>();
+			for (int neighbour : triangulation.getLastNeighbours()) {
+				VoronoiPolygon currentPolygon = polygons.get(neighbour);
+				this.stateTrimmingPolygon = currentPolygon;
+				this.updateState(VoronoiState.TRIMMING_BEFORE);
+
+				currentPolygon.setRing(triangulation.getCell(neighbour, boundary));
+				neighboursFromTriangulation(neighbour);
+				neighbours.add(currentPolygon);
+				this.updateState(VoronoiState.TRIMMING_AFTER);
+			}
+		} else {
+			neighbours = new ArrayList<>(removed.getNeighbours());
+			movePolygon(last, index);
+			growNeighbours(removed, neighbours);
+		}
+
+		forgetCorners();
+
+		log.info("Removed {}", point);
+		this.updateState(VoronoiState.DONE);
+		return true;
+	}
+
+	/**
+	 * Move every point to the centroid of its polygon a number of times
+	 * (Lloyd's relaxation). Each step works from the neighbours the polygons
+	 * had after the step before, rather than building the diagram again. The
+	 * polygons themselves are kept, so anything holding on to them, like the
+	 * colors they are drawn in, stays with them. Observers are only notified
+	 * at the end.
+	 */
+	public synchronized void relax(int iterations) {
+		int n = polygons.size();
+		if (n == 0) return;
+
+		Map<VoronoiPolygon, Integer> indexes = new IdentityHashMap<>();
+		for (int i = 0; i < n; i++) {
+			indexes.put(polygons.get(i), i);
+		}
+		List<PointBD> centres = new ArrayList<>(n);
+		int[][] adjacency = new int[n][];
+		for (int i = 0; i < n; i++) {
+			VoronoiPolygon poly = polygons.get(i);
+			centres.add(poly.getCentre());
+			List<VoronoiPolygon> polyNeighbours = poly.getNeighbours();
+			adjacency[i] = new int[polyNeighbours.size()];
+			for (int j = 0; j < polyNeighbours.size(); j++) {
+				adjacency[i][j] = indexes.get(polyNeighbours.get(j));
+			}
+		}
+
+		LloydRelaxation relaxation = new LloydRelaxation(centres, adjacency, boundary, getPool());
+		relaxation.run(iterations);
+
+		// Every polygon stays, with its centre moved and the cell and
+		// neighbours the relaxation worked out for it
+		List<PointBD> moved = relaxation.getSites();
+		sites.clear();
+		siteIndex.clear();
+		for (int i = 0; i < n; i++) {
+			VoronoiPolygon poly = polygons.get(i);
+			poly.moveCentre(moved.get(i));
+			poly.setRing(ConvexClipper.removeRepeats(relaxation.getCell(i)));
+			int[] relaxedNeighbours = relaxation.getNeighbours(i);
+			List<VoronoiPolygon> polyNeighbours = new ArrayList<>(relaxedNeighbours.length);
+			for (int neighbour : relaxedNeighbours) {
+				polyNeighbours.add(polygons.get(neighbour));
+			}
+			poly.setNeighbours(polyNeighbours);
+			addSite(moved.get(i));
+		}
+
+		// The triangulation can't move its sites, so it is built again from
+		// the relaxed ones in one go
+		if (engine == Engine.DELAUNAY) triangulation = new DelaunayTriangulation(boundary, moved);
+		forgetCorners();
+
+		log.info("Relaxed {} polygons {} times", n, iterations);
+		markAllChanged();
+		updateState(VoronoiState.DONE);
+	}
+
+	/**
+	 * Give each neighbour of a removed polygon its share of the removed cell.
+	 * Its new cell is only bounded by its old neighbours and the other
+	 * neighbours of the removed polygon, so only those bisectors are used.
+	 */
+	private void growNeighbours(VoronoiPolygon removed, List<VoronoiPolygon> neighbours) {
+		Set<VoronoiPolygon> sharing = Collections.newSetFromMap(new IdentityHashMap<VoronoiPolygon, Boolean>());
+		sharing.addAll(neighbours);
+
+		for (VoronoiPolygon currentPolygon : neighbours) {
 			this.stateTrimmingPolygon = currentPolygon;
 			this.updateState(VoronoiState.TRIMMING_BEFORE);
 
-			// Trim neighbour
-			currentPolygon.trim(intersectingLine);
+			currentPolygon.removeNeighbour(removed);
+			Set<VoronoiPolygon> bounding = Collections.newSetFromMap(new IdentityHashMap<VoronoiPolygon, Boolean>());
+			bounding.addAll(currentPolygon.getNeighbours());
+			bounding.addAll(sharing);
+			bounding.remove(currentPolygon);
+
+			List<PointBD> ring = boundary;
+			for (VoronoiPolygon other : bounding) {
+				ring = ConvexClipper.clipToCloser(ring, currentPolygon.getCentre(), other.getCentre());
+			}
+			currentPolygon.setRing(ConvexClipper.removeRepeats(ring));
 			currentPolygon.notifyModified();
+
+			// Neighbours of the removed polygon may now touch each other
+			rebuildNeighbours(currentPolygon, bounding);
 			this.updateState(VoronoiState.TRIMMING_AFTER);
+		}
 
-			// Add the bisector to this polygon
-			newPolygon.addEdge(intersectingLine);
+	}
 
-			log.debug("At the end of adding that polygon, we have: {}", newPolygon);
+	/**
+	 * Move the polygon at one index to another, over the top of the one that
+	 * was there, and shorten the list by one. The sites are moved to match.
+	 */
+	private void movePolygon(int from, int to) {
+		siteIndex.remove(from);
+		if (from != to) {
+			siteIndex.remove(to);
+			sites.set(to, sites.getX(from), sites.getY(from));
+			polygons.set(to, polygons.get(from));
 		}
+		sites.removeLast();
+		polygons.remove(from);
+		if (from != to) siteIndex.add(to);
+	}
 
-		this.updateState(VoronoiState.DONE_WITHOUT_BORDER);
+	/**
+	 * Find the index of the polygon with a centre at a point
+	 * 
+	 * @return the index, or -1 if there isn't one
+	 */
+	private int indexOf(PointBD point) {
+		for (int i : siteIndex.within(point.getXVal(), point.getYVal(), SAME_POINT_DISTANCE)) {
+			if (kernel.equal(polygons.get(i).getCentre(), point)) {
+				return i;
+			}
+		}
+		return -1;
+	}
 
-		// Connect the polygon to the border if required
-		newPolygon.joinWithBorder();
-		this.updateState(VoronoiState.JOINING_WITH_BORDER);
+	/**
+	 * Trim a polygon with its bisection with a new polygon, and add the
+	 * bisection to the new polygon
+	 * 
+	 * @return false if the bisection doesn't cut the polygon
+	 */
+	private boolean trimWithNewPolygon(VoronoiPolygon currentPolygon, VoronoiPolygon newPolygon) {
+		log.debug("\n\nConsidering {} in add polygon", currentPolygon);
 
-		log.info("Final polygon: {}\n\n\n\n", newPolygon);
-		this.polygons.add(newPolygon);
+		// Get the part of the bisector between newPoint and the current
+		// polygon which crosses it
+		LineBD intersectingLine = currentPolygon.getCut(newPolygon.getCentre());
+		log.debug("Intersecting line: {}", intersectingLine);
 
-		this.stateAddingPolygon = null;
+		// If there isn't an intersecting line, don't attempt to trim
+		if (intersectingLine == null) return false;
 
-		this.updateState(VoronoiState.DONE);
+		this.stateBisectionLine = intersectingLine;
+		this.updateState(VoronoiState.GETTING_BISECTION);
+
+		this.stateTrimmingPolygon = currentPolygon;
+		this.updateState(VoronoiState.TRIMMING_BEFORE);
+
+		// Trim neighbour
+		currentPolygon.trim(intersectingLine);
+		currentPolygon.notifyModified();
+		this.updateState(VoronoiState.TRIMMING_AFTER);
+
+		// Add the bisector to this polygon
+		newPolygon.addEdge(intersectingLine);
+
+		log.debug("At the end of adding that polygon, we have: {}", newPolygon);
+		return true;
 	}
 
 	/**
-	 * Check whether a point is already on the canvas
+	 * Find the polygon containing a point. The site index gives the closest
+	 * centre, then the walk across neighbours settles any ties the kernel
+	 * sees differently.
 	 */
-	private boolean hasPolygon(PointBD newPoint) {
-		for (int i = 0; i < polygons.size(); i++) {
-			if (polygons.get(i).getCentre().equals(newPoint)) {
-				return true;
+	private VoronoiPolygon findContaining(PointBD p) {
+		VoronoiPolygon current = polygons.get(siteIndex.nearest(p.getXVal(), p.getYVal()));
+		boolean moved = true;
+		while (moved) {
+			moved = false;
+			for (VoronoiPolygon neighbour : current.getNeighbours()) {
+				if (kernel.compareDistances(p, neighbour.getCentre(), current.getCentre()) < 0) {
+					current = neighbour;
+					moved = true;
+					break;
+				}
 			}
 		}
-		return false;
+		return current;
+	}
+
+	/**
+	 * Work out the neighbours of the polygons the new polygon trimmed again,
+	 * from the sides they have now. The new polygon gets its neighbours
+	 * along with them.
+	 */
+	private void updateNeighbours(VoronoiPolygon newPolygon, List<VoronoiPolygon> trimmed) {
+		for (VoronoiPolygon poly : trimmed) {
+			List<VoronoiPolygon> candidates = new ArrayList<>(poly.getNeighbours());
+			candidates.add(newPolygon);
+			rebuildNeighbours(poly, candidates);
+		}
+	}
+
+	/**
+	 * Work out the neighbours of a polygon from the sides of its cell. Each
+	 * side not along the border is on the bisection with the polygon across
+	 * it, which is one of the candidates. Both polygons' lists are updated.
+	 */
+	private void rebuildNeighbours(VoronoiPolygon poly, Collection<VoronoiPolygon> candidates) {
+		Set<VoronoiPolygon> touching = Collections.newSetFromMap(new IdentityHashMap<VoronoiPolygon, Boolean>());
+		List<PointBD> corners = poly.getCorners();
+		for (int i = 0; i < corners.size(); i++) {
+			PointBD p1 = corners.get(i);
+			PointBD p2 = corners.get((i + 1) % corners.size());
+			if (ConvexClipper.close(p1, p2)) continue;
+
+			VoronoiPolygon across = null;
+			double closest = SIDE_DISTANCE;
+			for (VoronoiPolygon other : candidates) {
+				if (other == poly) continue;
+				double distance = Math.max(fromBisection(poly, other, p1), fromBisection(poly, other, p2));
+				if (distance < closest) {
+					closest = distance;
+					across = other;
+				}
+			}
+			if (across != null) touching.add(across);
+		}
+
+		for (VoronoiPolygon old : new ArrayList<>(poly.getNeighbours())) {
+			if (!touching.remove(old)) {
+				poly.removeNeighbour(old);
+				old.removeNeighbour(poly);
+			}
+		}
+		for (VoronoiPolygon other : touching) {
+			poly.addNeighbour(other);
+			other.addNeighbour(poly);
+		}
+	}
+
+	/**
+	 * How far a point is from the bisection between the centres of two
+	 * polygons
+	 */
+	private static double fromBisection(VoronoiPolygon poly, VoronoiPolygon other, PointBD p) {
+		double dx = other.getCentre().getXVal() - poly.getCentre().getXVal();
+		double dy = other.getCentre().getYVal() - poly.getCentre().getYVal();
+		double midX = (poly.getCentre().getXVal() + other.getCentre().getXVal()) / 2;
+		double midY = (poly.getCentre().getYVal() + other.getCentre().getYVal()) / 2;
+		return Math.abs((p.getXVal() - midX) * dx + (p.getYVal() - midY) * dy) / Math.sqrt(dx * dx + dy * dy);
+	}
+
+	/**
+	 * Forget which polygon is closest to each corner, so it is worked out
+	 * again when next asked for
+	 */
+	private void forgetCorners() {
+		topLeft = null;
+		topRight = null;
+		bottomLeft = null;
+		bottomRIght = null;
+	}
+
+	/**
+	 * Check whether a point is already on the canvas
+	 */
+	private boolean hasPolygon(PointBD newPoint) {
+		// Only points which are nearby need comparing with the kernel
+		return indexOf(newPoint) >= 0;
 	}
 
 	/**
@@ -188,33 +733,33 @@ public class Canvas extends Observable {
 	private void addFirstPoint(PointBD p) {
 
 		VoronoiPolygon poly = new VoronoiPolygon(p, this);
-		poly.addEdge(new LineBD(width, MarginedBigDecimal.ZERO, width, height));
-		poly.addEdge(new LineBD(MarginedBigDecimal.ZERO, MarginedBigDecimal.ZERO, width, MarginedBigDecimal.ZERO));
-		poly.addEdge(new LineBD(MarginedBigDecimal.ZERO, MarginedBigDecimal.ZERO, MarginedBigDecimal.ZERO, height));
-		poly.addEdge(new LineBD(MarginedBigDecimal.ZERO, height, width, height));
+		poly.setRing(boundary);
 
 		polygons.add(poly);
-
-		setTopLeft(poly);
-		setTopRight(poly);
-		setBottomLeft(poly);
-		setBottomRight(poly);
-
+		addSite(p);
+		forgetCorners();
+		markAllChanged();
 	}
 
 	/**
-	 * Create a new queue of polygons based on how close they are to a PointBD,
-	 * p. Index 0 should be the closest, Index 1 the second closest etc.
+	 * Create a new queue of polygon indexes based on how close they are to a
+	 * PointBD, p. The head of the queue is the closest, then the second
+	 * closest etc. The distances are all worked out once, from the site
+	 * store. Only used if walking across neighbours fails.
 	 */
-	private Queue<VoronoiPolygon> createClosestQueue(final PointBD p) {
-		Queue<VoronoiPolygon> queue = new PriorityQueue<>(new Comparator<VoronoiPolygon>() {
+	private Queue<Integer> createClosestQueue(final PointBD p) {
+		final double[] distances = sites.distancesSqrd(p.getXVal(), p.getYVal());
+
+		Queue<Integer> queue = new PriorityQueue<>(Math.max(1, distances.length), new Comparator<Integer>() {
 			@Override
-			public int compare(VoronoiPolygon p1, VoronoiPolygon p2) {
-				return (int) p.getDistanceSqrd(p1.getCentre()).subtract(p.getDistanceSqrd(p2.getCentre())).value();
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(distances[i1], distances[i2]);
 			}
 		});
 
-		queue.addAll(this.polygons);
+		for (int i = 0; i < distances.length; i++) {
+			queue.add(i);
+		}
 
 		return queue;
 	}
@@ -249,9 +794,11 @@ public class Canvas extends Observable {
 	private void fillWithRandom(int amount) {
 		if (testing) return;
 
+		List<PointBD> toAdd = new ArrayList<>(amount);
 		for (int i = 0; i < amount; i++) {
-			addPoint(new PointBD(gen.nextInt(width.intValue()), gen.nextInt(height.intValue())));
+			toAdd.add(new PointBD(gen.nextInt(width.intValue()), gen.nextInt(height.intValue())));
 		}
+		addGenerated(toAdd);
 	}
 
 	/**
@@ -264,6 +811,7 @@ public class Canvas extends Observable {
 		int h = height.intValue();
 		int y = 0;
 		ArrayList<PointBD> hexPoints = new ArrayList<>();
+		List<PointBD> toAdd = new ArrayList<>(amount);
 		if (amount < 26) {
 			for (int i = 0; i < amount; i++) {
 				if (y % 2 == 0) {
@@ -275,7 +823,7 @@ public class Canvas extends Observable {
 			}
 			for (int i = 0; i < amount; i++) {
 				int randomNext = gen.nextInt(hexPoints.size());
-				addPoint(hexPoints.get(randomNext));
+				toAdd.add(hexPoints.get(randomNext));
 				hexPoints.remove(randomNext);
 			}
 		} else {
@@ -289,10 +837,11 @@ public class Canvas extends Observable {
 			}
 			for (int i = 0; i < amount; i++) {
 				int randomNext = gen.nextInt(hexPoints.size());
-				addPoint(hexPoints.get(randomNext));
+				toAdd.add(hexPoints.get(randomNext));
 				hexPoints.remove(randomNext);
 			}
 		}
+		addGenerated(toAdd);
 	}
 
 	/**
@@ -306,6 +855,7 @@ public class Canvas extends Observable {
 		int y = 0;
 
 		ArrayList<PointBD> squarePoints = new ArrayList<>();
+		List<PointBD> toAdd = new ArrayList<>(amount);
 		if (amount < 26) {
 			for (int i = 0; i < amount; i++) {
 				squarePoints.add(new PointBD((w / 10) + (w / 5) * (i % 5), (h / 10) + (y * h / 5)));
@@ -313,7 +863,7 @@ public class Canvas extends Observable {
 			}
 			for (int i = 0; i < amount; i++) {
 				int randomNext = gen.nextInt(squarePoints.size());
-				addPoint(squarePoints.get(randomNext));
+				toAdd.add(squarePoints.get(randomNext));
 				squarePoints.remove(randomNext);
 			}
 		} else {
@@ -323,28 +873,211 @@ public class Canvas extends Observable {
 			}
 			for (int i = 0; i < amount; i++) {
 				int randomNext = gen.nextInt(squarePoints.size());
-				addPoint(squarePoints.get(randomNext));
+				toAdd.add(squarePoints.get(randomNext));
 				squarePoints.remove(randomNext);
 			}
 		}
+		addGenerated(toAdd);
+	}
+
+	/**
+	 * Add generated points with whichever engine the canvas was created with.
+	 * If each step is being shown, they are added one at a time in the order
+	 * given.
+	 */
+	private void addGenerated(List<PointBD> toAdd) {
+		if (isManual || engine.isBatch()) {
+			addPoints(toAdd);
+		} else {
+			for (PointBD p : toAdd) {
+				addPoint(p);
+			}
+		}
+	}
+
+	/**
+	 * Add a batch of points. They are added in a biased randomised insertion
+	 * order, so each point is near the one before. Observers are only
+	 * notified once, when the whole batch is done.
+	 */
+	public synchronized void addPoints(Collection<PointBD> newPoints) {
+		if (engine.isBatch()) {
+			buildAll(new ArrayList<>(newPoints));
+			return;
+		}
+
+		batching = true;
+		try {
+			for (PointBD p : SpatialOrder.brio(newPoints, width.value(), height.value(), gen)) {
+				addPoint(p);
+			}
+		} finally {
+			batching = false;
+		}
+		markAllChanged();
+		updateState(VoronoiState.DONE);
+	}
+
+	/**
+	 * Rebuild the whole diagram from the points already on the canvas and
+	 * some new ones, using the batch engine. There is only one state change,
+	 * to DONE, at the end.
+	 */
+	private synchronized void buildAll(List<PointBD> newPoints) {
+		List<PointBD> all = new ArrayList<>(polygons.size() + newPoints.size());
+		PointSet seen = new PointSet(kernel);
+		for (VoronoiPolygon poly : polygons) {
+			seen.add(poly.getCentre());
+			all.add(poly.getCentre());
+		}
+		int before = all.size();
+		for (PointBD p : newPoints) {
+			if (seen.add(p)) all.add(p);
+		}
+		if (all.isEmpty()) return;
+
+		DiagramBuilder builder = engine == Engine.PARALLEL_SWEEP ? new ParallelDiagramBuilder(getPool()) : new FortuneSweep();
+		List<List<PointBD>> cells = builder.buildCells(all, boundary);
+
+		List<VoronoiPolygon> built = new ArrayList<>(all.size());
+		sites.clear();
+		siteIndex.clear();
+		for (int i = 0; i < all.size(); i++) {
+			VoronoiPolygon poly = new VoronoiPolygon(all.get(i), this);
+			poly.setRing(cells.get(i));
+			built.add(poly);
+			addSite(all.get(i));
+		}
+
+		// The builders work out each corner the same way for every cell
+		// round it, so joining the cells up in a mesh finds their neighbours
+		HalfEdgeMesh mesh = new HalfEdgeMesh();
+		for (int i = 0; i < all.size(); i++) {
+			mesh.setCell(i, cells.get(i));
+		}
+		for (int i = 0; i < all.size(); i++) {
+			for (int neighbour : mesh.getNeighbours(i)) {
+				built.get(i).addNeighbour(built.get(neighbour));
+			}
+		}
+		polygons.clear();
+		polygons.addAll(built);
+		forgetCorners();
+
+		nodeCount += all.size() - before;
+
+		log.info("Built {} polygons in one go", all.size());
+		markAllChanged();
+		updateState(VoronoiState.DONE);
+	}
+
+	/**
+	 * Work out the neighbours of the polygon at an index, from the sites next
+	 * to it in the triangulation. Sites next to each other outside the canvas
+	 * don't share a side inside it, so the sides are checked as they are for
+	 * the incremental engine.
+	 */
+	private void neighboursFromTriangulation(int index) {
+		int[] adjacent = triangulation.getNeighbours(index);
+		List<VoronoiPolygon> candidates = new ArrayList<>(adjacent.length);
+		for (int neighbour : adjacent) {
+			candidates.add(polygons.get(neighbour));
+		}
+		rebuildNeighbours(polygons.get(index), candidates);
+	}
+
+	/**
+	 * Find the polygon whose centre is closest to a point
+	 */
+	private VoronoiPolygon closestTo(PointBD p) {
+		return polygons.get(siteIndex.nearest(p.getXVal(), p.getYVal()));
+	}
+
+	/**
+	 * Add the centre of a new polygon to the site store and its index
+	 */
+	private void addSite(PointBD p) {
+		siteIndex.add(sites.add(p));
 	}
 
 	/**
 	 * Update the state of the canvas - has potential to hold until next called.
+	 * Observers are only told about the state if the notification policy
+	 * publishes it. They are given the area of the canvas which has changed
+	 * since they were last told, as a Rectangle, or null if anything could
+	 * have changed.
 	 * 
 	 * @param newState
 	 *            the state to switch to
 	 */
 	private void updateState(VoronoiState newState) {
-		log.info("Changing state to {}", newState);
-
 		this.currentState = newState;
+		if (batching || notifications == NotificationPolicy.NONE) return;
+
+		// Only the objects of each state change: the polygon being trimmed,
+		// the one being added and the bisection
+		Rectangle stateArea = getStateArea();
+		changedArea = union(changedArea, stateArea);
+		if (!notifications.publishes(newState)) return;
 
+		Rectangle changed = allChanged ? null : union(changedArea, lastStateArea);
+		changedArea = null;
+		allChanged = false;
+		lastStateArea = stateArea;
+
+		log.info("Changing state to {}", newState);
+		if (stepLog != null) stepLog.record(this);
 		setChanged();
-		notifyObservers();
+		notifyObservers(changed);
 		if (testing) return;
-		if (!isManual) this.holder.hold();
+		if (!isManual && stepper != null) stepper.hold(newState);
+
+	}
+
+	/**
+	 * Anything could have changed, such as after a batch, so the next state
+	 * observers are told about covers the whole canvas
+	 */
+	private void markAllChanged() {
+		allChanged = true;
+	}
+
+	/**
+	 * A polygon has changed outside of the states which show it, so tell
+	 * observers about its area with the next state
+	 */
+	private void markChanged(VoronoiPolygon poly) {
+		if (batching || notifications == NotificationPolicy.NONE) return;
+		changedArea = union(changedArea, areaOf(poly));
+	}
+
+	/**
+	 * @return the area covered by the objects shown in the current state, or
+	 *         null if there aren't any
+	 */
+	private Rectangle getStateArea() {
+		Rectangle area = null;
+		if (stateAddingPoint != null) area = union(area, new Rectangle((int) stateAddingPoint.getXVal(), (int) stateAddingPoint.getYVal(), 0, 0));
+		if (stateAddingPolygon != null) area = union(area, areaOf(stateAddingPolygon));
+		boolean trimming = currentState == VoronoiState.TRIMMING_BEFORE || currentState == VoronoiState.TRIMMING_AFTER;
+		if (trimming && stateTrimmingPolygon != null) area = union(area, areaOf(stateTrimmingPolygon));
+		if (currentState == VoronoiState.GETTING_BISECTION && stateBisectionLine != null) {
+			Rectangle line = new Rectangle((int) stateBisectionLine.getP1().getXVal(), (int) stateBisectionLine.getP1().getYVal(), 0, 0);
+			line.add((int) stateBisectionLine.getP2().getXVal(), (int) stateBisectionLine.getP2().getYVal());
+			area = union(area, line);
+		}
+		return area;
+	}
 
+	private static Rectangle areaOf(VoronoiPolygon poly) {
+		Polygon javaPolygon = poly.getJavaPolygon();
+		return javaPolygon.npoints == 0 ? null : javaPolygon.getBounds();
+	}
+
+	private static Rectangle union(Rectangle a, Rectangle b) {
+		if (a == null) return b == null ? null : new Rectangle(b);
+		if (b != null) a.add(b);
+		return a;
 	}
 
 	// ---- GETTERS AND SETTERS ----
@@ -353,6 +1086,10 @@ public class Canvas extends Observable {
 		return polygons;
 	}
 
+	public PointStore getSites() {
+		return sites;
+	}
+
 	public VoronoiState getState() {
 		return currentState;
 	}
@@ -365,6 +1102,22 @@ public class Canvas extends Observable {
 		return stateBisectionLine;
 	}
 
+	public NumericKernel getKernel() {
+		return kernel;
+	}
+
+	public Engine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * @return the triangulation of the points, or null if the canvas isn't
+	 *         using the DELAUNAY engine
+	 */
+	public DelaunayTriangulation getTriangulation() {
+		return triangulation;
+	}
+
 	public MarginedBigDecimal getWidth() {
 		return width;
 	}
@@ -381,11 +1134,16 @@ public class Canvas extends Observable {
 		return stateAddingPolygon;
 	}
 
+	public int getNodeCount() {
+		return nodeCount;
+	}
+
 	public int getNumNodes() {
 		return numNodes;
 	}
 
 	public VoronoiPolygon getTopLeft() {
+		if (topLeft == null && !polygons.isEmpty()) topLeft = closestTo(corners[0]);
 		return topLeft;
 	}
 
@@ -394,6 +1152,7 @@ public class Canvas extends Observable {
 	}
 
 	public VoronoiPolygon getTopRight() {
+		if (topRight == null && !polygons.isEmpty()) topRight = closestTo(corners[1]);
 		return topRight;
 	}
 
@@ -402,6 +1161,7 @@ public class Canvas extends Observable {
 	}
 
 	public VoronoiPolygon getBottomLeft() {
+		if (bottomLeft == null && !polygons.isEmpty()) bottomLeft = closestTo(corners[2]);
 		return bottomLeft;
 	}
 
@@ -410,6 +1170,7 @@ public class Canvas extends Observable {
 	}
 
 	public VoronoiPolygon getBottomRight() {
+		if (bottomRIght == null && !polygons.isEmpty()) bottomRIght = closestTo(corners[3]);
 		return bottomRIght;
 	}
 
@@ -429,6 +1190,45 @@ public class Canvas extends Observable {
 		isManual = n;
 	}
 
+	public NotificationPolicy getNotificationPolicy() {
+		return notifications;
+	}
+
+	public void setNotificationPolicy(NotificationPolicy notifications) {
+		this.notifications = notifications;
+		markAllChanged();
+	}
+
+	public StepLog getStepLog() {
+		return stepLog;
+	}
+
+	/**
+	 * Record each state observers are told about from now on, or stop
+	 * recording if the log is null
+	 */
+	public void setStepLog(StepLog stepLog) {
+		this.stepLog = stepLog;
+	}
+
+	/**
+	 * Run the PARALLEL_SWEEP engine and relaxing on a given pool, instead of
+	 * the one shared by every canvas
+	 */
+	public synchronized void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	private ForkJoinPool getPool() {
+		if (pool == null) pool = sharedPool();
+		return pool;
+	}
+
+	private static synchronized ForkJoinPool sharedPool() {
+		if (sharedPool == null) sharedPool = new ForkJoinPool();
+		return sharedPool;
+	}
+
 	public void setTesting(boolean testing) {
 		this.testing = testing;
 	}
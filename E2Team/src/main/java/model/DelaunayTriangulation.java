@@ -0,0 +1,593 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import model.math.ConvexClipper;
+import model.math.PointBD;
+import model.math.PointStore;
+import model.math.Predicates;
+import model.math.SpatialOrder;
+
+/**
+ * An incremental Delaunay triangulation (Bowyer-Watson). Each new site is
+ * found by walking from a nearby triangle, then every triangle whose
+ * circumcircle holds the site is removed and the hole is filled with a fan
+ * of triangles round the site.
+ *
+ * The Voronoi cell of a site is its dual: the circumcentres of the triangles
+ * round it, in order. The triangulation starts with one huge triangle, far
+ * enough out that its corners never own any of the boundary.
+ *
+ * Sites are numbered from 0 in the order they are inserted. When a site is
+ * removed, the last site takes its number.
+ *
+ * @author mxw449
+ */
+public class DelaunayTriangulation {
+
+	/** Marks a missing neighbour, outside the super triangle */
+	private static final int NONE = -1;
+
+	/** The first three points are the corners of the super triangle */
+	private static final int SUPER = 3;
+
+	/** All the points, including the super triangle corners */
+	private final PointStore points = new PointStore();
+	private final List<PointBD> sites = new ArrayList<>();
+
+	/**
+	 * The three corners of each triangle anticlockwise, and the neighbour
+	 * opposite each corner. Removed triangles go on a free list to be reused.
+	 */
+	private int[] corners = new int[3 * 64];
+	private int[] neighbours = new int[3 * 64];
+	private int numTriangles;
+	private int[] free = new int[16];
+	private int numFree;
+
+	/** Which insertion last visited each triangle, to avoid clearing flags */
+	private int[] visited = new int[64];
+	private int visit;
+
+	/** A triangle touching each point */
+	private int[] pointTriangle = new int[64];
+
+	/** The triangle most recently made, where walks start from */
+	private int lastTriangle;
+
+	/** The neighbours of the most recently inserted or removed site */
+	private int[] lastNeighbours = new int[0];
+
+	/** Used to pick sample points to start walks from */
+	private final Random gen = new Random(0);
+
+	/**
+	 * Create an empty triangulation which sites can be added to anywhere
+	 * near the boundary
+	 */
+	public DelaunayTriangulation(List<PointBD> boundary) {
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (PointBD p : boundary) {
+			minX = Math.min(minX, p.getXVal());
+			minY = Math.min(minY, p.getYVal());
+			maxX = Math.max(maxX, p.getXVal());
+			maxY = Math.max(maxY, p.getYVal());
+		}
+		double midX = (minX + maxX) / 2;
+		double midY = (minY + maxY) / 2;
+		double far = 50 * Math.max(1, Math.max(maxX - minX, maxY - minY));
+
+		// Anticlockwise in standard coordinates
+		points.add(midX - far, midY - far);
+		points.add(midX + far, midY - far);
+		points.add(midX, midY + far);
+		lastTriangle = newTriangle(0, 1, 2);
+		for (int i = 0; i < SUPER; i++) {
+			pointTriangle[i] = lastTriangle;
+		}
+	}
+
+	/**
+	 * Triangulate a list of sites in one go. They are inserted in order along
+	 * a Hilbert curve, so each one is found by a short walk from the one
+	 * before, then numbered in the order they were given.
+	 *
+	 * @throws IllegalArgumentException
+	 *             if a site is outside the super triangle
+	 */
+	public DelaunayTriangulation(List<PointBD> boundary, List<PointBD> sites) {
+		this(boundary);
+		double maxX = 0, maxY = 0;
+		for (PointBD p : boundary) {
+			maxX = Math.max(maxX, p.getXVal());
+			maxY = Math.max(maxY, p.getYVal());
+		}
+
+		int[] order = SpatialOrder.hilbertOrder(sites, maxX, maxY);
+		for (int k = 0; k < order.length; k++) {
+			insert(sites.get(order[k]), k - 1);
+		}
+		renumber(order);
+	}
+
+	/**
+	 * Give the sites new numbers, after inserting them out of order
+	 *
+	 * @param order
+	 *            the number each site is to have, in the order they were
+	 *            inserted
+	 */
+	private void renumber(int[] order) {
+		int n = points.size();
+		int[] number = new int[n];
+		for (int p = 0; p < SUPER; p++) {
+			number[p] = p;
+		}
+		for (int k = 0; k < order.length; k++) {
+			number[SUPER + k] = SUPER + order[k];
+		}
+
+		for (int t = 0; t < numTriangles; t++) {
+			if (corners[3 * t] == NONE) continue;
+			for (int i = 0; i < 3; i++) {
+				corners[3 * t + i] = number[corners[3 * t + i]];
+			}
+		}
+
+		double[] xs = new double[n], ys = new double[n];
+		int[] touching = new int[n];
+		for (int p = 0; p < n; p++) {
+			xs[number[p]] = points.getX(p);
+			ys[number[p]] = points.getY(p);
+			touching[number[p]] = pointTriangle[p];
+		}
+		PointBD[] renumbered = new PointBD[sites.size()];
+		for (int k = 0; k < order.length; k++) {
+			renumbered[order[k]] = sites.get(k);
+		}
+		for (int p = 0; p < n; p++) {
+			points.set(p, xs[p], ys[p]);
+			pointTriangle[p] = touching[p];
+		}
+		for (int s = 0; s < renumbered.length; s++) {
+			sites.set(s, renumbered[s]);
+		}
+		lastNeighbours = new int[0];
+	}
+
+	/**
+	 * Add a site to the triangulation. The site must not already be in it.
+	 *
+	 * @return the index of the new site
+	 * @throws IllegalArgumentException
+	 *             if the site is outside the super triangle
+	 */
+	public int insert(PointBD site) {
+		return insert(site, NONE);
+	}
+
+	/**
+	 * Add a site to the triangulation, starting the search for where it goes
+	 * from a site known to be near it
+	 *
+	 * @param near
+	 *            the index of a nearby site, or -1 if there isn't one
+	 * @return the index of the new site
+	 * @throws IllegalArgumentException
+	 *             if the site is outside the super triangle
+	 */
+	public int insert(PointBD site, int near) {
+		double x = site.getXVal(), y = site.getYVal();
+		int containing = near == NONE ? locate(x, y) : walk(pointTriangle[SUPER + near], x, y);
+		int p = points.add(x, y);
+		sites.add(site);
+		if (p >= pointTriangle.length) pointTriangle = Arrays.copyOf(pointTriangle, 2 * p);
+
+		// Find the triangles whose circumcircle contains the new point. They
+		// are all connected to the one containing it.
+		visit++;
+		int[] cavity = new int[16];
+		int cavitySize = 0;
+		cavity[cavitySize++] = containing;
+		visited[containing] = visit;
+		for (int c = 0; c < cavitySize; c++) {
+			int t = cavity[c];
+			for (int i = 0; i < 3; i++) {
+				int n = neighbours[3 * t + i];
+				if (n == NONE || visited[n] == visit || !inCircumcircle(n, x, y)) continue;
+				visited[n] = visit;
+				if (cavitySize == cavity.length) cavity = Arrays.copyOf(cavity, 2 * cavitySize);
+				cavity[cavitySize++] = n;
+			}
+		}
+
+		// Each edge a-b round the cavity becomes a triangle a-b-p. Keep the
+		// triangle outside the edge to join it to.
+		int size = cavitySize + 2;
+		int[] fanA = new int[size], fanB = new int[size], outside = new int[size];
+		int fanSize = 0;
+		for (int c = 0; c < cavitySize; c++) {
+			int t = cavity[c];
+			for (int i = 0; i < 3; i++) {
+				int n = neighbours[3 * t + i];
+				if (n != NONE && visited[n] == visit) continue;
+				fanA[fanSize] = corners[3 * t + (i + 1) % 3];
+				fanB[fanSize] = corners[3 * t + (i + 2) % 3];
+				outside[fanSize] = n;
+				fanSize++;
+			}
+		}
+
+		for (int c = 0; c < cavitySize; c++) {
+			release(cavity[c]);
+		}
+
+		int[] made = new int[fanSize];
+		for (int f = 0; f < fanSize; f++) {
+			int t = newTriangle(fanA[f], fanB[f], p);
+			made[f] = t;
+			neighbours[3 * t + 2] = outside[f];
+			if (outside[f] != NONE) setNeighbourAcross(outside[f], fanA[f], fanB[f], t);
+			pointTriangle[fanA[f]] = t;
+			pointTriangle[fanB[f]] = t;
+		}
+
+		// Join the fan up. The triangle after a-b-p is the one starting at b.
+		int[] startingAt = new int[fanSize];
+		for (int f = 0; f < fanSize; f++) {
+			startingAt[f] = fanA[f];
+		}
+		for (int f = 0; f < fanSize; f++) {
+			for (int g = 0; g < fanSize; g++) {
+				if (startingAt[g] == fanB[f]) {
+					neighbours[3 * made[f]] = made[g];
+					neighbours[3 * made[g] + 1] = made[f];
+					break;
+				}
+			}
+		}
+
+		pointTriangle[p] = made[0];
+		lastTriangle = made[0];
+
+		int[] newNeighbours = new int[fanSize];
+		int count = 0;
+		for (int f = 0; f < fanSize; f++) {
+			if (fanA[f] >= SUPER) newNeighbours[count++] = fanA[f] - SUPER;
+		}
+		lastNeighbours = Arrays.copyOf(newNeighbours, count);
+
+		return p - SUPER;
+	}
+
+	/**
+	 * Remove a site from the triangulation. The triangles round it are
+	 * removed, and the hole is filled by repeatedly cutting off a corner
+	 * whose circumcircle holds none of the others. The last site is then
+	 * given the removed site's number.
+	 */
+	public void remove(int site) {
+		int p = site + SUPER;
+
+		// Find the triangles round the site. For each, keep the edge away
+		// from the site and the triangle on the other side of it.
+		int[] holeA = new int[8], holeB = new int[8], holeOutside = new int[8];
+		int holeSize = 0;
+		int start = pointTriangle[p];
+		int t = start;
+		do {
+			int i = cornerIndex(t, p);
+			if (holeSize == holeA.length) {
+				holeA = Arrays.copyOf(holeA, 2 * holeSize);
+				holeB = Arrays.copyOf(holeB, 2 * holeSize);
+				holeOutside = Arrays.copyOf(holeOutside, 2 * holeSize);
+			}
+			holeA[holeSize] = corners[3 * t + (i + 1) % 3];
+			holeB[holeSize] = corners[3 * t + (i + 2) % 3];
+			holeOutside[holeSize] = neighbours[3 * t + i];
+			holeSize++;
+			int following = neighbours[3 * t + (i + 2) % 3];
+			release(t);
+			t = following;
+		} while (t != start);
+
+		// Put the edges in order anticlockwise round the hole
+		int[] ring = new int[holeSize], outside = new int[holeSize];
+		ring[0] = holeA[0];
+		outside[0] = holeOutside[0];
+		for (int k = 1; k < holeSize; k++) {
+			int following = holeB[indexOf(holeA, holeSize, ring[k - 1])];
+			ring[k] = following;
+			outside[k] = holeOutside[indexOf(holeA, holeSize, following)];
+		}
+
+		int size = holeSize;
+		int made = NONE;
+		while (size > 3) {
+			int ear = findEar(ring, size);
+			int a = ring[ear], b = ring[(ear + 1) % size], c = ring[(ear + 2) % size];
+			made = newTriangle(a, b, c);
+			link(made, 2, outside[ear], a, b);
+			link(made, 0, outside[(ear + 1) % size], b, c);
+			pointTriangle[a] = made;
+			pointTriangle[b] = made;
+			pointTriangle[c] = made;
+
+			// The new edge a-c replaces a-b-c round the hole
+			outside[ear] = made;
+			int removed = (ear + 1) % size;
+			for (int k = removed; k + 1 < size; k++) {
+				ring[k] = ring[k + 1];
+				outside[k] = outside[k + 1];
+			}
+			size--;
+		}
+		made = newTriangle(ring[0], ring[1], ring[2]);
+		for (int k = 0; k < 3; k++) {
+			link(made, (k + 2) % 3, outside[k], ring[k], ring[(k + 1) % 3]);
+			pointTriangle[ring[k]] = made;
+		}
+		lastTriangle = made;
+
+		// The last site takes the removed site's number
+		int last = points.size() - 1;
+		if (last != p) {
+			int lastStart = pointTriangle[last];
+			t = lastStart;
+			do {
+				int i = cornerIndex(t, last);
+				corners[3 * t + i] = p;
+				t = neighbours[3 * t + (i + 2) % 3];
+			} while (t != lastStart);
+			points.set(p, points.getX(last), points.getY(last));
+			pointTriangle[p] = lastStart;
+			sites.set(site, sites.get(sites.size() - 1));
+		}
+		points.removeLast();
+		sites.remove(sites.size() - 1);
+
+		int[] oldNeighbours = new int[holeSize];
+		int count = 0;
+		for (int k = 0; k < holeSize; k++) {
+			int corner = holeA[k] == last ? p : holeA[k];
+			if (corner >= SUPER) oldNeighbours[count++] = corner - SUPER;
+		}
+		lastNeighbours = Arrays.copyOf(oldNeighbours, count);
+	}
+
+	/**
+	 * The sites next to the most recently inserted or removed one. These are
+	 * the only cells which changed.
+	 */
+	public int[] getLastNeighbours() {
+		return lastNeighbours;
+	}
+
+	/**
+	 * The sites which share a Delaunay edge (and so a Voronoi edge) with a
+	 * site
+	 */
+	public int[] getNeighbours(int site) {
+		int p = site + SUPER;
+		int[] result = new int[8];
+		int count = 0;
+
+		int start = pointTriangle[p];
+		int t = start;
+		do {
+			int i = cornerIndex(t, p);
+			int next = corners[3 * t + (i + 1) % 3];
+			if (next >= SUPER) {
+				if (count == result.length) result = Arrays.copyOf(result, 2 * count);
+				result[count++] = next - SUPER;
+			}
+			t = neighbours[3 * t + (i + 2) % 3];
+		} while (t != start);
+
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * The Voronoi cell of a site, clipped to a convex boundary
+	 *
+	 * @return the corners of the cell in order
+	 */
+	public List<PointBD> getCell(int site, List<PointBD> boundary) {
+		int p = site + SUPER;
+		List<PointBD> ring = new ArrayList<>();
+
+		int start = pointTriangle[p];
+		int t = start;
+		do {
+			ring.add(circumcentre(t));
+			int i = cornerIndex(t, p);
+			t = neighbours[3 * t + (i + 2) % 3];
+		} while (t != start);
+
+		return ConvexClipper.removeRepeats(ConvexClipper.clip(ConvexClipper.removeRepeats(ring), boundary));
+	}
+
+	/**
+	 * The triangles which only have sites as corners, as triples of site
+	 * indexes
+	 */
+	public List<int[]> getTriangles() {
+		List<int[]> result = new ArrayList<>();
+		for (int t = 0; t < numTriangles; t++) {
+			int a = corners[3 * t], b = corners[3 * t + 1], c = corners[3 * t + 2];
+			if (a == NONE || a < SUPER || b < SUPER || c < SUPER) continue;
+			result.add(new int[] { a - SUPER, b - SUPER, c - SUPER });
+		}
+		return result;
+	}
+
+	public PointBD getSite(int site) {
+		return sites.get(site);
+	}
+
+	public int size() {
+		return sites.size();
+	}
+
+	/**
+	 * Find a corner of the hole that can be cut off: it turns anticlockwise,
+	 * and none of the other corners are inside the circle through it and
+	 * its neighbours
+	 */
+	private int findEar(int[] ring, int size) {
+		int fallback = NONE;
+		for (int k = 0; k < size; k++) {
+			int a = ring[k], b = ring[(k + 1) % size], c = ring[(k + 2) % size];
+			if (Predicates.orientation(points.getX(a), points.getY(a), points.getX(b), points.getY(b), points.getX(c), points.getY(c)) <= 0) continue;
+			if (fallback == NONE) fallback = k;
+
+			boolean empty = true;
+			for (int j = 0; j < size && empty; j++) {
+				int d = ring[j];
+				if (d == a || d == b || d == c) continue;
+				if (Predicates.inCircle(points.getX(a), points.getY(a), points.getX(b), points.getY(b), points.getX(c), points.getY(c), points.getX(d), points.getY(d)) > 0) {
+					empty = false;
+				}
+			}
+			if (empty) return k;
+		}
+		return fallback == NONE ? 0 : fallback;
+	}
+
+	private static int indexOf(int[] values, int size, int value) {
+		for (int k = 0; k < size; k++) {
+			if (values[k] == value) return k;
+		}
+		return NONE;
+	}
+
+	/**
+	 * Join a new triangle to the one across its edge a-b, which is opposite
+	 * its corner at slot i
+	 */
+	private void link(int t, int i, int other, int a, int b) {
+		neighbours[3 * t + i] = other;
+		if (other != NONE) setNeighbourAcross(other, a, b, t);
+	}
+
+	// ---- POINT LOCATION ----
+
+	/**
+	 * Find the triangle containing a point. The walk starts from whichever
+	 * of a few sampled sites is closest (jump and walk), or from the last
+	 * triangle made if that is closer.
+	 */
+	private int locate(double x, double y) {
+		int start = lastTriangle;
+		double best = distanceSqrd(corners[3 * start], x, y);
+		int samples = (int) Math.cbrt(sites.size());
+		for (int s = 0; s < samples; s++) {
+			int p = SUPER + gen.nextInt(sites.size());
+			double d = distanceSqrd(p, x, y);
+			if (d < best) {
+				best = d;
+				start = pointTriangle[p];
+			}
+		}
+
+		return walk(start, x, y);
+	}
+
+	/**
+	 * Walk towards a point from a triangle, stepping over any edge the point
+	 * is beyond. The first edge tried changes each step so the walk can't go
+	 * round in circles.
+	 */
+	private int walk(int t, double x, double y) {
+		int offset = 0;
+		walk: while (true) {
+			for (int k = 0; k < 3; k++) {
+				int i = (k + offset) % 3;
+				int a = corners[3 * t + (i + 1) % 3];
+				int b = corners[3 * t + (i + 2) % 3];
+				if (Predicates.orientation(points.getX(a), points.getY(a), points.getX(b), points.getY(b), x, y) < 0) {
+					t = neighbours[3 * t + i];
+					if (t == NONE) throw new IllegalArgumentException("Point (" + x + ", " + y + ") is outside the triangulation");
+					offset++;
+					continue walk;
+				}
+			}
+			return t;
+		}
+	}
+
+	private double distanceSqrd(int p, double x, double y) {
+		double dx = points.getX(p) - x;
+		double dy = points.getY(p) - y;
+		return dx * dx + dy * dy;
+	}
+
+	// ---- TRIANGLES ----
+
+	private boolean inCircumcircle(int t, double x, double y) {
+		int a = corners[3 * t], b = corners[3 * t + 1], c = corners[3 * t + 2];
+		return Predicates.inCircle(points.getX(a), points.getY(a), points.getX(b), points.getY(b), points.getX(c), points.getY(c), x, y) > 0;
+	}
+
+	private PointBD circumcentre(int t) {
+		int a = corners[3 * t], b = corners[3 * t + 1], c = corners[3 * t + 2];
+		double bx = points.getX(b), by = points.getY(b);
+		double ax = points.getX(a) - bx, ay = points.getY(a) - by;
+		double cx = points.getX(c) - bx, cy = points.getY(c) - by;
+		double d = 2 * (ax * cy - ay * cx);
+		double aLift = ax * ax + ay * ay;
+		double cLift = cx * cx + cy * cy;
+		return new PointBD((cy * aLift - ay * cLift) / d + bx, (ax * cLift - cx * aLift) / d + by);
+	}
+
+	private int cornerIndex(int t, int p) {
+		if (corners[3 * t] == p) return 0;
+		if (corners[3 * t + 1] == p) return 1;
+		return 2;
+	}
+
+	/**
+	 * Set the neighbour of t across its edge a-b. This goes by the edge
+	 * rather than the old neighbour, as removed triangles get reused.
+	 */
+	private void setNeighbourAcross(int t, int a, int b, int neighbour) {
+		for (int i = 0; i < 3; i++) {
+			int corner = corners[3 * t + i];
+			if (corner != a && corner != b) {
+				neighbours[3 * t + i] = neighbour;
+				return;
+			}
+		}
+	}
+
+	private int newTriangle(int a, int b, int c) {
+		int t;
+		if (numFree > 0) {
+			t = free[--numFree];
+		} else {
+			t = numTriangles++;
+			if (3 * numTriangles > corners.length) {
+				corners = Arrays.copyOf(corners, 2 * corners.length);
+				neighbours = Arrays.copyOf(neighbours, 2 * neighbours.length);
+				visited = Arrays.copyOf(visited, 2 * visited.length);
+			}
+		}
+		corners[3 * t] = a;
+		corners[3 * t + 1] = b;
+		corners[3 * t + 2] = c;
+		neighbours[3 * t] = NONE;
+		neighbours[3 * t + 1] = NONE;
+		neighbours[3 * t + 2] = NONE;
+		return t;
+	}
+
+	private void release(int t) {
+		corners[3 * t] = NONE;
+		if (numFree == free.length) free = Arrays.copyOf(free, 2 * numFree);
+		free[numFree++] = t;
+	}
+}
@@ -0,0 +1,26 @@
+package model;
+
+import java.util.List;
+
+import model.math.PointBD;
+
+/**
+ * Builds the cells of a whole Voronoi diagram in one go, rather than a point
+ * at a time.
+ * 
+ * @author mxw449
+ */
+public interface DiagramBuilder {
+
+	/**
+	 * Work out the cell of every site, clipped to a convex boundary
+	 * 
+	 * @param sites
+	 *            the sites, with no two the same
+	 * @param boundary
+	 *            the corners of the boundary in order
+	 * @return the corners of each site's cell in order around the site, with
+	 *         the same index as in sites
+	 */
+	List<List<PointBD>> buildCells(List<PointBD> sites, List<PointBD> boundary);
+}
@@ -0,0 +1,420 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import model.math.ConvexClipper;
+import model.math.Helpers;
+import model.math.PointBD;
+import model.math.Predicates;
+
+/**
+ * Fortune's sweep line algorithm. A line sweeps down the canvas and the beach
+ * line of parabolic arcs above it is kept in a balanced tree, so the whole
+ * diagram takes O(n log n).
+ * 
+ * Only the vertices of the diagram are needed. Each one is recorded against
+ * the sites around it, and each cell is then the vertices of its site sorted
+ * by angle and clipped to the boundary. Four sites far outside the boundary
+ * are added so that every real cell is closed.
+ * 
+ * @author mxw449
+ */
+public class FortuneSweep implements DiagramBuilder {
+
+	/** How close the sweep has to be to a breakpoint to count as on it */
+	private static final double EPSILON = 1e-9;
+
+	@Override
+	public List<List<PointBD>> buildCells(List<PointBD> sites, List<PointBD> boundary) {
+		Sweep sweep = new Sweep(sites, boundary);
+		sweep.run();
+		return sweep.cells(boundary);
+	}
+
+	/**
+	 * An arc on the beach line. Arcs are linked in order along the beach line,
+	 * and also form a treap so that the arc above a new site can be found
+	 * quickly.
+	 */
+	private static class Arc {
+		final int site;
+		Arc prev, next;
+		Arc left, right, parent;
+		final int priority;
+		Event circle;
+
+		Arc(int site, int priority) {
+			this.site = site;
+			this.priority = priority;
+		}
+	}
+
+	/**
+	 * A site event, or a circle event where an arc disappears
+	 */
+	private static class Event {
+		final double x, y;
+		final int site;
+		final Arc arc;
+		final double centreX, centreY;
+		boolean valid = true;
+
+		Event(int site, double x, double y) {
+			this.site = site;
+			this.x = x;
+			this.y = y;
+			this.arc = null;
+			this.centreX = 0;
+			this.centreY = 0;
+		}
+
+		Event(Arc arc, double centreX, double centreY, double bottom) {
+			this.site = -1;
+			this.arc = arc;
+			this.x = centreX;
+			this.y = bottom;
+			this.centreX = centreX;
+			this.centreY = centreY;
+		}
+	}
+
+	/** Events in the order the sweep reaches them, circles before sites */
+	private static final Comparator<Event> EVENT_ORDER = new Comparator<Event>() {
+		@Override
+		public int compare(Event e1, Event e2) {
+			int c = Double.compare(e1.y, e2.y);
+			if (c != 0) return c;
+			c = Double.compare(e1.x, e2.x);
+			if (c != 0) return c;
+			return Boolean.compare(e1.arc == null, e2.arc == null);
+		}
+	};
+
+	/**
+	 * The state of one run of the sweep
+	 */
+	private static class Sweep {
+		private final List<PointBD> sites;
+		private final int numReal;
+		private final double[] xs, ys;
+
+		private final PriorityQueue<Event> events = new PriorityQueue<>(16, EVENT_ORDER);
+		private final List<List<PointBD>> vertices;
+		private final Random priorities = new Random(0);
+		private Arc root;
+
+		Sweep(List<PointBD> sites, List<PointBD> boundary) {
+			this.sites = sites;
+			numReal = sites.size();
+			xs = new double[numReal + 4];
+			ys = new double[numReal + 4];
+
+			double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+			List<PointBD> extent = new ArrayList<>(sites);
+			extent.addAll(boundary);
+			for (PointBD p : extent) {
+				minX = Math.min(minX, p.getXVal());
+				minY = Math.min(minY, p.getYVal());
+				maxX = Math.max(maxX, p.getXVal());
+				maxY = Math.max(maxY, p.getYVal());
+			}
+
+			vertices = new ArrayList<>(numReal);
+			for (int i = 0; i < numReal; i++) {
+				xs[i] = sites.get(i).getXVal();
+				ys[i] = sites.get(i).getYVal();
+				vertices.add(new ArrayList<PointBD>());
+			}
+
+			// Anywhere inside the boundary is closer to some real site than
+			// to any of these
+			double far = 2 * (maxX - minX + maxY - minY) + 1;
+			double[] farX = { minX - far, maxX + far, minX - far, maxX + far };
+			double[] farY = { minY - far, minY - far, maxY + far, maxY + far };
+			for (int i = 0; i < 4; i++) {
+				xs[numReal + i] = farX[i];
+				ys[numReal + i] = farY[i];
+			}
+
+			for (int i = 0; i < xs.length; i++) {
+				events.add(new Event(i, xs[i], ys[i]));
+			}
+		}
+
+		void run() {
+			while (!events.isEmpty()) {
+				Event e = events.poll();
+				if (!e.valid) continue;
+				if (e.arc == null) {
+					addSite(e.site);
+				} else {
+					removeArc(e);
+				}
+			}
+		}
+
+		/**
+		 * Order each real site's vertices round it and clip them to the
+		 * boundary
+		 */
+		List<List<PointBD>> cells(List<PointBD> boundary) {
+			List<List<PointBD>> cells = new ArrayList<>(numReal);
+			for (int i = 0; i < numReal; i++) {
+				final PointBD site = sites.get(i);
+				List<PointBD> ring = vertices.get(i);
+				Collections.sort(ring, new Comparator<PointBD>() {
+					@Override
+					public int compare(PointBD p1, PointBD p2) {
+						return Double.compare(Helpers.pseudoAngle(site, p1), Helpers.pseudoAngle(site, p2));
+					}
+				});
+				cells.add(ConvexClipper.removeRepeats(ConvexClipper.clip(ConvexClipper.removeRepeats(ring), boundary)));
+			}
+			return cells;
+		}
+
+		// ---- SITE EVENTS ----
+
+		private void addSite(int site) {
+			double x = xs[site];
+			double sweepY = ys[site];
+
+			// Find the arc above the site, or the two arcs either side if it
+			// is right below a breakpoint
+			Arc leftArc = null, rightArc = null;
+			Arc node = root;
+			while (node != null) {
+				double dxl = leftBreak(node, sweepY) - x;
+				if (dxl > EPSILON) {
+					node = node.left;
+				} else {
+					double dxr = x - rightBreak(node, sweepY);
+					if (dxr > EPSILON) {
+						if (node.right == null) {
+							leftArc = node;
+							break;
+						}
+						node = node.right;
+					} else {
+						if (dxl > -EPSILON) {
+							leftArc = node.prev;
+							rightArc = node;
+						} else if (dxr > -EPSILON) {
+							leftArc = node;
+							rightArc = node.next;
+						} else {
+							leftArc = rightArc = node;
+						}
+						break;
+					}
+				}
+			}
+
+			Arc newArc = new Arc(site, priorities.nextInt());
+			insertAfter(leftArc, newArc);
+
+			// The first arc, or a new arc on either end of a beach line which
+			// is still flat
+			if (leftArc == null || rightArc == null) return;
+
+			if (leftArc == rightArc) {
+				// Split the arc above in two, either side of the new arc
+				detachCircle(leftArc);
+				Arc copy = new Arc(leftArc.site, priorities.nextInt());
+				insertAfter(newArc, copy);
+				attachCircle(leftArc);
+				attachCircle(copy);
+				return;
+			}
+
+			// The new site is right below a breakpoint, which is a vertex
+			detachCircle(leftArc);
+			detachCircle(rightArc);
+			double[] centre = circumcentre(leftArc.site, site, rightArc.site);
+			addVertex(centre[0], centre[1], leftArc.site, site, rightArc.site);
+			attachCircle(leftArc);
+			attachCircle(rightArc);
+		}
+
+		/**
+		 * Where an arc meets the arc before it, when the sweep line is at
+		 * sweepY
+		 */
+		private double leftBreak(Arc arc, double sweepY) {
+			double rightX = xs[arc.site], rightY = ys[arc.site];
+			double rightDist = rightY - sweepY;
+			if (rightDist == 0) return rightX;
+
+			Arc before = arc.prev;
+			if (before == null) return Double.NEGATIVE_INFINITY;
+			double leftX = xs[before.site], leftY = ys[before.site];
+			double leftDist = leftY - sweepY;
+			if (leftDist == 0) return leftX;
+
+			double dx = leftX - rightX;
+			double a = 1 / rightDist - 1 / leftDist;
+			double b = dx / leftDist;
+			if (a == 0) return (rightX + leftX) / 2;
+
+			double disc = b * b - 2 * a * (dx * dx / (-2 * leftDist) - leftY + leftDist / 2 + rightY - rightDist / 2);
+			return (-b + Math.sqrt(Math.max(0, disc))) / a + rightX;
+		}
+
+		/**
+		 * Where an arc meets the arc after it, when the sweep line is at
+		 * sweepY
+		 */
+		private double rightBreak(Arc arc, double sweepY) {
+			if (arc.next != null) return leftBreak(arc.next, sweepY);
+			return ys[arc.site] == sweepY ? xs[arc.site] : Double.POSITIVE_INFINITY;
+		}
+
+		// ---- CIRCLE EVENTS ----
+
+		private void removeArc(Event e) {
+			Arc arc = e.arc;
+			Arc before = arc.prev;
+			Arc after = arc.next;
+
+			addVertex(e.centreX, e.centreY, before.site, arc.site, after.site);
+
+			arc.circle = null;
+			detachCircle(before);
+			detachCircle(after);
+			remove(arc);
+			attachCircle(before);
+			attachCircle(after);
+		}
+
+		/**
+		 * Queue the event where an arc is squeezed out by its neighbours, if
+		 * they are converging on it
+		 */
+		private void attachCircle(Arc arc) {
+			Arc before = arc.prev;
+			Arc after = arc.next;
+			if (before == null || after == null || before.site == after.site) return;
+
+			int a = before.site, b = arc.site, c = after.site;
+			if (Predicates.orientation(xs[a], ys[a], xs[b], ys[b], xs[c], ys[c]) <= 0) return;
+
+			double[] centre = circumcentre(a, b, c);
+			double radius = Math.hypot(xs[b] - centre[0], ys[b] - centre[1]);
+			arc.circle = new Event(arc, centre[0], centre[1], centre[1] + radius);
+			events.add(arc.circle);
+		}
+
+		private void detachCircle(Arc arc) {
+			if (arc.circle != null) {
+				arc.circle.valid = false;
+				arc.circle = null;
+			}
+		}
+
+		private double[] circumcentre(int a, int b, int c) {
+			double ax = xs[a] - xs[b], ay = ys[a] - ys[b];
+			double cx = xs[c] - xs[b], cy = ys[c] - ys[b];
+			double d = 2 * (ax * cy - ay * cx);
+			double ha = ax * ax + ay * ay;
+			double hc = cx * cx + cy * cy;
+			return new double[] { (cy * ha - ay * hc) / d + xs[b], (ax * hc - cx * ha) / d + ys[b] };
+		}
+
+		private void addVertex(double x, double y, int a, int b, int c) {
+			PointBD vertex = new PointBD(x, y);
+			if (a < numReal) vertices.get(a).add(vertex);
+			if (b < numReal) vertices.get(b).add(vertex);
+			if (c < numReal) vertices.get(c).add(vertex);
+		}
+
+		// ---- BEACH LINE TREAP ----
+
+		/**
+		 * Put an arc straight after another on the beach line, or at the
+		 * start if after is null
+		 */
+		private void insertAfter(Arc after, Arc arc) {
+			if (root == null) {
+				root = arc;
+				return;
+			}
+
+			Arc parent;
+			if (after == null) {
+				parent = root;
+				while (parent.left != null) parent = parent.left;
+				parent.left = arc;
+				arc.next = parent;
+				parent.prev = arc;
+			} else {
+				if (after.right == null) {
+					parent = after;
+					parent.right = arc;
+				} else {
+					parent = after.right;
+					while (parent.left != null) parent = parent.left;
+					parent.left = arc;
+				}
+				arc.prev = after;
+				arc.next = after.next;
+				if (after.next != null) after.next.prev = arc;
+				after.next = arc;
+			}
+			arc.parent = parent;
+
+			while (arc.parent != null && arc.parent.priority < arc.priority) {
+				rotateUp(arc);
+			}
+		}
+
+		private void remove(Arc arc) {
+			if (arc.prev != null) arc.prev.next = arc.next;
+			if (arc.next != null) arc.next.prev = arc.prev;
+
+			// Rotate the arc down until it has at most one child
+			while (arc.left != null && arc.right != null) {
+				rotateUp(arc.left.priority > arc.right.priority ? arc.left : arc.right);
+			}
+			Arc child = arc.left != null ? arc.left : arc.right;
+			replaceChild(arc.parent, arc, child);
+			if (child != null) child.parent = arc.parent;
+		}
+
+		/**
+		 * Swap a node with its parent, keeping the order of the arcs
+		 */
+		private void rotateUp(Arc node) {
+			Arc parent = node.parent;
+			Arc grandparent = parent.parent;
+
+			if (parent.left == node) {
+				parent.left = node.right;
+				if (node.right != null) node.right.parent = parent;
+				node.right = parent;
+			} else {
+				parent.right = node.left;
+				if (node.left != null) node.left.parent = parent;
+				node.left = parent;
+			}
+			parent.parent = node;
+			node.parent = grandparent;
+			replaceChild(grandparent, parent, node);
+		}
+
+		private void replaceChild(Arc parent, Arc oldChild, Arc newChild) {
+			if (parent == null) {
+				root = newChild;
+			} else if (parent.left == oldChild) {
+				parent.left = newChild;
+			} else {
+				parent.right = newChild;
+			}
+		}
+	}
+}
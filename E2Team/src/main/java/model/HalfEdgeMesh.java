@@ -0,0 +1,353 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.math.ConvexClipper;
+import model.math.LineBD;
+import model.math.PointBD;
+
+/**
+ * The cells of a diagram as a doubly connected edge list. Every corner and
+ * every edge is stored once, and shared by the cells either side of it. Each
+ * edge is split into two half edges, one going each way, and each cell keeps
+ * one half edge of the cycle round it.
+ *
+ * Cells are numbered the same as the polygons on the canvas. Replacing a
+ * cell only touches its own cycle, and its edges find their twins in the
+ * cells next to it by their corners. Corners are matched on their exact
+ * coordinates: the batch engines work out each corner the same way for
+ * every cell around it, so the cells agree. The canvas uses this to find
+ * which cells of a diagram built in one go are next to each other, while
+ * each polygon keeps its own ring of corners.
+ *
+ * @author mxw449
+ */
+public class HalfEdgeMesh {
+
+	/** Marks a missing half edge or cell, such as across the border */
+	public static final int NONE = -1;
+
+	/** Slots in the corner table which are empty or were deleted */
+	private static final int EMPTY = -1, DELETED = -2;
+
+	/**
+	 * The corners, with how many half edges start at each and the first of
+	 * them. Removed corners are kept on a free list to be reused.
+	 */
+	private PointBD[] vertices = new PointBD[64];
+	private int[] vertexUses = new int[64];
+	private int[] firstOut = new int[64];
+	private int numVertices;
+	private int[] freeVertices = new int[16];
+	private int numFreeVertices;
+
+	/**
+	 * Open addressing hash table of corners by their coordinates, so cells
+	 * next to each other find the same corner
+	 */
+	private int[] vertexTable = new int[128];
+	private int tableUsed;
+	private int tableLive;
+
+	/**
+	 * The half edges, with the line shared by each half edge and its twin,
+	 * and the next half edge starting from the same corner
+	 */
+	private int[] origin = new int[64];
+	private int[] twin = new int[64];
+	private int[] next = new int[64];
+	private int[] cell = new int[64];
+	private int[] nextOut = new int[64];
+	private LineBD[] lines = new LineBD[64];
+	private int numHalfEdges;
+	private int[] freeHalfEdges = new int[16];
+	private int numFreeHalfEdges;
+
+	/** One half edge on each cell */
+	private int[] cellEdge = new int[16];
+
+	public HalfEdgeMesh() {
+		Arrays.fill(cellEdge, NONE);
+		Arrays.fill(vertexTable, EMPTY);
+	}
+
+	/**
+	 * Set the corners of a cell, replacing any it had before
+	 */
+	public void setCell(int c, List<PointBD> ring) {
+		removeCell(c);
+		if (c >= cellEdge.length) {
+			int oldLength = cellEdge.length;
+			cellEdge = Arrays.copyOf(cellEdge, Math.max(2 * oldLength, c + 1));
+			Arrays.fill(cellEdge, oldLength, cellEdge.length, NONE);
+		}
+		if (ring.size() < 3) return;
+
+		// Every cycle goes the same way round, so twins go opposite ways
+		if (ConvexClipper.orientation(ring) < 0) {
+			ring = new ArrayList<>(ring);
+			Collections.reverse(ring);
+		}
+
+		int[] corners = new int[ring.size()];
+		for (int i = 0; i < ring.size(); i++) {
+			corners[i] = addVertex(ring.get(i));
+		}
+
+		int first = NONE, previous = NONE;
+		for (int i = 0; i < corners.length; i++) {
+			int from = corners[i];
+			int to = corners[(i + 1) % corners.length];
+			int e = newHalfEdge(from, c);
+
+			int opposite = findHalfEdge(to, from);
+			if (opposite != NONE) {
+				twin[e] = opposite;
+				twin[opposite] = e;
+				lines[e] = lines[opposite];
+			} else {
+				lines[e] = new LineBD(vertices[from], vertices[to]);
+			}
+
+			if (previous == NONE) {
+				first = e;
+			} else {
+				next[previous] = e;
+			}
+			previous = e;
+		}
+		next[previous] = first;
+		cellEdge[c] = first;
+	}
+
+	/**
+	 * Take a cell out of the mesh. The cells next to it keep their edges,
+	 * without twins.
+	 */
+	public void removeCell(int c) {
+		if (c >= cellEdge.length || cellEdge[c] == NONE) return;
+
+		int first = cellEdge[c];
+		int e = first;
+		do {
+			int following = next[e];
+			if (twin[e] != NONE) twin[twin[e]] = NONE;
+			releaseHalfEdge(e);
+			e = following;
+		} while (e != first);
+
+		cellEdge[c] = NONE;
+	}
+
+	/**
+	 * The corners of a cell in order round it
+	 */
+	public List<PointBD> getCorners(int c) {
+		List<PointBD> result = new ArrayList<>();
+		if (c >= cellEdge.length || cellEdge[c] == NONE) return result;
+
+		int e = cellEdge[c];
+		do {
+			result.add(vertices[origin[e]]);
+			e = next[e];
+		} while (e != cellEdge[c]);
+		return result;
+	}
+
+	/**
+	 * The edges of a cell in order round it. Each edge is the same LineBD as
+	 * the matching edge of the cell on the other side.
+	 */
+	public List<LineBD> getLines(int c) {
+		List<LineBD> result = new ArrayList<>();
+		if (c >= cellEdge.length || cellEdge[c] == NONE) return result;
+
+		int e = cellEdge[c];
+		do {
+			result.add(lines[e]);
+			e = next[e];
+		} while (e != cellEdge[c]);
+		return result;
+	}
+
+	/**
+	 * The cells which share an edge with a cell
+	 */
+	public int[] getNeighbours(int c) {
+		if (c >= cellEdge.length || cellEdge[c] == NONE) return new int[0];
+
+		int[] result = new int[8];
+		int count = 0;
+		int e = cellEdge[c];
+		do {
+			if (twin[e] != NONE) {
+				if (count == result.length) result = Arrays.copyOf(result, 2 * count);
+				result[count++] = cell[twin[e]];
+			}
+			e = next[e];
+		} while (e != cellEdge[c]);
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * @return the number of corners in the mesh
+	 */
+	public int getNumVertices() {
+		return tableLive;
+	}
+
+	/**
+	 * @return the number of edges in the mesh, counting shared edges once
+	 */
+	public int getNumEdges() {
+		int count = 0;
+		for (int e = 0; e < numHalfEdges; e++) {
+			if (cell[e] != NONE && (twin[e] == NONE || e < twin[e])) count++;
+		}
+		return count;
+	}
+
+	// ---- STORAGE ----
+
+	/**
+	 * Find the half edge going from one corner to another
+	 */
+	private int findHalfEdge(int from, int to) {
+		for (int e = firstOut[from]; e != NONE; e = nextOut[e]) {
+			// Half edges of the cell being built aren't joined up yet
+			if (next[e] != NONE && origin[next[e]] == to) return e;
+		}
+		return NONE;
+	}
+
+	private int addVertex(PointBD p) {
+		double x = p.getXVal(), y = p.getYVal();
+		int slot = hash(x, y) & (vertexTable.length - 1);
+		int reusable = NONE;
+		while (vertexTable[slot] != EMPTY) {
+			int v = vertexTable[slot];
+			if (v == DELETED) {
+				if (reusable == NONE) reusable = slot;
+			} else if (Double.compare(vertices[v].getXVal(), x) == 0 && Double.compare(vertices[v].getYVal(), y) == 0) {
+				return v;
+			}
+			slot = (slot + 1) & (vertexTable.length - 1);
+		}
+
+		int v;
+		if (numFreeVertices > 0) {
+			v = freeVertices[--numFreeVertices];
+		} else {
+			v = numVertices++;
+			if (v >= vertices.length) {
+				vertices = Arrays.copyOf(vertices, 2 * v);
+				vertexUses = Arrays.copyOf(vertexUses, 2 * v);
+				firstOut = Arrays.copyOf(firstOut, 2 * v);
+			}
+		}
+		vertices[v] = p;
+		vertexUses[v] = 0;
+		firstOut[v] = NONE;
+
+		if (reusable != NONE) {
+			vertexTable[reusable] = v;
+		} else {
+			vertexTable[slot] = v;
+			tableUsed++;
+		}
+		tableLive++;
+		if (2 * tableUsed > vertexTable.length) rehash();
+		return v;
+	}
+
+	private void releaseVertex(int v) {
+		if (--vertexUses[v] > 0) return;
+
+		double x = vertices[v].getXVal(), y = vertices[v].getYVal();
+		int slot = hash(x, y) & (vertexTable.length - 1);
+		while (vertexTable[slot] != v) {
+			slot = (slot + 1) & (vertexTable.length - 1);
+		}
+		vertexTable[slot] = DELETED;
+		tableLive--;
+
+		vertices[v] = null;
+		if (numFreeVertices == freeVertices.length) freeVertices = Arrays.copyOf(freeVertices, 2 * numFreeVertices);
+		freeVertices[numFreeVertices++] = v;
+	}
+
+	/**
+	 * Rebuild the corner table without the deleted slots, bigger if it is
+	 * getting full
+	 */
+	private void rehash() {
+		int size = vertexTable.length;
+		while (4 * tableLive > size) size *= 2;
+		int[] old = vertexTable;
+		vertexTable = new int[size];
+		Arrays.fill(vertexTable, EMPTY);
+		for (int v : old) {
+			if (v < 0) continue;
+			int slot = hash(vertices[v].getXVal(), vertices[v].getYVal()) & (size - 1);
+			while (vertexTable[slot] != EMPTY) {
+				slot = (slot + 1) & (size - 1);
+			}
+			vertexTable[slot] = v;
+		}
+		tableUsed = tableLive;
+	}
+
+	private static int hash(double x, double y) {
+		long bits = Double.doubleToLongBits(x) * 31 + Double.doubleToLongBits(y);
+		int h = (int) (bits ^ (bits >>> 32));
+		return h ^ (h >>> 16);
+	}
+
+	private int newHalfEdge(int from, int c) {
+		int e;
+		if (numFreeHalfEdges > 0) {
+			e = freeHalfEdges[--numFreeHalfEdges];
+		} else {
+			e = numHalfEdges++;
+			if (e >= origin.length) {
+				int length = 2 * origin.length;
+				origin = Arrays.copyOf(origin, length);
+				twin = Arrays.copyOf(twin, length);
+				next = Arrays.copyOf(next, length);
+				cell = Arrays.copyOf(cell, length);
+				nextOut = Arrays.copyOf(nextOut, length);
+				lines = Arrays.copyOf(lines, length);
+			}
+		}
+		origin[e] = from;
+		twin[e] = NONE;
+		next[e] = NONE;
+		cell[e] = c;
+		nextOut[e] = firstOut[from];
+		firstOut[from] = e;
+		vertexUses[from]++;
+		return e;
+	}
+
+	private void releaseHalfEdge(int e) {
+		int from = origin[e];
+		if (firstOut[from] == e) {
+			firstOut[from] = nextOut[e];
+		} else {
+			int before = firstOut[from];
+			while (nextOut[before] != e) {
+				before = nextOut[before];
+			}
+			nextOut[before] = nextOut[e];
+		}
+		releaseVertex(from);
+
+		cell[e] = NONE;
+		lines[e] = null;
+		if (numFreeHalfEdges == freeHalfEdges.length) freeHalfEdges = Arrays.copyOf(freeHalfEdges, 2 * numFreeHalfEdges);
+		freeHalfEdges[numFreeHalfEdges++] = e;
+	}
+}
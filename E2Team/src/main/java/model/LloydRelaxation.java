@@ -0,0 +1,345 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import model.math.PointBD;
+import model.math.PointStore;
+import model.math.SiteIndex;
+
+/**
+ * Lloyd's relaxation: every site is moved to the centroid of its cell, over
+ * and over, which spreads the sites out evenly.
+ *
+ * Sites only move a little each time, so a site's new cell is bounded by its
+ * old neighbours and their neighbours. Each cell is clipped from the
+ * boundary by just those bisectors, remembering which site each edge came
+ * from, which gives the neighbours for the next iteration. The corners are
+ * then checked against a grid of the sites, and any site found to be closer
+ * is added to the bisectors and the cell clipped again, so the cells are
+ * always right. Every cell can be worked out on its own, so the cells are
+ * split between the threads of a ForkJoinPool.
+ *
+ * @author mxw449
+ */
+public class LloydRelaxation {
+
+	/** Marks an edge along the boundary rather than a bisector */
+	private static final int BOUNDARY = -1;
+
+	/** Ranges of sites smaller than this aren't split between threads */
+	private static final int SMALLEST_TASK = 512;
+
+	private final ForkJoinPool pool;
+	private final double[] boundaryX, boundaryY;
+	private final double width, height;
+
+	private double[] xs, ys;
+	private int[][] neighbours;
+	private double[][] cellX, cellY;
+
+	/**
+	 * Set up a relaxation of some sites, whose neighbours are already known
+	 *
+	 * @param boundary
+	 *            the corners of the convex boundary in order, with the lowest
+	 *            corner at (0, 0)
+	 * @param neighbours
+	 *            the neighbours of each site
+	 */
+	public LloydRelaxation(List<PointBD> sites, int[][] neighbours, List<PointBD> boundary, ForkJoinPool pool) {
+		this.pool = pool;
+		int n = sites.size();
+		xs = new double[n];
+		ys = new double[n];
+		for (int i = 0; i < n; i++) {
+			xs[i] = sites.get(i).getXVal();
+			ys[i] = sites.get(i).getYVal();
+		}
+		this.neighbours = neighbours;
+		cellX = new double[n][];
+		cellY = new double[n][];
+
+		boundaryX = new double[boundary.size()];
+		boundaryY = new double[boundary.size()];
+		double maxX = 0, maxY = 0;
+		for (int i = 0; i < boundary.size(); i++) {
+			boundaryX[i] = boundary.get(i).getXVal();
+			boundaryY[i] = boundary.get(i).getYVal();
+			maxX = Math.max(maxX, boundaryX[i]);
+			maxY = Math.max(maxY, boundaryY[i]);
+		}
+		width = maxX;
+		height = maxY;
+	}
+
+	/**
+	 * Move every site to the centroid of its cell a number of times, then
+	 * work out the cells of where they end up
+	 */
+	public void run(int iterations) {
+		for (int k = 0; k < iterations; k++) {
+			iterate(true);
+		}
+		iterate(false);
+	}
+
+	/**
+	 * Work out every cell, and optionally move the sites to their centroids.
+	 * The new positions and neighbours are only stored once every cell is
+	 * done, as other cells still need the old ones.
+	 */
+	private void iterate(boolean move) {
+		int n = xs.length;
+		double[] newX = move ? new double[n] : xs;
+		double[] newY = move ? new double[n] : ys;
+		int[][] newNeighbours = new int[n][];
+		pool.invoke(new Cells(index(), 0, n, newX, newY, newNeighbours, move));
+		xs = newX;
+		ys = newY;
+		neighbours = newNeighbours;
+	}
+
+	/**
+	 * Where each site is now
+	 */
+	public List<PointBD> getSites() {
+		List<PointBD> result = new ArrayList<>(xs.length);
+		for (int i = 0; i < xs.length; i++) {
+			result.add(new PointBD(xs[i], ys[i]));
+		}
+		return result;
+	}
+
+	/**
+	 * The corners of a site's cell in order, from the last time the cells
+	 * were worked out
+	 */
+	public List<PointBD> getCell(int site) {
+		List<PointBD> result = new ArrayList<>(cellX[site].length);
+		for (int i = 0; i < cellX[site].length; i++) {
+			result.add(new PointBD(cellX[site][i], cellY[site][i]));
+		}
+		return result;
+	}
+
+	/**
+	 * The neighbours of a site, from the last time the cells were worked out
+	 */
+	public int[] getNeighbours(int site) {
+		return neighbours[site];
+	}
+
+	/**
+	 * A grid over where the sites are now, to check the cells against
+	 */
+	private SiteIndex index() {
+		PointStore store = new PointStore();
+		SiteIndex index = new SiteIndex(store, width, height);
+		for (int i = 0; i < xs.length; i++) {
+			index.add(store.add(xs[i], ys[i]));
+		}
+		return index;
+	}
+
+	/**
+	 * Works out the cells of a range of sites, splitting it in half until it
+	 * is small enough for one thread
+	 */
+	private class Cells extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final SiteIndex index;
+		private final int from, to;
+		private final double[] newX, newY;
+		private final int[][] newNeighbours;
+		private final boolean move;
+
+		Cells(SiteIndex index, int from, int to, double[] newX, double[] newY, int[][] newNeighbours, boolean move) {
+			this.index = index;
+			this.from = from;
+			this.to = to;
+			this.newX = newX;
+			this.newY = newY;
+			this.newNeighbours = newNeighbours;
+			this.move = move;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > SMALLEST_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Cells(index, from, middle, newX, newY, newNeighbours, move), new Cells(index, middle, to, newX, newY, newNeighbours, move));
+				return;
+			}
+
+			for (int i = from; i < to; i++) {
+				Ring ring = cellOf(i, index);
+				newNeighbours[i] = ring.neighbours();
+				cellX[i] = Arrays.copyOf(ring.x, ring.size);
+				cellY[i] = Arrays.copyOf(ring.y, ring.size);
+				if (move) {
+					double[] centroid = ring.centroid();
+					newX[i] = centroid == null ? xs[i] : centroid[0];
+					newY[i] = centroid == null ? ys[i] : centroid[1];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Work out the cell of a site from its neighbours and theirs, adding any
+	 * closer sites the grid finds until none of the corners are closer to
+	 * another site
+	 */
+	private Ring cellOf(int site, SiteIndex index) {
+		int[] candidates = new int[16];
+		int count = 0;
+		for (int n : neighbours[site]) {
+			count = addCandidate(candidates, count, site, n);
+			candidates = grow(candidates, count);
+			for (int m : neighbours[n]) {
+				count = addCandidate(candidates, count, site, m);
+				candidates = grow(candidates, count);
+			}
+		}
+
+		while (true) {
+			Ring ring = Ring.of(boundaryX, boundaryY);
+			for (int c = 0; c < count; c++) {
+				ring = ring.clipToCloser(xs[site], ys[site], xs[candidates[c]], ys[candidates[c]], candidates[c]);
+			}
+
+			int missing = -1;
+			for (int k = 0; k < ring.size && missing < 0; k++) {
+				int nearest = index.nearest(ring.x[k], ring.y[k]);
+				if (nearest != site && distanceSqrd(nearest, ring.x[k], ring.y[k]) < distanceSqrd(site, ring.x[k], ring.y[k]) * (1 - 1e-9)) {
+					missing = nearest;
+				}
+			}
+			if (missing < 0) return ring;
+
+			// Give up if rounding means the site was already used
+			int before = count;
+			count = addCandidate(candidates, count, site, missing);
+			if (count == before) return ring;
+			candidates = grow(candidates, count);
+		}
+	}
+
+	private static int addCandidate(int[] candidates, int count, int site, int candidate) {
+		if (candidate == site) return count;
+		for (int c = 0; c < count; c++) {
+			if (candidates[c] == candidate) return count;
+		}
+		candidates[count] = candidate;
+		return count + 1;
+	}
+
+	private static int[] grow(int[] candidates, int count) {
+		return count == candidates.length ? Arrays.copyOf(candidates, 2 * count) : candidates;
+	}
+
+	private double distanceSqrd(int site, double x, double y) {
+		double dx = xs[site] - x;
+		double dy = ys[site] - y;
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * A convex polygon, with the site each edge is the bisector with, or
+	 * BOUNDARY. Edge k goes from corner k to corner k + 1.
+	 */
+	private static class Ring {
+		double[] x, y;
+		int[] label;
+		int size;
+
+		Ring(int capacity) {
+			x = new double[capacity];
+			y = new double[capacity];
+			label = new int[capacity];
+		}
+
+		static Ring of(double[] xs, double[] ys) {
+			Ring ring = new Ring(xs.length + 4);
+			for (int k = 0; k < xs.length; k++) {
+				ring.add(xs[k], ys[k], BOUNDARY);
+			}
+			return ring;
+		}
+
+		void add(double px, double py, int l) {
+			if (size == x.length) {
+				x = Arrays.copyOf(x, 2 * size);
+				y = Arrays.copyOf(y, 2 * size);
+				label = Arrays.copyOf(label, 2 * size);
+			}
+			x[size] = px;
+			y[size] = py;
+			label[size] = l;
+			size++;
+		}
+
+		/**
+		 * Keep the part closer to (sx, sy) than to (ox, oy). The new edge is
+		 * labelled with other.
+		 */
+		Ring clipToCloser(double sx, double sy, double ox, double oy, int other) {
+			double dx = ox - sx, dy = oy - sy;
+			double mx = (sx + ox) / 2, my = (sy + oy) / 2;
+
+			Ring result = new Ring(size + 2);
+			for (int k = 0; k < size; k++) {
+				int next = (k + 1) % size;
+				double fp = (x[k] - mx) * dx + (y[k] - my) * dy;
+				double fq = (x[next] - mx) * dx + (y[next] - my) * dy;
+				boolean inP = fp <= 0, inQ = fq <= 0;
+				if (inP) result.add(x[k], y[k], label[k]);
+				if (inP != inQ) {
+					double t = fp / (fp - fq);
+					double cx = x[k] + t * (x[next] - x[k]);
+					double cy = y[k] + t * (y[next] - y[k]);
+					result.add(cx, cy, inP ? other : label[k]);
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * The sites the edges are bisectors with
+		 */
+		int[] neighbours() {
+			int[] result = new int[size];
+			int count = 0;
+			for (int k = 0; k < size; k++) {
+				if (label[k] == BOUNDARY) continue;
+				boolean seen = false;
+				for (int j = 0; j < count && !seen; j++) {
+					seen = result[j] == label[k];
+				}
+				if (!seen) result[count++] = label[k];
+			}
+			return Arrays.copyOf(result, count);
+		}
+
+		/**
+		 * @return the centroid, or null if the ring has no area
+		 */
+		double[] centroid() {
+			double area = 0, cx = 0, cy = 0;
+			for (int k = 0; k < size; k++) {
+				int next = (k + 1) % size;
+				double cross = x[k] * y[next] - x[next] * y[k];
+				area += cross;
+				cx += (x[k] + x[next]) * cross;
+				cy += (y[k] + y[next]) * cross;
+			}
+			if (area == 0) return null;
+			return new double[] { cx / (3 * area), cy / (3 * area) };
+		}
+	}
+}
@@ -0,0 +1,279 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import model.math.PointBD;
+
+/**
+ * Builds a diagram on several cores by splitting the sites into vertical
+ * strips. Each strip runs its own sweep over its sites and a halo of sites
+ * from the strips either side, and keeps the cells of its own sites.
+ *
+ * A cell is right once no site left out of the strip's sweep could be closer
+ * to any of its corners than its own site. Cells that fail the check are
+ * worked out again with a wider halo, so the result is the same as one sweep
+ * over every site. As every cell comes out whole, putting the strips back
+ * together is just collecting the cells, then making every copy of a corner
+ * worked out by more than one sweep the same.
+ *
+ * @author mxw449
+ */
+public class ParallelDiagramBuilder implements DiagramBuilder {
+
+	/** Strips with fewer sites than this aren't split any further */
+	private static final int SMALLEST_STRIP = 256;
+
+	/** How many average site spacings the first halo reaches */
+	private static final double HALO_SPACINGS = 3;
+
+	/**
+	 * How far apart copies of a corner from different sweeps can be. They
+	 * are only a rounding error apart.
+	 */
+	private static final double SAME_CORNER = 1e-9;
+
+	/** Size of the grid squares corners are looked up in */
+	private static final double GRID = 1e-6;
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Create a builder which runs on a given pool
+	 */
+	public ParallelDiagramBuilder(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	@Override
+	public List<List<PointBD>> buildCells(List<PointBD> sites, List<PointBD> boundary) {
+		int n = sites.size();
+		if (n <= SMALLEST_STRIP || pool.getParallelism() == 1) {
+			return new FortuneSweep().buildCells(sites, boundary);
+		}
+
+		// Sort the site indexes by x, so each strip is a range of them
+		Integer[] byX = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			byX[i] = i;
+		}
+		final List<PointBD> siteList = sites;
+		Arrays.sort(byX, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(siteList.get(i1).getXVal(), siteList.get(i2).getXVal());
+			}
+		});
+		double[] xs = new double[n];
+		for (int i = 0; i < n; i++) {
+			xs[i] = sites.get(byX[i]).getXVal();
+		}
+
+		double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+		double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+		for (PointBD p : boundary) {
+			minX = Math.min(minX, p.getXVal());
+			minY = Math.min(minY, p.getYVal());
+			maxX = Math.max(maxX, p.getXVal());
+			maxY = Math.max(maxY, p.getYVal());
+		}
+		double halo = HALO_SPACINGS * Math.sqrt((maxX - minX) * (maxY - minY) / n);
+
+		// Aim for a few strips per thread, so uneven strips even out
+		int strips = Math.min(4 * pool.getParallelism(), n / SMALLEST_STRIP);
+		List<PointBD>[] cells = newCellArray(n);
+		pool.invoke(new Strips(sites, boundary, byX, xs, halo, cells, 0, strips, strips));
+		shareCorners(cells);
+		return Arrays.asList(cells);
+	}
+
+	/**
+	 * The sweeps round corners near the sides of their strips differently,
+	 * and HalfEdgeMesh only joins cells on exactly the same corners. So each
+	 * corner is swapped for the first copy of it found, going through the
+	 * cells in order.
+	 */
+	private static void shareCorners(List<PointBD>[] cells) {
+		Map<Long, List<PointBD>> grid = new HashMap<>();
+		for (int i = 0; i < cells.length; i++) {
+			List<PointBD> shared = new ArrayList<>(cells[i].size());
+			for (PointBD corner : cells[i]) {
+				PointBD p = firstCopy(grid, corner);
+				if (shared.isEmpty() || shared.get(shared.size() - 1) != p) shared.add(p);
+			}
+			while (shared.size() > 1 && shared.get(0) == shared.get(shared.size() - 1)) {
+				shared.remove(shared.size() - 1);
+			}
+			cells[i] = shared;
+		}
+	}
+
+	/**
+	 * Find the copy of a corner already in the grid, or add it if there
+	 * isn't one. A copy close enough can only be over the side of the grid
+	 * square if the corner is that close to it.
+	 */
+	private static PointBD firstCopy(Map<Long, List<PointBD>> grid, PointBD corner) {
+		double x = corner.getXVal(), y = corner.getYVal();
+		long gx = (long) Math.floor(x / GRID), gy = (long) Math.floor(y / GRID);
+		int fromX = x - gx * GRID < SAME_CORNER ? -1 : 0, toX = (gx + 1) * GRID - x < SAME_CORNER ? 1 : 0;
+		int fromY = y - gy * GRID < SAME_CORNER ? -1 : 0, toY = (gy + 1) * GRID - y < SAME_CORNER ? 1 : 0;
+
+		for (int dx = fromX; dx <= toX; dx++) {
+			for (int dy = fromY; dy <= toY; dy++) {
+				List<PointBD> square = grid.get(key(gx + dx, gy + dy));
+				if (square == null) continue;
+				for (PointBD p : square) {
+					if (Math.abs(p.getXVal() - x) < SAME_CORNER && Math.abs(p.getYVal() - y) < SAME_CORNER) return p;
+				}
+			}
+		}
+
+		Long key = key(gx, gy);
+		List<PointBD> square = grid.get(key);
+		if (square == null) {
+			square = new ArrayList<>(1);
+			grid.put(key, square);
+		}
+		square.add(corner);
+		return corner;
+	}
+
+	private static Long key(long gx, long gy) {
+		return gx * 0x9E3779B97F4A7C15L + gy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<PointBD>[] newCellArray(int n) {
+		return new List[n];
+	}
+
+	/**
+	 * Builds a range of strips, splitting it in half until there is only one
+	 */
+	private static class Strips extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final List<PointBD> sites, boundary;
+		private final Integer[] byX;
+		private final double[] xs;
+		private final double halo;
+		private final List<PointBD>[] cells;
+		private final int from, to, strips;
+
+		Strips(List<PointBD> sites, List<PointBD> boundary, Integer[] byX, double[] xs, double halo, List<PointBD>[] cells, int from, int to, int strips) {
+			this.sites = sites;
+			this.boundary = boundary;
+			this.byX = byX;
+			this.xs = xs;
+			this.halo = halo;
+			this.cells = cells;
+			this.from = from;
+			this.to = to;
+			this.strips = strips;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) / 2;
+				invokeAll(new Strips(sites, boundary, byX, xs, halo, cells, from, middle, strips), new Strips(sites, boundary, byX, xs, halo, cells, middle, to, strips));
+				return;
+			}
+
+			int n = byX.length;
+			int lo = (int) ((long) n * from / strips);
+			int hi = (int) ((long) n * to / strips);
+			buildStrip(lo, hi);
+		}
+
+		/**
+		 * Work out the cells of the sites from lo to hi in x order
+		 */
+		private void buildStrip(int lo, int hi) {
+			List<Integer> todo = new ArrayList<>(hi - lo);
+			for (int i = lo; i < hi; i++) {
+				todo.add(i);
+			}
+
+			double reach = halo;
+			while (!todo.isEmpty()) {
+				double left = xs[lo] - reach, right = xs[hi - 1] + reach;
+				int first = lowerBound(left);
+				int last = upperBound(right);
+				boolean everything = first == 0 && last == xs.length;
+
+				List<PointBD> local = new ArrayList<>(last - first);
+				for (int i = first; i < last; i++) {
+					local.add(sites.get(byX[i]));
+				}
+				List<List<PointBD>> localCells = new FortuneSweep().buildCells(local, boundary);
+
+				List<Integer> failed = new ArrayList<>();
+				for (int i : todo) {
+					List<PointBD> cell = localCells.get(i - first);
+					if (everything || isSettled(sites.get(byX[i]), cell, left, right)) {
+						cells[byX[i]] = cell;
+					} else {
+						failed.add(i);
+					}
+				}
+				todo = failed;
+				reach *= 2;
+			}
+		}
+
+		/**
+		 * Could a site outside the sweep be closer to any corner of a cell
+		 * than its own site? Those sites are all left of left or right of
+		 * right.
+		 */
+		private static boolean isSettled(PointBD site, List<PointBD> cell, double left, double right) {
+			for (PointBD corner : cell) {
+				double dx = corner.getXVal() - site.getXVal();
+				double dy = corner.getYVal() - site.getYVal();
+				double distance = Math.sqrt(dx * dx + dy * dy);
+				if (corner.getXVal() - distance < left || corner.getXVal() + distance > right) return false;
+			}
+			return true;
+		}
+
+		/**
+		 * The first position in x order with an x of at least x
+		 */
+		private int lowerBound(double x) {
+			int lo = 0, hi = xs.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (xs[mid] < x) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+
+		/**
+		 * The first position in x order with an x more than x
+		 */
+		private int upperBound(double x) {
+			int lo = 0, hi = xs.length;
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (xs[mid] <= x) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+}
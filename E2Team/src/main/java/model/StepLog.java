@@ -0,0 +1,251 @@
+package model;
+
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import model.Canvas.VoronoiState;
+import model.math.LineBD;
+import model.math.PointBD;
+
+/**
+ * A record of each step a canvas went through, which can be played back from
+ * any step, forwards or backwards, without working anything out again.
+ *
+ * Each step only keeps the cells which changed since the step before, found
+ * from the version of each polygon. Every KEYFRAME_INTERVAL steps the whole
+ * set of cells is kept as well, so going to a step only has to replay the
+ * changes since the keyframe before it. Cells are kept as the java polygons
+ * the canvas already makes for drawing, which never change once made, along
+ * with the polygon each came from so it can be told apart from the others.
+ *
+ * @author mxw449
+ */
+public class StepLog {
+
+	/** How many steps there are between copies of every cell */
+	private static final int KEYFRAME_INTERVAL = 64;
+
+	private static final int[] NO_CHANGES = new int[0];
+
+	/** One state the canvas was in, and the cells which changed to get to it */
+	private static class Step {
+		VoronoiState state;
+		PointBD addingPoint;
+		LineBD bisection;
+		int trimming;
+		List<LineBD> addingEdges;
+
+		int size;
+		int[] changed;
+		Polygon[] changedCells;
+		VoronoiPolygon[] changedPolygons;
+		PointBD[] changedCentres;
+	}
+
+	private final List<Step> steps = new ArrayList<>();
+
+	/** Every cell, polygon and centre at each keyframe */
+	private final List<Polygon[]> keyCells = new ArrayList<>();
+	private final List<VoronoiPolygon[]> keyPolygons = new ArrayList<>();
+	private final List<PointBD[]> keyCentres = new ArrayList<>();
+
+	/** The polygons and their versions at the last step recorded */
+	private VoronoiPolygon[] lastPolygons = new VoronoiPolygon[0];
+	private int[] lastVersions = new int[0];
+	private Polygon[] cells = new Polygon[0];
+	private PointBD[] centres = new PointBD[0];
+	private int size;
+
+	/**
+	 * Record the state a canvas is in now
+	 */
+	synchronized void record(Canvas canvas) {
+		List<VoronoiPolygon> polygons = canvas.getPolygons();
+		int n = polygons.size();
+		if (n > lastPolygons.length) {
+			int capacity = Math.max(n, 2 * lastPolygons.length);
+			lastPolygons = Arrays.copyOf(lastPolygons, capacity);
+			lastVersions = Arrays.copyOf(lastVersions, capacity);
+			cells = Arrays.copyOf(cells, capacity);
+			centres = Arrays.copyOf(centres, capacity);
+		}
+
+		Step step = new Step();
+		step.state = canvas.getState();
+		step.addingPoint = canvas.getStateAddingPoint();
+		step.bisection = canvas.getStateBisectionLine();
+		step.trimming = -1;
+		VoronoiPolygon adding = canvas.getStateAddingPolygon();
+		step.addingEdges = adding == null ? null : Collections.unmodifiableList(new ArrayList<>(adding.getEdges()));
+
+		// Find the polygons which were replaced or have changed shape
+		int[] changed = NO_CHANGES;
+		int count = 0;
+		VoronoiPolygon trimming = canvas.getStateTrimmingPolygon();
+		for (int i = 0; i < n; i++) {
+			VoronoiPolygon poly = polygons.get(i);
+			if (poly == trimming) step.trimming = i;
+			if (i < size && poly == lastPolygons[i] && poly.getVersion() == lastVersions[i]) continue;
+
+			if (count == changed.length) changed = Arrays.copyOf(changed, Math.max(4, 2 * count));
+			changed[count++] = i;
+			lastPolygons[i] = poly;
+			lastVersions[i] = poly.getVersion();
+			cells[i] = poly.getJavaPolygon();
+			centres[i] = poly.getCentre();
+		}
+		for (int i = n; i < size; i++) {
+			lastPolygons[i] = null;
+			cells[i] = null;
+			centres[i] = null;
+		}
+		size = n;
+
+		step.size = n;
+		step.changed = Arrays.copyOf(changed, count);
+		step.changedCells = new Polygon[count];
+		step.changedPolygons = new VoronoiPolygon[count];
+		step.changedCentres = new PointBD[count];
+		for (int c = 0; c < count; c++) {
+			step.changedCells[c] = cells[changed[c]];
+			step.changedPolygons[c] = lastPolygons[changed[c]];
+			step.changedCentres[c] = centres[changed[c]];
+		}
+
+		if (steps.size() % KEYFRAME_INTERVAL == 0) {
+			keyCells.add(Arrays.copyOf(cells, n));
+			keyPolygons.add(Arrays.copyOf(lastPolygons, n));
+			keyCentres.add(Arrays.copyOf(centres, n));
+		}
+		steps.add(step);
+	}
+
+	/**
+	 * @return how many steps have been recorded
+	 */
+	public synchronized int size() {
+		return steps.size();
+	}
+
+	/**
+	 * Forget every step
+	 */
+	public synchronized void clear() {
+		steps.clear();
+		keyCells.clear();
+		keyPolygons.clear();
+		keyCentres.clear();
+		lastPolygons = new VoronoiPolygon[0];
+		lastVersions = new int[0];
+		cells = new Polygon[0];
+		centres = new PointBD[0];
+		size = 0;
+	}
+
+	/**
+	 * Work out what the canvas looked like at a step, starting from the
+	 * keyframe before it
+	 */
+	public synchronized Frame frameAt(int index) {
+		if (index < 0 || index >= steps.size()) throw new IndexOutOfBoundsException("No step " + index + " in a log of " + steps.size());
+
+		int key = index / KEYFRAME_INTERVAL;
+		Polygon[] frameCells = keyCells.get(key);
+		VoronoiPolygon[] framePolygons = keyPolygons.get(key);
+		PointBD[] frameCentres = keyCentres.get(key);
+		int frameSize = frameCells.length;
+		int from = key * KEYFRAME_INTERVAL + 1;
+		if (from <= index) {
+			frameCells = Arrays.copyOf(frameCells, Math.max(frameSize, maxSize(from, index)));
+			framePolygons = Arrays.copyOf(framePolygons, frameCells.length);
+			frameCentres = Arrays.copyOf(frameCentres, frameCells.length);
+			for (int s = from; s <= index; s++) {
+				Step step = steps.get(s);
+				for (int c = 0; c < step.changed.length; c++) {
+					frameCells[step.changed[c]] = step.changedCells[c];
+					framePolygons[step.changed[c]] = step.changedPolygons[c];
+					frameCentres[step.changed[c]] = step.changedCentres[c];
+				}
+				frameSize = step.size;
+			}
+		}
+
+		return new Frame(steps.get(index), Arrays.asList(frameCells).subList(0, frameSize), Arrays.asList(framePolygons).subList(0, frameSize),
+				Arrays.asList(frameCentres).subList(0, frameSize));
+	}
+
+	private int maxSize(int from, int to) {
+		int max = 0;
+		for (int s = from; s <= to; s++) {
+			max = Math.max(max, steps.get(s).size);
+		}
+		return max;
+	}
+
+	/**
+	 * What the canvas looked like at one step
+	 */
+	public static class Frame {
+		private final Step step;
+		private final List<Polygon> cells;
+		private final List<VoronoiPolygon> polygons;
+		private final List<PointBD> centres;
+
+		private Frame(Step step, List<Polygon> cells, List<VoronoiPolygon> polygons, List<PointBD> centres) {
+			this.step = step;
+			this.cells = Collections.unmodifiableList(cells);
+			this.polygons = Collections.unmodifiableList(polygons);
+			this.centres = Collections.unmodifiableList(centres);
+		}
+
+		public VoronoiState getState() {
+			return step.state;
+		}
+
+		/**
+		 * @return the cell of each polygon, in the order of the canvas'
+		 *         polygons at the time
+		 */
+		public List<Polygon> getCells() {
+			return cells;
+		}
+
+		/**
+		 * @return the polygon each cell was the shape of at the time, which
+		 *         may since have changed shape or been removed
+		 */
+		public List<VoronoiPolygon> getPolygons() {
+			return polygons;
+		}
+
+		public List<PointBD> getCentres() {
+			return centres;
+		}
+
+		public PointBD getAddingPoint() {
+			return step.addingPoint;
+		}
+
+		public LineBD getBisectionLine() {
+			return step.bisection;
+		}
+
+		/**
+		 * @return the cell being trimmed, or null if there isn't one
+		 */
+		public Polygon getTrimmingCell() {
+			return step.trimming < 0 ? null : cells.get(step.trimming);
+		}
+
+		/**
+		 * @return the edges of the polygon being added so far, or null if one
+		 *         isn't being added
+		 */
+		public List<LineBD> getAddingEdges() {
+			return step.addingEdges;
+		}
+	}
+}
@@ -0,0 +1,20 @@
+package model;
+
+import model.Canvas.VoronoiState;
+
+/**
+ * Decides when a canvas carries on after each step of building the diagram,
+ * so the steps can be shown one at a time.
+ * 
+ * @author mxw449
+ */
+public interface Stepper {
+
+	/**
+	 * Wait until the canvas is allowed to carry on
+	 * 
+	 * @param state
+	 *            the state the canvas has just got to
+	 */
+	void hold(VoronoiState state);
+}
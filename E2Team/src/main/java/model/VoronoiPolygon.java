@@ -1,19 +1,21 @@
 package model;
 
-import static model.math.MarginedBigDecimal.TWO;
-import static model.math.MarginedBigDecimal.ZERO;
-
 import java.awt.Polygon;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.PriorityQueue;
-import java.util.Queue;
+import java.util.Set;
 
+import model.math.ConvexClipper;
 import model.math.Helpers;
 import model.math.LineBD;
-import model.math.MarginedBigDecimal;
+import model.math.NumericKernel;
 import model.math.PointBD;
+import model.math.PointSet;
+import model.math.Predicates;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,15 +33,29 @@ public class VoronoiPolygon {
 	/** The canvas onto which this polygon is placed */
 	private final Canvas canvas;
 	
-	private final PointBD centre;
+	private PointBD centre;
 	private List<LineBD> edges;
 
+	/**
+	 * The corners in order around the polygon, anticlockwise in standard
+	 * coordinates (as Predicates.orientation), or null if it is only known as
+	 * a set of edges. Trimming keeps it up to date, so the corners never have
+	 * to be sorted.
+	 */
+	private List<PointBD> ring;
+
 	/** Stores whether the polygon has been modified since it was last drawn */
 	private boolean modified = true;
 
+	/** How many times the polygon has changed shape */
+	private int version;
+
 	/** The converted java polygon object */
 	private Polygon javaPoly = null;
 
+	/** The polygons which share an edge with this one */
+	private final List<VoronoiPolygon> neighbours = new ArrayList<>();
+
 	/**
 	 * Create a new VoronoiPolygon with a centre point and the canvas it is
 	 * being added to
@@ -62,415 +78,310 @@ public class VoronoiPolygon {
 	 */
 	public void addEdge(LineBD edge) {
 		this.modified = true;
+		version++;
 		edges.add(edge);
+		ring = null;
 	}
 
 	/**
-	 * Remove duplicate edges from the polygon. Debug method only. Shouldn't be
-	 * used in final product
+	 * Replace the edges with the sides of a ring of corners, in order either
+	 * way round
 	 */
-	public void removeDuplicateEdges() {
-		edges = Helpers.removeDuplicates(edges);
+	public void setRing(List<PointBD> ring) {
+		this.modified = true;
+		version++;
+		useRing(anticlockwise(new ArrayList<>(ring)));
 	}
 
 	/**
-	 * Get the bisection between the centre of the polygon, and a point p.
+	 * Keep a ring of corners, and make the edges its sides. Edge i always
+	 * goes from corner i to the next one.
 	 */
-	public LineBD getBisection(PointBD p) {
-
-		MarginedBigDecimal midX = (p.getX().add(centre.getX())).divide(TWO);
-		MarginedBigDecimal midY = (p.getY().add(centre.getY())).divide(TWO);
-
-		// If they are on the same Y location, the below code breaks
-		// Simply create a new line going from the top to the bottom of the
-		// canvas, along the mid-X coordinate
-		if (p.getY().equals(centre.getY())) {
-			PointBD p1 = new PointBD(midX, ZERO);
-			PointBD p2 = new PointBD(midX, canvas.getHeight());
-			return new LineBD(p1, p2);
+	private void useRing(List<PointBD> newRing) {
+		ring = newRing;
+		edges = new ArrayList<>(newRing.size());
+		for (int i = 0; i < newRing.size(); i++) {
+			edges.add(new LineBD(newRing.get(i), newRing.get((i + 1) % newRing.size())));
 		}
+	}
 
-		//calculates the bisection by first finding the midpoint between the centres
-		MarginedBigDecimal diffX = p.getX().subtract(centre.getX());
-		MarginedBigDecimal diffY = p.getY().subtract(centre.getY());
-		
-		//then calculates the gradient that is at a tangent to the line between the two centre points
-		MarginedBigDecimal gradient = diffX.negate().divide(diffY);
-		MarginedBigDecimal constant = midY.subtract(gradient.multiply(midX));
-		
-		//as we need the bisection as a line that goes thought the entire canvas, 
-		//we find where the line will intersect either the line y=0 or x=0
-		if (gradient.compareTo(canvas.getHeight().multiply(canvas.getWidth())) > 0) {
-			PointBD p1 = new PointBD(constant.negate().divide(gradient), ZERO);
-			MarginedBigDecimal n = canvas.getHeight().subtract(constant);
-			PointBD p2 = new PointBD(n.divide(gradient), canvas.getHeight());
-			return new LineBD(p1, p2);
-		} else {
-			PointBD p1 = new PointBD(ZERO, constant);
-			MarginedBigDecimal n = (gradient.multiply(canvas.getWidth())).add(constant);
-			PointBD p2 = new PointBD(canvas.getWidth(), n);
-			return new LineBD(p1, p2);
-		}
+	private static List<PointBD> anticlockwise(List<PointBD> corners) {
+		if (ConvexClipper.orientation(corners) < 0) Collections.reverse(corners);
+		return corners;
 	}
 
 	/**
-	 * Trim the polygon based on a new bisection produced by a new point. (ie
-	 * removes lines that are closer to another centre point)
+	 * Returns the polygons which share an edge with this one
 	 */
-	public void trim(LineBD boundedBisection) {
-		this.modified = true;
-
-		ArrayList<LineBD> newEdges = new ArrayList<>();
-
-		log.debug("Trimming with: {}", boundedBisection);
-
-		/*
-		 * works by drawing lines from each point in the polygon and the centre
-		 * if any of these lines crosses the bisection lines, then that point
-		 * needs to be removed and the lines altered. If both end points of a
-		 * line nneed to be removed, the whole line is removed
-		 */
-		for (LineBD currentEdge : edges) {
-
-			// Draw a line from each end of the edge to the centre point of the
-			// polygon.
-			// If this line crosses the intersection, we know that this line
-			// needs to be trimmed
-			LineBD p1toCentre = new LineBD(currentEdge.getP1(), centre);
-			LineBD p2toCentre = new LineBD(currentEdge.getP2(), centre);
-
-			boolean p1OverLine = p1toCentre.intersectsLine(boundedBisection);
-			boolean p2OverLine = p2toCentre.intersectsLine(boundedBisection);
-
-			if (p1OverLine && p2OverLine) {
-				log.debug("Removing whole line: {}", currentEdge);
-				// The line is "removed" by not adding it to the new edges
-			} else if (p1OverLine || p2OverLine) {
-				LineBD newEdge;
-
-				if (p1OverLine) {
-					if (currentEdge.contains(boundedBisection.getP1())) {
-						newEdge = new LineBD(currentEdge.getP2(), boundedBisection.getP1());
-						newEdges.add(newEdge);
-					} else {
-						newEdge = new LineBD(currentEdge.getP2(), boundedBisection.getP2());
-						newEdges.add(newEdge);
-					}
-				} else {
-					if (currentEdge.contains(boundedBisection.getP1())) {
-						newEdge = new LineBD(currentEdge.getP1(), boundedBisection.getP1());
-						newEdges.add(newEdge);
-					} else {
-						newEdge = new LineBD(currentEdge.getP1(), boundedBisection.getP2());
-						newEdges.add(newEdge);
-					}
-				}
-				log.debug("Removing part of line: {}", currentEdge);
-				log.debug("Added part line: {}", newEdge);
-			} else {
-				log.debug("Keeping whole line: {}", currentEdge);
-				newEdges.add(currentEdge);
-			}
-		}
-
-		newEdges.add(boundedBisection);
-		edges = newEdges;
-
+	public List<VoronoiPolygon> getNeighbours() {
+		return neighbours;
 	}
 
 	/**
-	 * Is the polygon complete? Are all of the edges joined?
+	 * Replace the polygons which share an edge with this one
 	 */
-	public boolean isCompleteWithoutEdges() {
-		if (this.edges.isEmpty()) {
-			return false;
-		}
-
-		// Get the number of edges on each side of the canvas
-		int[] borderEdges = borderEdges();
-
-		// If any of the edges has an odd number of edges on them, then the
-		// polygon cannot be complete
-		for (int i = 0; i < 4; i++) {
-			if (borderEdges[i] % 2 == 1) return false;
-		}
+	public void setNeighbours(List<VoronoiPolygon> newNeighbours) {
+		neighbours.clear();
+		neighbours.addAll(newNeighbours);
+	}
 
-		// Get all of the unjoined edges
-		List<PointBD> unjoined = getUnjoined();
-		int count = 0;
+	public void addNeighbour(VoronoiPolygon neighbour) {
+		neighbours.add(neighbour);
+	}
 
-		for (PointBD p : unjoined) {
-			if (p.getX().equals(ZERO) || p.getX().equals(canvas.getWidth()) || p.getY().equals(ZERO) || p.getY().equals(canvas.getHeight())) count++;
+	public void removeNeighbour(VoronoiPolygon neighbour) {
+		for (int i = 0; i < neighbours.size(); i++) {
+			if (neighbours.get(i) == neighbour) {
+				neighbours.remove(i);
+				return;
+			}
 		}
-
-		return count == unjoined.size();
 	}
 
 	/**
-	 * Returns the number of edges which should be on each side of the canvas
+	 * Remove duplicate edges from the polygon. Debug method only. Shouldn't be
+	 * used in final product
 	 */
-	private int[] borderEdges() {
-		// Each int represents how many edges are on an edge (left, top, right,
-		// bottom)
-		int[] numEdges = { 0, 0, 0, 0 };
-
-		// If the polygon should be on a corner, increment the edges
-		// accordingly. This is because there should be a line from the corner
-		// to a point on the edge, and without this the code would break.
-		if (canvas.getTopLeft().equals(this)) {
-			numEdges[0]++;
-			numEdges[1]++;
-		}
-		if (canvas.getTopRight().equals(this)) {
-			numEdges[1]++;
-			numEdges[2]++;
-		}
-		if (canvas.getBottomLeft().equals(this)) {
-			numEdges[0]++;
-			numEdges[3]++;
-		}
-		if (canvas.getBottomRight().equals(this)) {
-			numEdges[2]++;
-			numEdges[3]++;
+	public void removeDuplicateEdges() {
+		// The sides of a ring are never repeated
+		if (ring != null) return;
+
+		// Equal ends are swapped for the first copy of them, so two edges
+		// are the same if they join the same copies
+		PointSet ends = new PointSet(canvas.getKernel());
+		IdentityHashMap<PointBD, List<PointBD>> joined = new IdentityHashMap<>();
+		List<LineBD> unique = new ArrayList<>(edges.size());
+		for (LineBD edge : edges) {
+			PointBD p1 = ends.intern(edge.getP1()), p2 = ends.intern(edge.getP2());
+			List<PointBD> fromP1 = joined.get(p1), fromP2 = joined.get(p2);
+			if (fromP1 != null && containsSame(fromP1, p2)) continue;
+
+			if (fromP1 == null) joined.put(p1, fromP1 = new ArrayList<>(2));
+			if (fromP2 == null) joined.put(p2, fromP2 = new ArrayList<>(2));
+			fromP1.add(p2);
+			fromP2.add(p1);
+			unique.add(edge);
 		}
+		edges = unique;
+	}
 
-		// Then, go through the edges, looking for edges which touch a canvas
-		// border
-		for (LineBD e : edges) {
-			if (e.getX1().equals(ZERO) || e.getX2().equals(ZERO)) numEdges[0]++;
-			if (e.getX1().equals(canvas.getWidth()) || e.getX2().equals(canvas.getWidth())) numEdges[2]++;
-			if (e.getY1().equals(ZERO) || e.getY2().equals(ZERO)) numEdges[1]++;
-			if (e.getY1().equals(canvas.getHeight()) || e.getY2().equals(canvas.getHeight())) numEdges[3]++;
+	private static boolean containsSame(List<PointBD> points, PointBD p) {
+		for (PointBD q : points) {
+			if (q == p) return true;
 		}
-
-		return numEdges;
+		return false;
 	}
 
 	/**
-	 * Get all of the lines which are unjoined (they have at least one end
-	 * without another polygon connecting to it)
+	 * Get the bisection between the centre of the polygon, and a point p.
 	 */
-	public List<PointBD> getUnjoined() {
-		List<PointBD> unjoined = new ArrayList<>();
-
-		for (LineBD e : edges) {
-			boolean p1Joins = joinsWithOtherEdge(e, e.getP1());
-			boolean p2Joins = joinsWithOtherEdge(e, e.getP2());
-
-			if (!p1Joins) unjoined.add(e.getP1());
-			if (!p2Joins) unjoined.add(e.getP2());
-		}
-
-		return unjoined;
+	public LineBD getBisection(PointBD p) {
+		return canvas.getKernel().getBisection(centre, p, canvas.getWidth(), canvas.getHeight());
 	}
 
 	/**
-	 * Get all of the edges in the list that are on the border of the canvas
+	 * Trim the polygon based on a new bisection produced by a new point. (ie
+	 * removes the corners that are closer to another centre point)
 	 */
-	public List<PointBD> getOnBorder() {
-		List<PointBD> onBorder = new ArrayList<>();
-
-		for (LineBD e : edges) {
-
-			if (e.getX1().equals(ZERO) || e.getX1().equals(canvas.getWidth())) {
-				if (!onBorder.contains(e.getP1())) onBorder.add(e.getP1());
-			}
-			if (e.getY1().equals(ZERO) || e.getY1().equals(canvas.getHeight())) {
-				if (!onBorder.contains(e.getP1())) onBorder.add(e.getP1());
+	public void trim(LineBD boundedBisection) {
+		// A polygon only known as a set of edges is put in order first
+		if (ring == null) {
+			List<PointBD> corners = getCorners();
+			if (corners.size() < 3) {
+				log.error("Can't trim {}, which has only {} corners", centre, corners.size());
+				return;
 			}
+			useRing(anticlockwise(new ArrayList<>(corners)));
+		}
+		this.modified = true;
+		version++;
 
-			if (e.getX2().equals(ZERO) || e.getX2().equals(canvas.getWidth())) {
-				if (!onBorder.contains(e.getP2())) onBorder.add(e.getP2());
-			}
-			if (e.getY2().equals(ZERO) || e.getY2().equals(canvas.getHeight())) {
-				if (!onBorder.contains(e.getP2())) onBorder.add(e.getP2());
-			}
+		log.debug("Trimming with: {}", boundedBisection);
 
-		}
+		int centreSide = Predicates.sideOfLine(boundedBisection, centre);
+		if (trimRing(boundedBisection, centreSide)) return;
 
-		return onBorder;
+		// Clip the whole ring instead, which keeps it in order
+		List<PointBD> clipped = ConvexClipper.removeRepeats(ConvexClipper.clipToSide(ring, boundedBisection.getP1(), boundedBisection.getP2(), centreSide));
+		if (clipped.size() < 3) {
+			// Nothing would be left of the polygon, which only happens if the
+			// bisection was wrong, so the ring it had is kept
+			log.error("Trimming {} with {} left only {} corners, so it wasn't trimmed", centre, boundedBisection, clipped.size());
+			return;
+		}
+		useRing(clipped);
 	}
 
 	/**
-	 * Get if a line joins with another edge
+	 * Trim the ring of corners in place. The corners on the far side of the
+	 * bisection from the centre are one run round the ring, which is swapped
+	 * for the two ends of the bisection.
 	 * 
-	 * @param e1
-	 *            the line to check for
-	 * @param p
-	 *            the point from the line we are checking for
-	 * @return whether it joins or not
+	 * @return false if the ring couldn't be trimmed that way, such as when
+	 *         rounding has left it not quite convex, so it has to be clipped
+	 *         instead
 	 */
-	private boolean joinsWithOtherEdge(LineBD e1, PointBD p) {
-		for (LineBD e2 : edges) {
-			if (!e1.equals(e2) && (e2.getP1().equals(p) || e2.getP2().equals(p))) {
-				return true;
+	private boolean trimRing(LineBD boundedBisection, int centreSide) {
+		int k = ring.size();
+		if (centreSide == 0 || k < 3) return false;
+
+		// Find the run of corners on the far side
+		boolean[] far = new boolean[k];
+		int farCount = 0, runs = 0;
+		for (int i = 0; i < k; i++) {
+			far[i] = Predicates.sideOfLine(boundedBisection, ring.get(i)) == -centreSide;
+			if (far[i]) farCount++;
+		}
+		if (farCount == 0) return true;
+		if (farCount == k) return false;
+
+		int start = -1;
+		for (int i = 0; i < k; i++) {
+			if (far[i] && !far[(i + k - 1) % k]) {
+				start = i;
+				runs++;
 			}
 		}
+		if (runs != 1) return false;
+
+		// Go round from the first corner after the run to the last before it,
+		// then along the bisection, which has the centre on its left like
+		// every other side
+		PointBD before = ring.get((start + k - 1) % k);
+		PointBD after = ring.get((start + farCount) % k);
+		PointBD entry = boundedBisection.getP1(), exit = boundedBisection.getP2();
+		if (Predicates.orientation(entry, exit, centre) < 0) {
+			entry = boundedBisection.getP2();
+			exit = boundedBisection.getP1();
+		}
 
-		return false;
+		// The sides between the corners kept are kept as they are
+		int kept = k - farCount;
+		List<PointBD> newRing = new ArrayList<>(kept + 2);
+		List<LineBD> newEdges = new ArrayList<>(kept + 2);
+		for (int i = 0; i < kept; i++) {
+			int corner = (start + farCount + i) % k;
+			newRing.add(ring.get(corner));
+			if (i < kept - 1) newEdges.add(edges.get(corner));
+		}
+		// A bisection through a corner keeps the corner, instead of adding
+		// another a rounding error away from it
+		if (ConvexClipper.close(entry, before)) {
+			entry = before;
+		} else {
+			newEdges.add(new LineBD(before, entry));
+			newRing.add(entry);
+		}
+		if (ConvexClipper.close(exit, after)) exit = after;
+		newEdges.add(new LineBD(entry, exit));
+		if (exit != after) {
+			newRing.add(exit);
+			newEdges.add(new LineBD(exit, after));
+		}
+
+		log.debug("Trimmed {} corners from the ring", farCount);
+		ring = newRing;
+		edges = newEdges;
+		return true;
 	}
 
 	/**
-	 * Join a polygon with the borders of the canvas. uses the corners of the
-	 * canvas to check if whole border lines need adding each corner is assigned
-	 * to a polygon, and if a polygon should contain that corner, then it is
-	 * joined with it else is joined with the other point on the same line
+	 * Is the polygon complete? Are all of the edges joined?
 	 */
-	public void joinWithBorder() {
-		this.modified = true;
-
-		// Work out which corners need to be in the polygon, based on whether a
-		// corner has this polygon as its closest.
-		ArrayList<PointBD> cornersToAdd = new ArrayList<>();
-
-		if (canvas.getTopLeft().equals(this)) cornersToAdd.add(new PointBD(0, 0));
-		if (canvas.getTopRight().equals(this)) cornersToAdd.add(new PointBD(canvas.getWidth().intValue(), 0));
-		if (canvas.getBottomLeft().equals(this)) cornersToAdd.add(new PointBD(0, canvas.getHeight().intValue()));
-		if (canvas.getBottomRight().equals(this)) cornersToAdd.add(new PointBD(canvas.getWidth().intValue(), canvas.getHeight().intValue()));
-
-		ArrayList<LineBD> newEdges = new ArrayList<>();
-
-		// For each of these corners, work out which point to connect it to,
-		// then add this line to the polygon
-		for (int i = 0; i < cornersToAdd.size(); i++) {
-			for (int j = i + 1; j < cornersToAdd.size(); j++) {
-				PointBD p1 = cornersToAdd.get(i);
-				PointBD p2 = cornersToAdd.get(j);
-				if (p1.getX().equals(p2.getX()) || p1.getY().equals(p2.getY())) {
-					newEdges.add(new LineBD(p1, p2));
-				}
-			}
-		}
-
-		// Get all of the points which are on the border
-		List<PointBD> borderPoints = getOnBorder();
-		List<PointBD> bpToRemove = new ArrayList<PointBD>();
-
-		// Compare each of these points to the other border points
-		for (int i = 0; i < borderPoints.size(); i++) {
-			for (int j = i + 1; j < borderPoints.size(); j++) {
-
-				PointBD p1 = borderPoints.get(i);
-				PointBD p2 = borderPoints.get(j);
-
-				// If the two points are on the same X or same Y, create a new
-				// edge between them
-				if (p1.getX().equals(p2.getX()) || p1.getY().equals(p2.getY())) {
-					newEdges.add(new LineBD(p1, p2));
-					// Remove them from the list of border points
-					bpToRemove.add(p1);
-					bpToRemove.add(p2);
-				}
-			}
+	public boolean isCompleteWithoutEdges() {
+		if (getEdges().isEmpty()) {
+			return false;
 		}
 
-		log.debug("Corners to add: {}", cornersToAdd);
+		// A ring of corners is always closed
+		if (ring != null) return ring.size() >= 3;
 
-		// For all of the corners that need to be added...
-		for (PointBD p : cornersToAdd) {
-			log.debug("Checking corner : {}", p);
-
-			// Go through the remaining border points. If they are on the same X
-			// or Y, create an edge between them
-			for (int i = 0; i < borderPoints.size(); i++) {
-				PointBD bp = borderPoints.get(i);
-				if (p.getX().equals(bp.getX()) || p.getY().equals(bp.getY())) newEdges.add(new LineBD(p, bp));
+		// Otherwise every end has to be shared by exactly two edges. Equal
+		// ends are swapped for the first copy of them, so they can be counted.
+		PointSet ends = new PointSet(canvas.getKernel());
+		IdentityHashMap<PointBD, Integer> joins = new IdentityHashMap<>();
+		for (LineBD e : edges) {
+			for (PointBD p : new PointBD[] { ends.intern(e.getP1()), ends.intern(e.getP2()) }) {
+				Integer count = joins.get(p);
+				joins.put(p, count == null ? 1 : count + 1);
 			}
 		}
-
-		edges.addAll(newEdges);
+		for (int count : joins.values()) {
+			if (count != 2) return false;
+		}
+		return joins.size() >= 3;
 	}
 
 	/**
-	 * Get the two points in the polygon which a line intersects with
+	 * Get the part of the bisection with a point p which crosses the polygon.
+	 * It is worked out from the corners in order, like ConvexClipper, so
+	 * corners close to the bisection aren't taken as being on it.
 	 * 
-	 * @return A line where p1 and p2 are the two points where the line
-	 *         intersects
+	 * @return the line across the polygon, or null if the bisection doesn't
+	 *         cut any corners off
 	 */
-	public LineBD getIntersections(LineBD bisection) {
-
-		log.debug("Checking for intersections with: {}", bisection);
-
-		// Get all of the edges that intersect with the bisection
-		List<LineBD> intersecting = new ArrayList<>();
-		for (LineBD e : edges) {
-			if (e.intersectsLine(bisection)) {
-				intersecting.add(e);
-			}
+	public LineBD getCut(PointBD p) {
+		List<PointBD> corners = getCorners();
+		PointBD[] line = ConvexClipper.bisector(centre, p);
+		List<PointBD> kept = ConvexClipper.clipToSide(corners, line[0], line[1], Predicates.orientation(line[0], line[1], centre));
+
+		// The ends of the cut are the corners made by the clip, and any of the
+		// old ones right on the bisection
+		Set<PointBD> old = Collections.newSetFromMap(new IdentityHashMap<PointBD, Boolean>());
+		old.addAll(corners);
+		int removed = corners.size();
+		List<PointBD> ends = new ArrayList<>(2);
+		for (PointBD q : kept) {
+			boolean isOld = old.contains(q);
+			if (isOld) removed--;
+			if (!isOld || Predicates.orientation(line[0], line[1], q) == 0) ends.add(q);
 		}
 
-		log.debug("Found {} lines intersecting with bisection", intersecting.size());
+		// A bisection through a corner can cut off a sliver too small to
+		// matter, which would only leave the cut pointing the wrong way
+		if (removed == 0 || ends.size() < 2) return null;
+		PointBD first = ends.get(0), last = ends.get(ends.size() - 1);
+		return ConvexClipper.close(first, last) ? null : new LineBD(first, last);
+	}
 
-		if (intersecting.size() < 2) {
-			// If the bisection intersects with less than 2 lines, it means that
-			// the bisection is outside the polygon
-			return null;
+	/**
+	 * The corners of the polygon in order around it
+	 */
+	public List<PointBD> getCorners() {
+		// A ring already has its corners in order
+		if (ring != null) {
+			return Collections.unmodifiableList(ring);
 		}
-		if (intersecting.size() == 2) {
-			// If the bisection intersects with exactly 2 edges, use these two
-			// intersecting points.
-			LineBD intersectingLine1 = intersecting.get(0);
-			LineBD intersectingLine2 = intersecting.get(1);
-
-			PointBD intersectPoint1 = bisection.getIntersectionPoint(intersectingLine1);
-			PointBD intersectPoint2 = bisection.getIntersectionPoint(intersectingLine2);
-
-			if (intersectPoint1 == null || intersectPoint2 == null) return null;
-			return new LineBD(intersectPoint1, intersectPoint2);
-		} else if (intersecting.size() == 3 || intersecting.size() == 4) {
-			// In this case, the bisection is on one or two corners, and so we
-			// need to find out which points to use.
-
-			// Create a list of the ends of the edges without duplicates
-			ArrayList<PointBD> points = new ArrayList<PointBD>();
-
-			for (LineBD l : intersecting) {
-				PointBD p1 = l.getP1();
-				PointBD p2 = l.getP2();
-
-				if (!points.contains(p1)) points.add(p1);
-				if (!points.contains(p2)) points.add(p2);
-			}
 
-			// Find which of these are on the bisection
-			ArrayList<PointBD> pointsOnBisection = new ArrayList<PointBD>();
-			for (PointBD p : points) {
-				MarginedBigDecimal dist = bisection.getDistance(p);
-				if (dist.equals(ZERO)) pointsOnBisection.add(p);
-			}
+		// Get each of the edges' points (but only once)
+		final List<PointBD> points = new ArrayList<>();
+		PointSet added = new PointSet(canvas.getKernel());
+		for (LineBD e : getEdges()) {
+			if (added.add(e.getP1())) points.add(e.getP1());
+			if (added.add(e.getP2())) points.add(e.getP2());
+		}
 
-			if (pointsOnBisection.size() > 2) {
-				throw new ArithmeticException("More than 2 polygon points on the bisection. Something is horribly wrong!");
-			}
-			// If both are on the bisection, use these two points
-			if (pointsOnBisection.size() == 2) {
-				return new LineBD(pointsOnBisection.get(0), pointsOnBisection.get(1));
-			}
+		// Work out the angle of each point from the centre once, and sort the
+		// points by it (largest first)
+		final double[] angles = new double[points.size()];
+		Integer[] order = new Integer[points.size()];
+		for (int i = 0; i < order.length; i++) {
+			angles[i] = Helpers.pseudoAngle(centre, points.get(i));
+			order[i] = i;
+		}
 
-			// Else
-			// We know that the point on the bisection must be in the
-			// intersection. Ignore the lines containing this point, and find
-			// the intersection with the third line
-
-			PointBD p1 = pointsOnBisection.get(0);
-			LineBD searchLine = null;
-			for (LineBD l : intersecting) {
-				if (!l.getP1().equals(p1) && !l.getP2().equals(p1)) {
-					searchLine = l;
-					break;
-				}
+		Arrays.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Double.compare(angles[i2], angles[i1]);
 			}
+		});
 
-			// Get the intersection of this line and the bisection
-			PointBD p2 = searchLine.getIntersectionPoint(bisection);
-			return new LineBD(p1, p2);
-
+		List<PointBD> corners = new ArrayList<>(points.size());
+		for (Integer i : order) {
+			corners.add(points.get(i));
 		}
-
-		// Should never happen!
-		log.error("{}", intersecting);
-		throw new ArithmeticException("Too may intersecting lines!");
-
+		return corners;
 	}
 
 	/**
@@ -484,28 +395,9 @@ public class VoronoiPolygon {
 			return javaPoly;
 		}
 
-		// Create a queue of points, prioritising by angle to centre point
-		Queue<PointBD> allPoints = new PriorityQueue<>(new Comparator<PointBD>() {
-			@Override
-			public int compare(PointBD p1, PointBD p2) {
-				if (Helpers.angleBetweenPoints(centre, p2) > Helpers.angleBetweenPoints(centre, p1)) return 1;
-				return -1;
-			}
-		});
-
-		// Add in all the edges points (but only once)
-		for (LineBD e : edges) {
-			if (!allPoints.contains(e.getP1())) allPoints.add(e.getP1());
-			if (!allPoints.contains(e.getP2())) allPoints.add(e.getP2());
-		}
-
 		// Create the new polygon, and add the points to it
 		Polygon javaPolygon = new Polygon();
-		while (!allPoints.isEmpty()) {
-			PointBD p = allPoints.poll();
-
-			// log.debug("Adding this point to the polygon: {}", p);
-
+		for (PointBD p : getCorners()) {
 			javaPolygon.addPoint((int) p.getXVal(), (int) p.getYVal());
 		}
 
@@ -518,12 +410,38 @@ public class VoronoiPolygon {
 
 	public void notifyModified() {
 		this.modified = true;
+		version++;
+	}
+
+	/**
+	 * @return a number which goes up each time the polygon changes shape
+	 */
+	public int getVersion() {
+		return version;
 	}
 
 	public PointBD getCentre() {
 		return centre;
 	}
 
+	/**
+	 * Move the centre, when the canvas relaxes the points. The ring has to be
+	 * set again to go with it.
+	 */
+	void moveCentre(PointBD newCentre) {
+		centre = newCentre;
+	}
+
+	/**
+	 * Based on the centre only, as the edges change while the polygon is
+	 * being trimmed. Like a point's, it is the same for every polygon, so
+	 * polygons should be kept in identity maps.
+	 */
+	@Override
+	public int hashCode() {
+		return centre.hashCode();
+	}
+
 	/**
 	 * Are two VoronoiPolygons equal?
 	 */
@@ -534,12 +452,16 @@ public class VoronoiPolygon {
 
 		VoronoiPolygon poly = (VoronoiPolygon) obj;
 
-		if (!centre.equals(poly.centre)) return false;
+		NumericKernel kernel = canvas.getKernel();
 
-		if (edges.size() != poly.edges.size()) return false;
+		if (!kernel.equal(centre, poly.centre)) return false;
 
-		for (int i = 0; i < edges.size(); i++) {
-			if (!edges.get(i).equals(poly.edges.get(i))) return false;
+		List<LineBD> thisEdges = getEdges();
+		List<LineBD> otherEdges = poly.getEdges();
+		if (thisEdges.size() != otherEdges.size()) return false;
+
+		for (int i = 0; i < thisEdges.size(); i++) {
+			if (!kernel.equal(thisEdges.get(i), otherEdges.get(i))) return false;
 		}
 
 		return true;
@@ -551,16 +473,16 @@ public class VoronoiPolygon {
 	 */
 	public String toString() {
 		String toString = "Polygon\n" + "centre: " + centre + "\nEdges:\n";
-		for (LineBD edge : edges) {
+		for (LineBD edge : getEdges()) {
 			toString += edge;
 			toString += ("\n");
 		}
 
 		toString += "Corners:";
-		if (canvas.getTopLeft().equals(this)) toString += "\tTop Left";
-		if (canvas.getTopRight().equals(this)) toString += "\tTop Right";
-		if (canvas.getBottomLeft().equals(this)) toString += "\tBottom Left";
-		if (canvas.getBottomRight().equals(this)) toString += "\tBottom Right";
+		if (canvas.getTopLeft() == this) toString += "\tTop Left";
+		if (canvas.getTopRight() == this) toString += "\tTop Right";
+		if (canvas.getBottomLeft() == this) toString += "\tBottom Left";
+		if (canvas.getBottomRight() == this) toString += "\tBottom Right";
 
 		return (toString);
 	}
@@ -0,0 +1,90 @@
+package model.math;
+
+import static model.math.MarginedBigDecimal.TWO;
+import static model.math.MarginedBigDecimal.ZERO;
+
+/**
+ * The reference kernel. Does all of its calculations with
+ * MarginedBigDecimals.
+ * 
+ * @author mxw449
+ */
+public class BigDecimalKernel implements NumericKernel {
+
+	@Override
+	public boolean equal(PointBD p1, PointBD p2) {
+		return p1.equals(p2);
+	}
+
+	@Override
+	public boolean sameX(PointBD p1, PointBD p2) {
+		return p1.getX().equals(p2.getX());
+	}
+
+	@Override
+	public boolean sameY(PointBD p1, PointBD p2) {
+		return p1.getY().equals(p2.getY());
+	}
+
+	@Override
+	public boolean xEquals(PointBD p, MarginedBigDecimal x) {
+		return p.getX().equals(x);
+	}
+
+	@Override
+	public boolean yEquals(PointBD p, MarginedBigDecimal y) {
+		return p.getY().equals(y);
+	}
+
+	@Override
+	public boolean equal(LineBD l1, LineBD l2) {
+		return l1.equals(l2);
+	}
+
+	@Override
+	public boolean onLine(LineBD line, PointBD p) {
+		return line.getDistance(p).equals(ZERO);
+	}
+
+	@Override
+	public int compareDistances(PointBD origin, PointBD p1, PointBD p2) {
+		return origin.getDistanceSqrd(p1).compareTo(origin.getDistanceSqrd(p2));
+	}
+
+	@Override
+	public LineBD getBisection(PointBD centre, PointBD p, MarginedBigDecimal width, MarginedBigDecimal height) {
+		MarginedBigDecimal midX = (p.getX().add(centre.getX())).divide(TWO);
+		MarginedBigDecimal midY = (p.getY().add(centre.getY())).divide(TWO);
+
+		// If they are on the same Y location, the below code breaks
+		// Simply create a new line going from the top to the bottom of the
+		// canvas, along the mid-X coordinate
+		if (p.getY().equals(centre.getY())) {
+			PointBD p1 = new PointBD(midX, ZERO);
+			PointBD p2 = new PointBD(midX, height);
+			return new LineBD(p1, p2);
+		}
+
+		//calculates the bisection by first finding the midpoint between the centres
+		MarginedBigDecimal diffX = p.getX().subtract(centre.getX());
+		MarginedBigDecimal diffY = p.getY().subtract(centre.getY());
+
+		//then calculates the gradient that is at a tangent to the line between the two centre points
+		MarginedBigDecimal gradient = diffX.negate().divide(diffY);
+		MarginedBigDecimal constant = midY.subtract(gradient.multiply(midX));
+
+		//as we need the bisection as a line that goes thought the entire canvas,
+		//we find where the line will intersect either the line y=0 or x=0
+		if (gradient.compareTo(height.multiply(width)) > 0) {
+			PointBD p1 = new PointBD(constant.negate().divide(gradient), ZERO);
+			MarginedBigDecimal n = height.subtract(constant);
+			PointBD p2 = new PointBD(n.divide(gradient), height);
+			return new LineBD(p1, p2);
+		} else {
+			PointBD p1 = new PointBD(ZERO, constant);
+			MarginedBigDecimal n = (gradient.multiply(width)).add(constant);
+			PointBD p2 = new PointBD(width, n);
+			return new LineBD(p1, p2);
+		}
+	}
+}
@@ -0,0 +1,142 @@
+package model.math;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Clips polygons against a convex boundary, one side of the boundary at a
+ * time (Sutherland-Hodgman). The polygons are lists of points in order
+ * around the outside, either way round.
+ * 
+ * @author mxw449
+ */
+public class ConvexClipper {
+
+	/** How close two corners have to be to count as the same corner */
+	private static final double REPEAT_DISTANCE = 1e-6;
+
+	/**
+	 * Clip a polygon so that only the part inside a convex boundary remains
+	 * 
+	 * @return the clipped polygon, which is empty if none of it was inside
+	 */
+	public static List<PointBD> clip(List<PointBD> polygon, List<PointBD> boundary) {
+		int orientation = orientation(boundary);
+
+		List<PointBD> result = polygon;
+		for (int i = 0; i < boundary.size() && !result.isEmpty(); i++) {
+			PointBD a = boundary.get(i);
+			PointBD b = boundary.get((i + 1) % boundary.size());
+			result = clipToSide(result, a, b, orientation);
+		}
+
+		return result;
+	}
+
+	/**
+	 * Keep the part of a polygon which is on one side of the line through a
+	 * and b.
+	 * 
+	 * @param side
+	 *            the side to keep, as returned by Predicates.orientation
+	 */
+	public static List<PointBD> clipToSide(List<PointBD> polygon, PointBD a, PointBD b, int side) {
+		List<PointBD> result = new ArrayList<>(polygon.size() + 1);
+
+		for (int i = 0; i < polygon.size(); i++) {
+			PointBD current = polygon.get(i);
+			PointBD next = polygon.get((i + 1) % polygon.size());
+
+			int currentSide = Predicates.orientation(a, b, current);
+			int nextSide = Predicates.orientation(a, b, next);
+			boolean currentInside = currentSide == side || currentSide == 0;
+			boolean nextInside = nextSide == side || nextSide == 0;
+
+			if (currentInside) result.add(current);
+
+			// The edge crosses the line, so add the crossing point. It is
+			// worked out with the ends of the edge in a fixed order, so the
+			// cell on the other side of the edge gets exactly the same point.
+			if (currentSide != 0 && nextSide != 0 && currentInside != nextInside) {
+				boolean inOrder = current.getXVal() < next.getXVal() || (current.getXVal() == next.getXVal() && current.getYVal() < next.getYVal());
+				PointBD crossing = inOrder ? Predicates.lineIntersection(a, b, current, next) : Predicates.lineIntersection(a, b, next, current);
+				if (crossing != null) result.add(snap(crossing, a, b, current, next));
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Put a crossing point exactly on any horizontal or vertical line it was
+	 * worked out from, so crossings with the border of the canvas are right
+	 * on the border rather than a rounding error either side of it
+	 */
+	private static PointBD snap(PointBD crossing, PointBD a, PointBD b, PointBD current, PointBD next) {
+		double x = crossing.getXVal(), y = crossing.getYVal();
+		if (a.getXVal() == b.getXVal()) x = a.getXVal();
+		if (a.getYVal() == b.getYVal()) y = a.getYVal();
+		if (current.getXVal() == next.getXVal()) x = current.getXVal();
+		if (current.getYVal() == next.getYVal()) y = current.getYVal();
+		return x == crossing.getXVal() && y == crossing.getYVal() ? crossing : new PointBD(x, y);
+	}
+
+	/**
+	 * Keep the part of a polygon which is closer to site than to other
+	 */
+	public static List<PointBD> clipToCloser(List<PointBD> polygon, PointBD site, PointBD other) {
+		PointBD[] line = bisector(site, other);
+		return clipToSide(polygon, line[0], line[1], Predicates.orientation(line[0], line[1], site));
+	}
+
+	/**
+	 * Two points on the bisector of site and other, which clipToCloser clips
+	 * along
+	 */
+	public static PointBD[] bisector(PointBD site, PointBD other) {
+		// The bisector passes through the midpoint, at right angles to the
+		// line between the two sites
+		double midX = (site.getXVal() + other.getXVal()) / 2;
+		double midY = (site.getYVal() + other.getYVal()) / 2;
+		double dirX = -(other.getYVal() - site.getYVal());
+		double dirY = other.getXVal() - site.getXVal();
+
+		return new PointBD[] { new PointBD(midX, midY), new PointBD(midX + dirX, midY + dirY) };
+	}
+
+	/**
+	 * Drop points which are right next to the point before them, such as the
+	 * same corner found twice where more than three cells meet
+	 */
+	public static List<PointBD> removeRepeats(List<PointBD> ring) {
+		List<PointBD> result = new ArrayList<>(ring.size());
+		for (PointBD p : ring) {
+			if (result.isEmpty() || !close(result.get(result.size() - 1), p)) result.add(p);
+		}
+		while (result.size() > 1 && close(result.get(0), result.get(result.size() - 1))) {
+			result.remove(result.size() - 1);
+		}
+		return result;
+	}
+
+	/**
+	 * Are two corners close enough to count as the same corner?
+	 */
+	public static boolean close(PointBD p1, PointBD p2) {
+		return Math.abs(p1.getXVal() - p2.getXVal()) < REPEAT_DISTANCE && Math.abs(p1.getYVal() - p2.getYVal()) < REPEAT_DISTANCE;
+	}
+
+	/**
+	 * Which way round a polygon goes, in the same sense as
+	 * Predicates.orientation
+	 */
+	public static int orientation(List<PointBD> polygon) {
+		double area = 0;
+		for (int i = 0; i < polygon.size(); i++) {
+			PointBD p1 = polygon.get(i);
+			PointBD p2 = polygon.get((i + 1) % polygon.size());
+			area += p1.getXVal() * p2.getYVal() - p2.getXVal() * p1.getYVal();
+		}
+		return area > 0 ? 1 : area < 0 ? -1 : 0;
+	}
+}
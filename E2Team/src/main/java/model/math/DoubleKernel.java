@@ -0,0 +1,85 @@
+package model.math;
+
+/**
+ * A kernel which does all of its calculations on primitive doubles, using the
+ * same margin of error as MarginedBigDecimal. Doesn't allocate any
+ * BigDecimals, so it is much quicker for large diagrams.
+ * 
+ * @author mxw449
+ */
+public class DoubleKernel implements NumericKernel {
+
+	/** Margin of error for comparisons */
+	private static final double MARGIN_OF_ERROR = MarginedBigDecimal.marginOfError();
+
+	/**
+	 * Are two doubles equal within the margin of error?
+	 */
+	private static boolean equal(double a, double b) {
+		return Math.abs(a - b) < MARGIN_OF_ERROR;
+	}
+
+	@Override
+	public boolean equal(PointBD p1, PointBD p2) {
+		return equal(p1.getXVal(), p2.getXVal()) && equal(p1.getYVal(), p2.getYVal());
+	}
+
+	@Override
+	public boolean sameX(PointBD p1, PointBD p2) {
+		return equal(p1.getXVal(), p2.getXVal());
+	}
+
+	@Override
+	public boolean sameY(PointBD p1, PointBD p2) {
+		return equal(p1.getYVal(), p2.getYVal());
+	}
+
+	@Override
+	public boolean xEquals(PointBD p, MarginedBigDecimal x) {
+		return equal(p.getXVal(), x.value());
+	}
+
+	@Override
+	public boolean yEquals(PointBD p, MarginedBigDecimal y) {
+		return equal(p.getYVal(), y.value());
+	}
+
+	@Override
+	public boolean equal(LineBD l1, LineBD l2) {
+		return (equal(l1.getP1(), l2.getP1()) && equal(l1.getP2(), l2.getP2())) || (equal(l1.getP1(), l2.getP2()) && equal(l1.getP2(), l2.getP1()));
+	}
+
+	@Override
+	public boolean onLine(LineBD line, PointBD p) {
+		return line.getLine2D().ptSegDist(p.getXVal(), p.getYVal()) < MARGIN_OF_ERROR;
+	}
+
+	@Override
+	public int compareDistances(PointBD origin, PointBD p1, PointBD p2) {
+		return Double.compare(origin.getDistanceSqrdVal(p1), origin.getDistanceSqrdVal(p2));
+	}
+
+	@Override
+	public LineBD getBisection(PointBD centre, PointBD p, MarginedBigDecimal widthBD, MarginedBigDecimal heightBD) {
+		double width = widthBD.value();
+		double height = heightBD.value();
+
+		double midX = (p.getXVal() + centre.getXVal()) / 2;
+		double midY = (p.getYVal() + centre.getYVal()) / 2;
+
+		// Same Y location, so the bisection is vertical
+		if (equal(p.getYVal(), centre.getYVal())) {
+			return new LineBD(midX, 0, midX, height);
+		}
+
+		double gradient = -(p.getXVal() - centre.getXVal()) / (p.getYVal() - centre.getYVal());
+		double constant = midY - gradient * midX;
+
+		// Steep lines go from y=0 to y=height, others from x=0 to x=width
+		if (gradient > height * width) {
+			return new LineBD(-constant / gradient, 0, (height - constant) / gradient, height);
+		} else {
+			return new LineBD(0, constant, width, gradient * width + constant);
+		}
+	}
+}
@@ -0,0 +1,137 @@
+package model.math;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * A kernel for points with integer coordinates, such as those made by the
+ * point generators and mouse clicks. Distances between integer points, and
+ * the bisection between them, are worked out exactly with long arithmetic;
+ * each end of a bisection is a fraction of two longs, and is only rounded
+ * once when it is turned into a double.
+ * 
+ * Points that don't have integer coordinates (such as the ends of trimmed
+ * edges) are handled in the same way as the DoubleKernel.
+ * 
+ * @author mxw449
+ */
+public class ExactKernel extends DoubleKernel {
+
+	/**
+	 * Largest coordinate handled exactly. Keeps every product below well
+	 * inside the range of a long.
+	 */
+	private static final double MAX_EXACT_COORDINATE = 1 << 24;
+
+	@Override
+	public int compareDistances(PointBD origin, PointBD p1, PointBD p2) {
+		if (!isInteger(origin) || !isInteger(p1) || !isInteger(p2)) {
+			return super.compareDistances(origin, p1, p2);
+		}
+
+		return Long.compare(distanceSqrd(origin, p1), distanceSqrd(origin, p2));
+	}
+
+	@Override
+	public LineBD getBisection(PointBD centre, PointBD p, MarginedBigDecimal widthBD, MarginedBigDecimal heightBD) {
+		if (!isInteger(centre) || !isInteger(p) || !isInteger(widthBD.value()) || !isInteger(heightBD.value())) {
+			return super.getBisection(centre, p, widthBD, heightBD);
+		}
+
+		long width = (long) widthBD.value();
+		long height = (long) heightBD.value();
+
+		// The bisection is the line a*x + b*y = c
+		long a = 2 * ((long) p.getXVal() - (long) centre.getXVal());
+		long b = 2 * ((long) p.getYVal() - (long) centre.getYVal());
+		long c = squaredLength(p) - squaredLength(centre);
+
+		// Same Y location, so the bisection is vertical
+		if (b == 0) {
+			double x = ratio(c, a);
+			return new LineBD(x, 0, x, height);
+		}
+
+		try {
+			// Steep lines go from y=0 to y=height, others from x=0 to x=width.
+			// The gradient is -a/b, which is compared without dividing.
+			long area = multiply(width, height);
+			boolean steep = b > 0 ? -a > multiply(area, b) : -a < multiply(area, b);
+
+			if (steep) {
+				return new LineBD(ratio(c, a), 0, ratio(subtract(c, multiply(b, height)), a), height);
+			} else {
+				return new LineBD(0, ratio(c, b), width, ratio(subtract(c, multiply(a, width)), b));
+			}
+		} catch (ArithmeticException e) {
+			// The canvas is too big to do this exactly
+			return super.getBisection(centre, p, widthBD, heightBD);
+		}
+	}
+
+	/**
+	 * a * b, throwing an ArithmeticException if it doesn't fit in a long
+	 */
+	private static long multiply(long a, long b) {
+		long r = a * b;
+		if (((Math.abs(a) | Math.abs(b)) >>> 31) != 0) {
+			// Only big numbers can overflow, so only they need dividing back
+			if ((b != 0 && r / b != a) || (a == Long.MIN_VALUE && b == -1)) {
+				throw new ArithmeticException("long overflow");
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * a - b, throwing an ArithmeticException if it doesn't fit in a long
+	 */
+	private static long subtract(long a, long b) {
+		long r = a - b;
+		// Overflow if a and b have different signs and r's sign isn't a's
+		if (((a ^ b) & (a ^ r)) < 0) {
+			throw new ArithmeticException("long overflow");
+		}
+		return r;
+	}
+
+	/**
+	 * Square of the distance between two integer points
+	 */
+	private static long distanceSqrd(PointBD p1, PointBD p2) {
+		long dx = (long) p1.getXVal() - (long) p2.getXVal();
+		long dy = (long) p1.getYVal() - (long) p2.getYVal();
+		return dx * dx + dy * dy;
+	}
+
+	/**
+	 * Square of the distance from the origin to an integer point
+	 */
+	private static long squaredLength(PointBD p) {
+		long x = (long) p.getXVal();
+		long y = (long) p.getYVal();
+		return x * x + y * y;
+	}
+
+	/**
+	 * num / den as a double. Rounded only once unless the numbers are too big
+	 * to fit in a double exactly.
+	 */
+	private static double ratio(long num, long den) {
+		if (Math.abs(num) < (1L << 53) && Math.abs(den) < (1L << 53)) {
+			return (double) num / (double) den;
+		}
+		return new BigDecimal(num).divide(new BigDecimal(den), MathContext.DECIMAL128).doubleValue();
+	}
+
+	/**
+	 * Can a point be handled exactly?
+	 */
+	private static boolean isInteger(PointBD p) {
+		return isInteger(p.getXVal()) && isInteger(p.getYVal());
+	}
+
+	private static boolean isInteger(double d) {
+		return d == Math.rint(d) && Math.abs(d) <= MAX_EXACT_COORDINATE;
+	}
+}
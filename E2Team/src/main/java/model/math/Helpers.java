@@ -1,8 +1,5 @@
 package model.math;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * A number of helpers methods
  * 
@@ -25,17 +22,19 @@ public class Helpers {
 	}
 
 	/**
-	 * Remove all duplicates from a list
+	 * A number between 0 and 4 which increases with the angle between two
+	 * points in the same way as angleBetweenPoints, without any
+	 * trigonometry. Only useful for ordering points by angle.
 	 */
-	public static <E> List<E> removeDuplicates(List<E> list) {
-		List<E> ret = new ArrayList<E>();
-
-		for (int i = 0; i < list.size(); i++) {
-			if (!ret.contains(list.get(i))) ret.add(list.get(i));
-		}
+	public static double pseudoAngle(PointBD p1, PointBD p2) {
+		double dx = p2.getXVal() - p1.getXVal();
+		double dy = p2.getYVal() - p1.getYVal();
+		double sum = Math.abs(dx) + Math.abs(dy);
 
-		return ret;
+		if (sum == 0) return 0;
 
+		double p = dx / sum;
+		return dy < 0 ? 3 + p : 1 - p;
 	}
 
 }
@@ -51,10 +51,11 @@ public class LineBD {
 	}
 
 	/**
-	 * Do these two lines intersect?
+	 * Do these two lines intersect? Uses exact predicates, so the answer is
+	 * right even when the lines only just touch.
 	 */
 	public boolean intersectsLine(LineBD other) {
-		return this.getLine2D().intersectsLine(other.getLine2D());
+		return Predicates.segmentsIntersect(this, other);
 	}
 
 	/**
@@ -133,6 +134,14 @@ public class LineBD {
 		return (pbd.p1.equals(p1) && pbd.p2.equals(p2)) || (pbd.p1.equals(p2) && pbd.p2.equals(p1));
 	}
 
+	/**
+	 * The same for every line, as it is for every point
+	 */
+	@Override
+	public int hashCode() {
+		return 0;
+	}
+
 	@Override
 	public String toString() {
 		return "LineBD(" + p1 + " to " + p2 + ")";
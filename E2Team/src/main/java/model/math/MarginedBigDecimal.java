@@ -7,7 +7,13 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 
 /**
- * A BigDecimal class which calculates equality based on a threshold
+ * A BigDecimal class which calculates equality based on a threshold.
+ * 
+ * Alongside the BigDecimal, each instance carries a double approximation of
+ * its value and a bound on how far that approximation can be out. Both are
+ * worked out with plain double arithmetic as the numbers are calculated, so
+ * equals and compareTo can usually be decided without touching the
+ * BigDecimals at all.
  * 
  * @author mxw449
  */
@@ -24,74 +30,109 @@ public class MarginedBigDecimal {
 	/** How to format the number when printing */
 	private static final NumberFormat NUMBER_FORMAT = new DecimalFormat("0.00000");
 
+	/** Most that rounding to the stored scale can change a number by */
+	private static final double SCALE_ERROR = Math.pow(10, -PRECISION_STORE);
+
+	/** Most that rounding to the stored precision can change a number by, relative to its size */
+	private static final double PRECISION_ERROR = Math.pow(10, 1 - PRECISION_STORE);
+
 	/** Margin of error for comparisons */
 	private static final MarginedBigDecimal MARGIN_OF_ERROR = new MarginedBigDecimal(1).pow(-PRECISION_COMPARISON);
 
 	/** Constants for ease of use */
 	public static final MarginedBigDecimal ZERO = new MarginedBigDecimal(0);
 	public static final MarginedBigDecimal TWO = new MarginedBigDecimal(2);
-	
-	private BigDecimal bd;
 
-	private MarginedBigDecimal(BigDecimal val) {
+	private final BigDecimal bd;
+
+	/** Double approximation of bd, and the most it can differ from bd by */
+	private final double approx, error;
+
+	/** The exact double value of bd, worked out the first time it's needed */
+	private double exact;
+	private volatile boolean hasExact;
+
+	private MarginedBigDecimal(BigDecimal val, double approx, double error) {
 		this.bd = val.setScale(PRECISION_STORE, ROUNDING_MODE);
+		this.approx = approx;
+		this.error = error + SCALE_ERROR;
 	}
 
 	public MarginedBigDecimal(double val) {
 		this.bd = new BigDecimal(val, mc);
+		this.approx = val;
+		this.error = Math.abs(val) * PRECISION_ERROR;
 	}
 
 	public MarginedBigDecimal(int val) {
 		this.bd = new BigDecimal(val, mc);
+		this.approx = val;
+		this.error = 0;
 	}
 
 	/**
 	 * Add two MarginedBigDecimals
 	 */
 	public MarginedBigDecimal add(MarginedBigDecimal other) {
-		return new MarginedBigDecimal(this.bd.add(other.bd));
+		double sum = this.approx + other.approx;
+		return new MarginedBigDecimal(this.bd.add(other.bd), sum, this.error + other.error + Math.ulp(sum));
 	}
 
 	/**
 	 * Subtract two MarginedBigDecimals
 	 */
 	public MarginedBigDecimal subtract(MarginedBigDecimal other) {
-		return new MarginedBigDecimal(this.bd.subtract(other.bd));
+		double difference = this.approx - other.approx;
+		return new MarginedBigDecimal(this.bd.subtract(other.bd), difference, this.error + other.error + Math.ulp(difference));
 	}
 
 	/**
 	 * Multiply two MarginedBigDecimals
 	 */
 	public MarginedBigDecimal multiply(MarginedBigDecimal other) {
-		return new MarginedBigDecimal(this.bd.multiply(other.bd));
+		double product = this.approx * other.approx;
+		double productError = Math.abs(this.approx) * other.error + Math.abs(other.approx) * this.error + this.error * other.error;
+		return new MarginedBigDecimal(this.bd.multiply(other.bd), product, productError + Math.ulp(product));
 	}
 
 	/**
 	 * Divide two MarginedBigDecimals
 	 */
 	public MarginedBigDecimal divide(MarginedBigDecimal other) {
-		return new MarginedBigDecimal(this.bd.divide(other.bd, PRECISION_STORE, ROUNDING_MODE));
+		double quotient = this.approx / other.approx;
+		double divisorLow = Math.abs(other.approx) - other.error;
+		double quotientError = divisorLow > 0 ? (this.error + Math.abs(quotient) * other.error) / divisorLow + Math.ulp(quotient) : Double.POSITIVE_INFINITY;
+		return new MarginedBigDecimal(this.bd.divide(other.bd, PRECISION_STORE, ROUNDING_MODE), quotient, quotientError);
 	}
 
 	/**
 	 * Negate a MarginedBigDecimal
 	 */
 	public MarginedBigDecimal negate() {
-		return new MarginedBigDecimal(this.bd.negate());
+		return new MarginedBigDecimal(this.bd.negate(), -this.approx, this.error);
 	}
 
 	/**
 	 * (this ^ n) as a MarginedBigDecimal 
 	 */
 	public MarginedBigDecimal pow(int n) {
-		return new MarginedBigDecimal(this.bd.pow(n, mc));
+		BigDecimal result = this.bd.pow(n, mc);
+		if (n == 2) {
+			double square = this.approx * this.approx;
+			double squareError = 2 * Math.abs(this.approx) * this.error + this.error * this.error;
+			return new MarginedBigDecimal(result, square, squareError + Math.abs(square) * PRECISION_ERROR + Math.ulp(square));
+		}
+
+		// Other powers are rare, so just use the exact value
+		double value = result.doubleValue();
+		return new MarginedBigDecimal(result, value, Math.abs(value) * PRECISION_ERROR + Math.ulp(value));
 	}
 
 	/**
 	 * The absolute value of a MarginedBigDecimal
 	 */
 	public MarginedBigDecimal abs() {
-		return new MarginedBigDecimal(this.bd.abs());
+		return new MarginedBigDecimal(this.bd.abs(), Math.abs(this.approx), this.error);
 	}
 
 	/**
@@ -99,6 +140,13 @@ public class MarginedBigDecimal {
 	 * @return 0 if equal, negative if other > this, positive if this > other
 	 */
 	public int compareTo(MarginedBigDecimal other) {
+		// If the approximations are further apart than their errors, they
+		// must be in the same order as the real values
+		double difference = this.approx - other.approx;
+		double bound = this.error + other.error + Math.ulp(difference);
+		if (difference > bound) return 1;
+		if (-difference > bound) return -1;
+
 		return this.bd.compareTo(other.bd);
 	}
 
@@ -106,7 +154,13 @@ public class MarginedBigDecimal {
 	 * @return The double value of this MarginedBigDecimal
 	 */
 	public double value() {
-		return this.bd.doubleValue();
+		if (this.error == 0) return this.approx;
+
+		if (!hasExact) {
+			exact = this.bd.doubleValue();
+			hasExact = true;
+		}
+		return exact;
 	}
 
 	/**
@@ -116,15 +170,38 @@ public class MarginedBigDecimal {
 		return (int) value();
 	}
 
+	/**
+	 * @return The margin of error used for comparisons, as a double
+	 */
+	public static double marginOfError() {
+		return MARGIN_OF_ERROR.value();
+	}
+
 	public boolean equals(Object x) {
 		if (!(x instanceof MarginedBigDecimal)) {
 			return false;
 		}
 
 		MarginedBigDecimal other = (MarginedBigDecimal) x;
-		MarginedBigDecimal difference = subtract(other).abs();
 
-		return difference.compareTo(MARGIN_OF_ERROR) < 0;
+		// Decide using the approximations unless the difference is too close
+		// to the margin for their errors to be ruled out
+		double difference = Math.abs(this.approx - other.approx);
+		double bound = this.error + other.error + Math.ulp(difference) + SCALE_ERROR;
+		if (difference + bound < MARGIN_OF_ERROR.approx - MARGIN_OF_ERROR.error) return true;
+		if (difference - bound > MARGIN_OF_ERROR.approx + MARGIN_OF_ERROR.error) return false;
+
+		return subtract(other).abs().bd.compareTo(MARGIN_OF_ERROR.bd) < 0;
+	}
+
+	/**
+	 * The same for every number, as numbers are equal when they are within
+	 * the margin of error of each other, and a chain of equal numbers can
+	 * reach any other number
+	 */
+	@Override
+	public int hashCode() {
+		return 0;
 	}
 
 	public String toString() {
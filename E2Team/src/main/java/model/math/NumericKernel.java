@@ -0,0 +1,60 @@
+package model.math;
+
+/**
+ * The numeric operations that the Voronoi calculations are written against.
+ * Each Canvas has one kernel, which decides how coordinates are compared and
+ * how new lines are calculated.
+ * 
+ * @author mxw449
+ */
+public interface NumericKernel {
+
+	/**
+	 * Are two points the same, within the margin of error?
+	 */
+	boolean equal(PointBD p1, PointBD p2);
+
+	/**
+	 * Do two points have the same X coordinate?
+	 */
+	boolean sameX(PointBD p1, PointBD p2);
+
+	/**
+	 * Do two points have the same Y coordinate?
+	 */
+	boolean sameY(PointBD p1, PointBD p2);
+
+	/**
+	 * Is the X coordinate of a point equal to x?
+	 */
+	boolean xEquals(PointBD p, MarginedBigDecimal x);
+
+	/**
+	 * Is the Y coordinate of a point equal to y?
+	 */
+	boolean yEquals(PointBD p, MarginedBigDecimal y);
+
+	/**
+	 * Are two lines the same, regardless of direction?
+	 */
+	boolean equal(LineBD l1, LineBD l2);
+
+	/**
+	 * Is a point on a line segment, within the margin of error?
+	 */
+	boolean onLine(LineBD line, PointBD p);
+
+	/**
+	 * Compare how far two points are from an origin.
+	 * 
+	 * @return negative if p1 is closer, positive if p2 is closer, 0 if they
+	 *         are the same distance away
+	 */
+	int compareDistances(PointBD origin, PointBD p1, PointBD p2);
+
+	/**
+	 * Get the bisection between a centre and a point p, as a line running
+	 * across a canvas of the given size.
+	 */
+	LineBD getBisection(PointBD centre, PointBD p, MarginedBigDecimal width, MarginedBigDecimal height);
+}
@@ -3,31 +3,37 @@ package model.math;
 import java.awt.geom.Point2D;
 
 /**
- * A point class which uses MarginedBigDecimals
+ * A point class which uses MarginedBigDecimals. The coordinates are always
+ * held as primitive doubles; the MarginedBigDecimal versions are only created
+ * when they are first asked for, so points made by a primitive kernel never
+ * allocate any BigDecimals.
  * @author mxw449
  */
 public class PointBD {
+	private final double xVal, yVal;
 	private MarginedBigDecimal x;
 	private MarginedBigDecimal y;
 
 	public PointBD(int x, int y) {
-		this.x = new MarginedBigDecimal(x);
-		this.y = new MarginedBigDecimal(y);
+		this.xVal = x;
+		this.yVal = y;
 	}
 
 	public PointBD(double x, double y) {
-		this.x = new MarginedBigDecimal(x);
-		this.y = new MarginedBigDecimal(y);
+		this.xVal = x;
+		this.yVal = y;
 	}
 
 	public PointBD(MarginedBigDecimal x, MarginedBigDecimal y) {
 		this.x = x;
 		this.y = y;
+		this.xVal = x.value();
+		this.yVal = y.value();
 	}
 
 	public PointBD(Point2D p2d) {
-		this.x = new MarginedBigDecimal(p2d.getX());
-		this.y = new MarginedBigDecimal(p2d.getY());
+		this.xVal = p2d.getX();
+		this.yVal = p2d.getY();
 	}
 
 	public Point2D getPoint2D() {
@@ -43,20 +49,31 @@ public class PointBD {
 		return x_sqrd.add(y_sqrd);
 	}
 
+	/**
+	 * Get the square of the distance between two points, using doubles only.
+	 */
+	public double getDistanceSqrdVal(PointBD other) {
+		double dx = xVal - other.xVal;
+		double dy = yVal - other.yVal;
+		return dx * dx + dy * dy;
+	}
+
 	public MarginedBigDecimal getX() {
+		if (x == null) x = new MarginedBigDecimal(xVal);
 		return x;
 	}
 
 	public MarginedBigDecimal getY() {
+		if (y == null) y = new MarginedBigDecimal(yVal);
 		return y;
 	}
 
 	public double getXVal() {
-		return x.value();
+		return xVal;
 	}
 
 	public double getYVal() {
-		return y.value();
+		return yVal;
 	}
 
 	@Override
@@ -67,11 +84,22 @@ public class PointBD {
 
 		PointBD pbd = (PointBD) obj;
 
-		return pbd.x.equals(x) && pbd.y.equals(y);
+		return pbd.getX().equals(getX()) && pbd.getY().equals(getY());
+	}
+
+	/**
+	 * The same for every point. Points are equal when they are within the
+	 * margin of error of each other, and a chain of equal points can reach
+	 * any other point, so no finer hash keeps equal points together. Use a
+	 * PointSet to look points up quickly.
+	 */
+	@Override
+	public int hashCode() {
+		return 0;
 	}
 
 	@Override
 	public String toString() {
-		return "PointBD(" + x + ", " + y + ")";
+		return "PointBD(" + getX() + ", " + getY() + ")";
 	}
 }
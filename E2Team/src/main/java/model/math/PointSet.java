@@ -0,0 +1,119 @@
+package model.math;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set of points where two points count as the same if a kernel says they
+ * are equal. Points are bucketed by the grid cell they snap to, where cells
+ * are the size of the margin of error. Two equal points are always in the
+ * same or neighbouring cells, so a lookup only checks the 3x3 block of cells
+ * around a point.
+ * 
+ * @author mxw449
+ */
+public class PointSet {
+	private final NumericKernel kernel;
+	private final Map<Long, List<PointBD>> cells = new HashMap<>();
+	private int size = 0;
+
+	public PointSet(NumericKernel kernel) {
+		this.kernel = kernel;
+	}
+
+	/**
+	 * Add a point, unless an equal point is already in the set
+	 * 
+	 * @return true if the point was added
+	 */
+	public boolean add(PointBD p) {
+		if (contains(p)) return false;
+		insert(p);
+		return true;
+	}
+
+	/**
+	 * Get the point in the set which is equal to p, adding p if there isn't
+	 * one
+	 * 
+	 * @return the point already in the set, or p if it was added
+	 */
+	public PointBD intern(PointBD p) {
+		PointBD q = get(p);
+		if (q != null) return q;
+		insert(p);
+		return p;
+	}
+
+	private void insert(PointBD p) {
+		Long key = cellKey(snap(p.getXVal()), snap(p.getYVal()));
+		List<PointBD> cell = cells.get(key);
+		if (cell == null) {
+			cell = new ArrayList<>(2);
+			cells.put(key, cell);
+		}
+		cell.add(p);
+		size++;
+	}
+
+	/**
+	 * Is there a point equal to p in the set?
+	 */
+	public boolean contains(PointBD p) {
+		return get(p) != null;
+	}
+
+	/**
+	 * Get the point in the set which is equal to p
+	 * 
+	 * @return the point, or null if there isn't one
+	 */
+	public PointBD get(PointBD p) {
+		long cx = snap(p.getXVal());
+		long cy = snap(p.getYVal());
+
+		for (long x = cx - 1; x <= cx + 1; x++) {
+			for (long y = cy - 1; y <= cy + 1; y++) {
+				List<PointBD> cell = cells.get(cellKey(x, y));
+				if (cell == null) continue;
+
+				for (PointBD q : cell) {
+					if (kernel.equal(q, p)) return q;
+				}
+			}
+		}
+		return null;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Remove all duplicates from a list of points, keeping the first of each
+	 */
+	public static List<PointBD> removeDuplicates(List<PointBD> points, NumericKernel kernel) {
+		PointSet seen = new PointSet(kernel);
+		List<PointBD> ret = new ArrayList<>();
+		for (PointBD p : points) {
+			if (seen.add(p)) ret.add(p);
+		}
+		return ret;
+	}
+
+	/**
+	 * The grid cell a coordinate snaps to
+	 */
+	private static long snap(double coordinate) {
+		return Math.round(coordinate / MarginedBigDecimal.marginOfError());
+	}
+
+	/**
+	 * Combine the X and Y cells into a single key
+	 */
+	private static long cellKey(long cellX, long cellY) {
+		return cellX * 0x9E3779B97F4A7C15L + cellY;
+	}
+}
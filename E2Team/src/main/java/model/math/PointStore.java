@@ -0,0 +1,118 @@
+package model.math;
+
+import java.util.Arrays;
+
+/**
+ * Stores the coordinates of a set of points in two primitive arrays,
+ * indexed by an int id. Scanning through the points only touches contiguous
+ * memory, rather than following references to a PointBD (and its
+ * MarginedBigDecimals) for every point.
+ * 
+ * @author mxw449
+ */
+public class PointStore {
+	private static final int INITIAL_CAPACITY = 64;
+
+	private double[] xs, ys;
+	private int size;
+
+	public PointStore() {
+		xs = new double[INITIAL_CAPACITY];
+		ys = new double[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Add a point to the store
+	 * 
+	 * @return the id of the point
+	 */
+	public int add(double x, double y) {
+		if (size == xs.length) {
+			xs = Arrays.copyOf(xs, size * 2);
+			ys = Arrays.copyOf(ys, size * 2);
+		}
+
+		xs[size] = x;
+		ys[size] = y;
+		return size++;
+	}
+
+	/**
+	 * Add a point to the store
+	 * 
+	 * @return the id of the point
+	 */
+	public int add(PointBD p) {
+		return add(p.getXVal(), p.getYVal());
+	}
+
+	/**
+	 * Move a point to new coordinates
+	 */
+	public void set(int id, double x, double y) {
+		xs[id] = x;
+		ys[id] = y;
+	}
+
+	/**
+	 * Remove the point with the highest id
+	 */
+	public void removeLast() {
+		size--;
+	}
+
+	/**
+	 * Remove every point
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	public double getX(int id) {
+		return xs[id];
+	}
+
+	public double getY(int id) {
+		return ys[id];
+	}
+
+	/**
+	 * Create a PointBD for a stored point
+	 */
+	public PointBD get(int id) {
+		return new PointBD(xs[id], ys[id]);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Find the next point, starting from an id, that is within a square of
+	 * half-width distance around (x, y).
+	 * 
+	 * @return the id of the point, or -1 if there are no more
+	 */
+	public int nextWithin(double x, double y, double distance, int from) {
+		for (int i = from; i < size; i++) {
+			if (Math.abs(xs[i] - x) < distance && Math.abs(ys[i] - y) < distance) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Get the square of the distance from (x, y) to every point in the store
+	 */
+	public double[] distancesSqrd(double x, double y) {
+		double[] distances = new double[size];
+		for (int i = 0; i < size; i++) {
+			double dx = xs[i] - x;
+			double dy = ys[i] - y;
+			distances[i] = dx * dx + dy * dy;
+		}
+		return distances;
+	}
+}
@@ -0,0 +1,182 @@
+package model.math;
+
+import java.math.BigDecimal;
+
+/**
+ * Geometric predicates which are always right. Each predicate is first
+ * worked out with doubles, and the answer is only used if the rounding
+ * error can't have changed its sign. Otherwise, the predicate is worked out
+ * again exactly with BigDecimals (every double can be stored exactly as a
+ * BigDecimal, so no precision is lost).
+ * 
+ * @author mxw449
+ */
+public class Predicates {
+	/** Half of the gap between 1 and the next double */
+	private static final double EPSILON = Math.ulp(1.0) / 2;
+
+	/** Error bound for the floating point orientation test (Shewchuk) */
+	private static final double ORIENT_ERROR_BOUND = (3 + 16 * EPSILON) * EPSILON;
+
+	/** Error bound for the floating point in circle test (Shewchuk) */
+	private static final double IN_CIRCLE_ERROR_BOUND = (10 + 96 * EPSILON) * EPSILON;
+
+	/**
+	 * Which side of the line through a and b is c on?
+	 * 
+	 * @return positive if a, b, c turn anticlockwise (in standard
+	 *         coordinates), negative if clockwise, 0 if they are collinear
+	 */
+	public static int orientation(double ax, double ay, double bx, double by, double cx, double cy) {
+		double detLeft = (bx - ax) * (cy - ay);
+		double detRight = (by - ay) * (cx - ax);
+		double det = detLeft - detRight;
+
+		double bound = ORIENT_ERROR_BOUND * (Math.abs(detLeft) + Math.abs(detRight));
+		if (det > bound || -det > bound) {
+			return det > 0 ? 1 : -1;
+		}
+
+		return exactOrientation(ax, ay, bx, by, cx, cy);
+	}
+
+	/**
+	 * Which side of the line through a and b is c on?
+	 */
+	public static int orientation(PointBD a, PointBD b, PointBD c) {
+		return orientation(a.getXVal(), a.getYVal(), b.getXVal(), b.getYVal(), c.getXVal(), c.getYVal());
+	}
+
+	/**
+	 * Which side of a line is a point on? 0 means it is on the (infinite)
+	 * line.
+	 */
+	public static int sideOfLine(LineBD line, PointBD p) {
+		return orientation(line.getP1(), line.getP2(), p);
+	}
+
+	/**
+	 * Work out the orientation with BigDecimals, which is slower but exact
+	 */
+	private static int exactOrientation(double ax, double ay, double bx, double by, double cx, double cy) {
+		BigDecimal bigAx = new BigDecimal(ax);
+		BigDecimal bigAy = new BigDecimal(ay);
+		BigDecimal left = new BigDecimal(bx).subtract(bigAx).multiply(new BigDecimal(cy).subtract(bigAy));
+		BigDecimal right = new BigDecimal(by).subtract(bigAy).multiply(new BigDecimal(cx).subtract(bigAx));
+		return left.compareTo(right);
+	}
+
+	/**
+	 * Is d inside the circle through a, b and c?
+	 * 
+	 * @return positive if d is inside and a, b, c turn anticlockwise (the
+	 *         sign is flipped if they turn clockwise), 0 if all four points
+	 *         are on the same circle
+	 */
+	public static int inCircle(double ax, double ay, double bx, double by, double cx, double cy, double dx, double dy) {
+		double adx = ax - dx, ady = ay - dy;
+		double bdx = bx - dx, bdy = by - dy;
+		double cdx = cx - dx, cdy = cy - dy;
+
+		double bdxcdy = bdx * cdy, cdxbdy = cdx * bdy;
+		double cdxady = cdx * ady, adxcdy = adx * cdy;
+		double adxbdy = adx * bdy, bdxady = bdx * ady;
+		double aLift = adx * adx + ady * ady;
+		double bLift = bdx * bdx + bdy * bdy;
+		double cLift = cdx * cdx + cdy * cdy;
+
+		double det = aLift * (bdxcdy - cdxbdy) + bLift * (cdxady - adxcdy) + cLift * (adxbdy - bdxady);
+
+		double permanent = (Math.abs(bdxcdy) + Math.abs(cdxbdy)) * aLift + (Math.abs(cdxady) + Math.abs(adxcdy)) * bLift
+				+ (Math.abs(adxbdy) + Math.abs(bdxady)) * cLift;
+		double bound = IN_CIRCLE_ERROR_BOUND * permanent;
+		if (det > bound || -det > bound) {
+			return det > 0 ? 1 : -1;
+		}
+
+		return exactInCircle(ax, ay, bx, by, cx, cy, dx, dy);
+	}
+
+	/**
+	 * Is d inside the circle through a, b and c?
+	 */
+	public static int inCircle(PointBD a, PointBD b, PointBD c, PointBD d) {
+		return inCircle(a.getXVal(), a.getYVal(), b.getXVal(), b.getYVal(), c.getXVal(), c.getYVal(), d.getXVal(), d.getYVal());
+	}
+
+	/**
+	 * Work out the in circle test with BigDecimals
+	 */
+	private static int exactInCircle(double ax, double ay, double bx, double by, double cx, double cy, double dx, double dy) {
+		BigDecimal bigDx = new BigDecimal(dx);
+		BigDecimal bigDy = new BigDecimal(dy);
+		BigDecimal adx = new BigDecimal(ax).subtract(bigDx), ady = new BigDecimal(ay).subtract(bigDy);
+		BigDecimal bdx = new BigDecimal(bx).subtract(bigDx), bdy = new BigDecimal(by).subtract(bigDy);
+		BigDecimal cdx = new BigDecimal(cx).subtract(bigDx), cdy = new BigDecimal(cy).subtract(bigDy);
+
+		BigDecimal aLift = adx.multiply(adx).add(ady.multiply(ady));
+		BigDecimal bLift = bdx.multiply(bdx).add(bdy.multiply(bdy));
+		BigDecimal cLift = cdx.multiply(cdx).add(cdy.multiply(cdy));
+
+		BigDecimal det = aLift.multiply(bdx.multiply(cdy).subtract(cdx.multiply(bdy)));
+		det = det.add(bLift.multiply(cdx.multiply(ady).subtract(adx.multiply(cdy))));
+		det = det.add(cLift.multiply(adx.multiply(bdy).subtract(bdx.multiply(ady))));
+		return det.signum();
+	}
+
+	/**
+	 * Do the segments a-b and c-d intersect? Touching at an end, or
+	 * overlapping while collinear, counts as intersecting.
+	 */
+	public static boolean segmentsIntersect(PointBD a, PointBD b, PointBD c, PointBD d) {
+		int o1 = orientation(a, b, c);
+		int o2 = orientation(a, b, d);
+		int o3 = orientation(c, d, a);
+		int o4 = orientation(c, d, b);
+
+		// The ends of each segment are on opposite sides of the other
+		if (o1 * o2 < 0 && o3 * o4 < 0) return true;
+
+		// An end of one segment lies on the other segment
+		if (o1 == 0 && inBox(a, b, c)) return true;
+		if (o2 == 0 && inBox(a, b, d)) return true;
+		if (o3 == 0 && inBox(c, d, a)) return true;
+		if (o4 == 0 && inBox(c, d, b)) return true;
+
+		return false;
+	}
+
+	/**
+	 * Do the segments a-b and c-d intersect?
+	 */
+	public static boolean segmentsIntersect(LineBD l1, LineBD l2) {
+		return segmentsIntersect(l1.getP1(), l1.getP2(), l2.getP1(), l2.getP2());
+	}
+
+	/**
+	 * Is p inside the bounding box of a and b? Only meaningful when p is on
+	 * the line through a and b.
+	 */
+	private static boolean inBox(PointBD a, PointBD b, PointBD p) {
+		return Math.min(a.getXVal(), b.getXVal()) <= p.getXVal() && p.getXVal() <= Math.max(a.getXVal(), b.getXVal())
+				&& Math.min(a.getYVal(), b.getYVal()) <= p.getYVal() && p.getYVal() <= Math.max(a.getYVal(), b.getYVal());
+	}
+
+	/**
+	 * Find where the infinite lines through a-b and c-d cross.
+	 * 
+	 * @return the crossing point, or null if the lines are parallel
+	 */
+	public static PointBD lineIntersection(PointBD a, PointBD b, PointBD c, PointBD d) {
+		double dx1 = b.getXVal() - a.getXVal();
+		double dy1 = b.getYVal() - a.getYVal();
+		double dx2 = d.getXVal() - c.getXVal();
+		double dy2 = d.getYVal() - c.getYVal();
+
+		double denom = dx1 * dy2 - dy1 * dx2;
+		if (denom == 0.0) return null;
+
+		double t = ((c.getXVal() - a.getXVal()) * dy2 - (c.getYVal() - a.getYVal()) * dx2) / denom;
+		return new PointBD(a.getXVal() + t * dx1, a.getYVal() + t * dy1);
+	}
+}
@@ -0,0 +1,174 @@
+package model.math;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the points in a PointStore, so finding the points near
+ * a location only looks at a few grid cells rather than every point. Each
+ * cell keeps a linked list of point ids through two int arrays. The grid gets
+ * finer as points are added, keeping about two points per cell.
+ *
+ * Points are expected to lie within the area the index was made for. Any
+ * outside it are kept in the cells along its edge.
+ *
+ * @author mxw449
+ */
+public class SiteIndex {
+	private static final int NONE = -1;
+
+	/** Points per cell before the grid is made finer */
+	private static final int POINTS_PER_CELL = 2;
+
+	private final PointStore store;
+	private final double width, height;
+
+	private int columns, rows;
+	private double cellWidth, cellHeight;
+
+	/** The first point in each cell, and the next point after each point */
+	private int[] head;
+	private int[] nextInCell = new int[64];
+	private int size;
+
+	/**
+	 * Create an empty index over the points of a store, covering the area
+	 * from (0, 0) to (width, height)
+	 */
+	public SiteIndex(PointStore store, double width, double height) {
+		this.store = store;
+		this.width = Math.max(width, 1);
+		this.height = Math.max(height, 1);
+		resize(1, 1);
+	}
+
+	/**
+	 * Add a point from the store to the index
+	 */
+	public void add(int id) {
+		if (id >= nextInCell.length) nextInCell = Arrays.copyOf(nextInCell, Math.max(2 * nextInCell.length, id + 1));
+		size = Math.max(size, id + 1);
+		insert(id);
+
+		if (size > POINTS_PER_CELL * columns * rows) {
+			resize(2 * columns, 2 * rows);
+		}
+	}
+
+	/**
+	 * Take a point out of the index, using its coordinates in the store. It
+	 * must be put back with add if it isn't the point with the highest id.
+	 */
+	public void remove(int id) {
+		int cell = row(store.getY(id)) * columns + column(store.getX(id));
+		if (head[cell] == id) {
+			head[cell] = nextInCell[id];
+		} else {
+			int before = head[cell];
+			while (nextInCell[before] != id) {
+				before = nextInCell[before];
+			}
+			nextInCell[before] = nextInCell[id];
+		}
+		if (id == size - 1) size--;
+	}
+
+	/**
+	 * Remove every point
+	 */
+	public void clear() {
+		size = 0;
+		resize(1, 1);
+	}
+
+	/**
+	 * Find the points within a square of half-width distance around (x, y)
+	 *
+	 * @return the ids of the points
+	 */
+	public int[] within(double x, double y, double distance) {
+		int[] result = new int[4];
+		int count = 0;
+		int minColumn = column(x - distance), maxColumn = column(x + distance);
+		int minRow = row(y - distance), maxRow = row(y + distance);
+		for (int r = minRow; r <= maxRow; r++) {
+			for (int c = minColumn; c <= maxColumn; c++) {
+				for (int i = head[r * columns + c]; i != NONE; i = nextInCell[i]) {
+					if (Math.abs(store.getX(i) - x) < distance && Math.abs(store.getY(i) - y) < distance) {
+						if (count == result.length) result = Arrays.copyOf(result, 2 * count);
+						result[count++] = i;
+					}
+				}
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+	/**
+	 * Find the point closest to (x, y). Searches rings of cells outwards from
+	 * the one containing (x, y), until the next ring is too far away to hold
+	 * anything closer.
+	 *
+	 * @return the id of the point, or -1 if the index is empty
+	 */
+	public int nearest(double x, double y) {
+		boolean inside = x >= 0 && x <= width && y >= 0 && y <= height;
+		int column = column(x), row = row(y);
+		int maxRing = Math.max(Math.max(column, columns - 1 - column), Math.max(row, rows - 1 - row));
+
+		int best = NONE;
+		double bestDistance = Double.POSITIVE_INFINITY;
+		for (int ring = 0; ring <= maxRing; ring++) {
+			for (int r = row - ring; r <= row + ring; r++) {
+				if (r < 0 || r >= rows) continue;
+				// Only the first and last rows of the ring are full
+				int step = (r == row - ring || r == row + ring) ? 1 : Math.max(1, 2 * ring);
+				for (int c = column - ring; c <= column + ring; c += step) {
+					if (c < 0 || c >= columns) continue;
+					for (int i = head[r * columns + c]; i != NONE; i = nextInCell[i]) {
+						double dx = store.getX(i) - x;
+						double dy = store.getY(i) - y;
+						double d = dx * dx + dy * dy;
+						if (d < bestDistance) {
+							bestDistance = d;
+							best = i;
+						}
+					}
+				}
+			}
+
+			// Anything in a further ring is at least this far away
+			double reach = ring * Math.min(cellWidth, cellHeight);
+			if (inside && best != NONE && bestDistance <= reach * reach) break;
+		}
+		return best;
+	}
+
+	private void insert(int id) {
+		int cell = row(store.getY(id)) * columns + column(store.getX(id));
+		nextInCell[id] = head[cell];
+		head[cell] = id;
+	}
+
+	/**
+	 * Change the number of cells, and put every point back in
+	 */
+	private void resize(int newColumns, int newRows) {
+		columns = newColumns;
+		rows = newRows;
+		cellWidth = width / columns;
+		cellHeight = height / rows;
+		head = new int[columns * rows];
+		Arrays.fill(head, NONE);
+		for (int i = 0; i < size; i++) {
+			insert(i);
+		}
+	}
+
+	private int column(double x) {
+		return Math.min(columns - 1, Math.max(0, (int) (x / cellWidth)));
+	}
+
+	private int row(double y) {
+		return Math.min(rows - 1, Math.max(0, (int) (y / cellHeight)));
+	}
+}
@@ -0,0 +1,138 @@
+package model.math;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Orders points so ones added one after another are near each other. Each
+ * point is found starting from the last one, so the searches stay short, and
+ * the cells being changed are still in the cache.
+ *
+ * @author mxw449
+ */
+public class SpatialOrder {
+
+	/** The Hilbert curve is drawn over a grid of 2^BITS by 2^BITS */
+	private static final int BITS = 16;
+
+	/** Rounds smaller than this are merged into the first one */
+	private static final int SMALLEST_ROUND = 16;
+
+	private SpatialOrder() {
+	}
+
+	/**
+	 * Sort points along a Hilbert curve over the area from (0, 0) to (width,
+	 * height)
+	 */
+	public static List<PointBD> hilbert(Collection<PointBD> points, double width, double height) {
+		List<PointBD> result = new ArrayList<>(points);
+		sortAlongCurve(result, width, height);
+		return result;
+	}
+
+	/**
+	 * Biased randomised insertion order. The points are shuffled then split
+	 * into rounds, each twice the size of the one before, and each round is
+	 * sorted along a Hilbert curve. The random rounds stop a bad input order,
+	 * like rows of a grid, from making every insertion change a lot of cells,
+	 * and the sorting keeps points in a round near each other.
+	 */
+	public static List<PointBD> brio(Collection<PointBD> points, double width, double height, Random gen) {
+		List<PointBD> shuffled = new ArrayList<>(points);
+		Collections.shuffle(shuffled, gen);
+
+		// Work out where each round starts, from the biggest (last) one down
+		List<Integer> starts = new ArrayList<>();
+		int end = shuffled.size();
+		while (end > SMALLEST_ROUND) {
+			end /= 2;
+			starts.add(0, end);
+		}
+		starts.add(0, 0);
+		starts.add(shuffled.size());
+
+		List<PointBD> result = new ArrayList<>(shuffled.size());
+		for (int r = 0; r + 1 < starts.size(); r++) {
+			List<PointBD> round = new ArrayList<>(shuffled.subList(starts.get(r), starts.get(r + 1)));
+			sortAlongCurve(round, width, height);
+			result.addAll(round);
+		}
+		return result;
+	}
+
+	/**
+	 * The distance along a Hilbert curve of a point on a side by side grid
+	 */
+	public static long hilbertIndex(int x, int y, int side) {
+		long d = 0;
+		for (int s = side / 2; s > 0; s /= 2) {
+			int rx = (x & s) > 0 ? 1 : 0;
+			int ry = (y & s) > 0 ? 1 : 0;
+			d += (long) s * s * ((3 * rx) ^ ry);
+
+			// Rotate the quadrant so the curve joins up
+			if (ry == 0) {
+				if (rx == 1) {
+					x = s - 1 - x;
+					y = s - 1 - y;
+				}
+				int t = x;
+				x = y;
+				y = t;
+			}
+		}
+		return d;
+	}
+
+	/**
+	 * The order points would be in sorted along a Hilbert curve over the area
+	 * from (0, 0) to (width, height), as their indexes, for when the points
+	 * have to keep their own numbers
+	 */
+	public static int[] hilbertOrder(List<PointBD> points, double width, double height) {
+		final int side = 1 << BITS;
+		final double scaleX = (side - 1) / Math.max(width, 1);
+		final double scaleY = (side - 1) / Math.max(height, 1);
+
+		final long[] keys = new long[points.size()];
+		List<Integer> order = new ArrayList<>(points.size());
+		for (int i = 0; i < points.size(); i++) {
+			int x = clamp((int) (points.get(i).getXVal() * scaleX), side);
+			int y = clamp((int) (points.get(i).getYVal() * scaleY), side);
+			keys[i] = hilbertIndex(x, y, side);
+			order.add(i);
+		}
+
+		Collections.sort(order, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer i1, Integer i2) {
+				return Long.compare(keys[i1], keys[i2]);
+			}
+		});
+
+		int[] result = new int[order.size()];
+		for (int k = 0; k < result.length; k++) {
+			result[k] = order.get(k);
+		}
+		return result;
+	}
+
+	private static void sortAlongCurve(List<PointBD> points, double width, double height) {
+		List<PointBD> sorted = new ArrayList<>(points.size());
+		for (int i : hilbertOrder(points, width, height)) {
+			sorted.add(points.get(i));
+		}
+		for (int i = 0; i < sorted.size(); i++) {
+			points.set(i, sorted.get(i));
+		}
+	}
+
+	private static int clamp(int v, int side) {
+		return Math.min(side - 1, Math.max(0, v));
+	}
+}
@@ -3,6 +3,7 @@ package test;
 import java.awt.Polygon;
 import java.awt.geom.Point2D;
 import java.util.ArrayList;
+import java.util.List;
 
 import model.math.LineBD;
 import model.math.PointBD;
@@ -64,6 +65,33 @@ public class TestHelpers {
 		return points2.size() == 0;
 	}
 
+	/**
+	 * Get the area of a Polygon
+	 */
+	public static double polyArea(Polygon poly) {
+		double area = 0;
+		for (int i = 0; i < poly.npoints; i++) {
+			int j = (i + 1) % poly.npoints;
+			area += (double) poly.xpoints[i] * poly.ypoints[j] - (double) poly.xpoints[j] * poly.ypoints[i];
+		}
+		return Math.abs(area) / 2;
+	}
+
+	/**
+	 * Get the area of a VoronoiPolygon from its corners, without truncating
+	 * them to whole pixels like getJavaPolygon
+	 */
+	public static double cellArea(VoronoiPolygon poly) {
+		List<PointBD> corners = poly.getCorners();
+		double area = 0;
+		for (int i = 0; i < corners.size(); i++) {
+			PointBD p1 = corners.get(i);
+			PointBD p2 = corners.get((i + 1) % corners.size());
+			area += p1.getXVal() * p2.getYVal() - p2.getXVal() * p1.getYVal();
+		}
+		return Math.abs(area) / 2;
+	}
+
 	/**
 	 * Get a square VoronoiPolygon. The polygon is 100x100, going from (100,100) -> (200,200)
 	 */
@@ -82,26 +110,4 @@ public class TestHelpers {
 		return polygon;
 	}
 
-	/**
-	 * Get a voronoi polygon that fills a whole canvas
-	 */
-	public static VoronoiPolygon getFillerPolygon(Canvas canvas) {
-		int width = canvas.getWidth().intValue();
-		int height = canvas.getHeight().intValue();
-		VoronoiPolygon poly = new VoronoiPolygon(new PointBD(width / 2, height / 2), canvas);
-
-		PointBD p1 = new PointBD(0, 0);
-		PointBD p2 = new PointBD(width, 0);
-		PointBD p3 = new PointBD(width, height);
-		PointBD p4 = new PointBD(0, height);
-
-		poly.addEdge(new LineBD(p1, p2));
-		poly.addEdge(new LineBD(p2, p3));
-		poly.addEdge(new LineBD(p3, p4));
-		poly.addEdge(new LineBD(p4, p1));
-
-		return poly;
-
-	}
-
 }
@@ -0,0 +1,180 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import model.Canvas;
+import model.FortuneSweep;
+import model.math.BigDecimalKernel;
+import model.math.DoubleKernel;
+import model.math.ExactKernel;
+import model.math.MarginedBigDecimal;
+import model.math.NumericKernel;
+import model.math.PointBD;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.LoggerFactory;
+
+import controller.Holder;
+
+/**
+ * JMH benchmarks for building a diagram with Canvas.addPoint, from a Delaunay
+ * triangulation and with the sweep line. Run with
+ * "mvn test-compile" followed by running this class' main method with the
+ * test classpath.
+ * 
+ * @author mxw449
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CanvasBenchmark {
+
+	private static final int WIDTH = 800, HEIGHT = 600;
+
+	@Param({ "100", "400" })
+	public int numPoints;
+
+	@Param({ "bigdecimal", "double", "exact" })
+	public String kernel;
+
+	private List<PointBD> points;
+	private MarginedBigDecimal[] numbers;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		quietLogging();
+
+		Random gen = new Random(1234);
+		points = new ArrayList<>();
+		for (int i = 0; i < numPoints; i++) {
+			points.add(new PointBD(gen.nextInt(WIDTH), gen.nextInt(HEIGHT)));
+		}
+
+		numbers = new MarginedBigDecimal[numPoints];
+		for (int i = 0; i < numPoints; i++) {
+			numbers[i] = new MarginedBigDecimal(gen.nextDouble() * numPoints).divide(MarginedBigDecimal.TWO);
+		}
+	}
+
+	/**
+	 * Build a whole diagram, one point at a time
+	 */
+	@Benchmark
+	public Canvas addPoints() {
+		Canvas canvas = createCanvas(WIDTH, HEIGHT, kernel);
+		for (PointBD p : points) {
+			canvas.addPoint(p);
+		}
+		return canvas;
+	}
+
+	/**
+	 * Build a whole diagram from one batch, added in a spatially sorted order
+	 */
+	@Benchmark
+	public Canvas addPointsBatch() {
+		Canvas canvas = createCanvas(WIDTH, HEIGHT, kernel);
+		canvas.addPoints(points);
+		return canvas;
+	}
+
+	/**
+	 * Build a whole diagram one point at a time, from a Delaunay
+	 * triangulation
+	 */
+	@Benchmark
+	public Canvas delaunay() {
+		Canvas canvas = createCanvas(WIDTH, HEIGHT, kernel, Canvas.Engine.DELAUNAY);
+		for (PointBD p : points) {
+			canvas.addPoint(p);
+		}
+		return canvas;
+	}
+
+	/**
+	 * Build the cells of a whole diagram with the sweep line
+	 */
+	@Benchmark
+	public List<List<PointBD>> sweepLine() {
+		List<PointBD> boundary = Arrays.asList(new PointBD(0, 0), new PointBD(WIDTH, 0), new PointBD(WIDTH, HEIGHT), new PointBD(0, HEIGHT));
+		return new FortuneSweep().buildCells(points, boundary);
+	}
+
+	/**
+	 * Compare every pair of MarginedBigDecimals for equality
+	 */
+	@Benchmark
+	public int marginedEquals() {
+		int count = 0;
+		for (int i = 0; i < numbers.length; i++) {
+			for (int j = 0; j < numbers.length; j++) {
+				if (numbers[i].equals(numbers[j])) count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Create a canvas which never waits to be told to continue
+	 */
+	static Canvas createCanvas(int width, int height, String kernelName) {
+		return createCanvas(width, height, kernelName, Canvas.Engine.INCREMENTAL);
+	}
+
+	/**
+	 * Create a canvas using an engine, which never waits to be told to
+	 * continue
+	 */
+	static Canvas createCanvas(int width, int height, String kernelName, Canvas.Engine engine) {
+		NumericKernel kernel;
+		switch (kernelName) {
+		case "double":
+			kernel = new DoubleKernel();
+			break;
+		case "exact":
+			kernel = new ExactKernel();
+			break;
+		default:
+			kernel = new BigDecimalKernel();
+		}
+
+		Canvas canvas = new Canvas(width, height, new Holder(), kernel, engine);
+		canvas.setIsManual(true);
+		return canvas;
+	}
+
+	/**
+	 * Turn off the debug logging, which would otherwise dominate the timings
+	 */
+	static void quietLogging() {
+		ch.qos.logback.classic.Logger root = (ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+		root.setLevel(ch.qos.logback.classic.Level.WARN);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder().include(CanvasBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,150 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import model.Canvas;
+import model.math.PointBD;
+import model.math.PointStore;
+
+/**
+ * Reports how much memory each site takes when stored as PointBDs with
+ * MarginedBigDecimal coordinates, compared with the columnar PointStore, and
+ * how much a whole diagram takes when built incrementally, compared with
+ * when built from a Delaunay triangulation. Run this class' main method
+ * with the test classpath, optionally passing the number of sites.
+ * 
+ * @author mxw449
+ */
+public class MemoryReport {
+
+	private static final int DEFAULT_SITES = 200000;
+
+	/** Incremental building is quadratic, so diagrams are measured smaller */
+	private static final int DIAGRAM_DIVISOR = 100;
+
+	/** Kept so the measured objects can't be garbage collected */
+	private static Object retained;
+
+	/** Kept so the input coordinates are counted in both measurements */
+	private static double[][] input;
+
+	public static void main(String[] args) {
+		int numSites = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SITES;
+
+		double pointBytes = bytesPerSite(numSites, new Layout() {
+			@Override
+			public Object build(double[] xs, double[] ys) {
+				List<PointBD> points = new ArrayList<>(xs.length);
+				for (int i = 0; i < xs.length; i++) {
+					PointBD p = new PointBD(xs[i], ys[i]);
+					// Create the MarginedBigDecimals, as the BigDecimal kernel would
+					p.getX();
+					p.getY();
+					points.add(p);
+				}
+				return points;
+			}
+		});
+
+		double lazyPointBytes = bytesPerSite(numSites, new Layout() {
+			@Override
+			public Object build(double[] xs, double[] ys) {
+				List<PointBD> points = new ArrayList<>(xs.length);
+				for (int i = 0; i < xs.length; i++) {
+					points.add(new PointBD(xs[i], ys[i]));
+				}
+				return points;
+			}
+		});
+
+		double storeBytes = bytesPerSite(numSites, new Layout() {
+			@Override
+			public Object build(double[] xs, double[] ys) {
+				PointStore store = new PointStore();
+				for (int i = 0; i < xs.length; i++) {
+					store.add(xs[i], ys[i]);
+				}
+				return store;
+			}
+		});
+
+		CanvasBenchmark.quietLogging();
+		int numCells = numSites / DIAGRAM_DIVISOR;
+		double incrementalBytes = bytesPerSite(numCells, new DiagramLayout(Canvas.Engine.INCREMENTAL));
+		double delaunayBytes = bytesPerSite(numCells, new DiagramLayout(Canvas.Engine.DELAUNAY));
+
+		System.out.println("Sites: " + numSites);
+		System.out.printf("PointBD with MarginedBigDecimals: %8.1f bytes/site%n", pointBytes);
+		System.out.printf("PointBD with doubles only:        %8.1f bytes/site%n", lazyPointBytes);
+		System.out.printf("PointStore:                       %8.1f bytes/site%n", storeBytes);
+		System.out.println("Diagram sites: " + numCells);
+		System.out.printf("Incremental diagram:              %8.1f bytes/site%n", incrementalBytes);
+		System.out.printf("Diagram and triangulation:        %8.1f bytes/site%n", delaunayBytes);
+	}
+
+	/**
+	 * A way of storing the sites
+	 */
+	private interface Layout {
+		Object build(double[] xs, double[] ys);
+	}
+
+	/**
+	 * A whole diagram on a canvas, built with one of the engines
+	 */
+	private static class DiagramLayout implements Layout {
+		private final Canvas.Engine engine;
+
+		DiagramLayout(Canvas.Engine engine) {
+			this.engine = engine;
+		}
+
+		@Override
+		public Object build(double[] xs, double[] ys) {
+			Canvas canvas = CanvasBenchmark.createCanvas(1920, 1080, "double", engine);
+			for (int i = 0; i < xs.length; i++) {
+				canvas.addPoint(new PointBD(xs[i], ys[i]));
+			}
+			return canvas;
+		}
+	}
+
+	/**
+	 * Measure the heap used by a layout, per site
+	 */
+	private static double bytesPerSite(int numSites, Layout layout) {
+		Random gen = new Random(99);
+		double[] xs = new double[numSites];
+		double[] ys = new double[numSites];
+		for (int i = 0; i < numSites; i++) {
+			xs[i] = gen.nextDouble() * 1920;
+			ys[i] = gen.nextDouble() * 1080;
+		}
+
+		input = new double[][] { xs, ys };
+		retained = null;
+		long before = usedMemory();
+		retained = layout.build(xs, ys);
+		long after = usedMemory();
+
+		return (after - before) / (double) numSites;
+	}
+
+	/**
+	 * Heap in use after garbage collecting
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 4; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
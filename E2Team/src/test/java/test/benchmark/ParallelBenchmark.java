@@ -0,0 +1,92 @@
+package test.benchmark;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import model.ParallelDiagramBuilder;
+import model.math.DoubleKernel;
+import model.math.PointBD;
+import model.math.PointSet;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH benchmark for building a large diagram in strips on different numbers
+ * of threads. One thread is a single sweep over every site, so the other
+ * scores give the speedup. Run the same way as CanvasBenchmark.
+ * 
+ * @author mxw449
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParallelBenchmark {
+
+	private static final int WIDTH = 8000, HEIGHT = 6000;
+
+	@Param({ "100000" })
+	public int numPoints;
+
+	@Param({ "1", "2", "4", "8" })
+	public int threads;
+
+	private List<PointBD> points;
+	private List<PointBD> boundary;
+	private ForkJoinPool pool;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		CanvasBenchmark.quietLogging();
+
+		Random gen = new Random(1234);
+		PointSet seen = new PointSet(new DoubleKernel());
+		points = new ArrayList<>();
+		for (int i = 0; i < numPoints; i++) {
+			PointBD p = new PointBD(gen.nextDouble() * WIDTH, gen.nextDouble() * HEIGHT);
+			if (seen.add(p)) points.add(p);
+		}
+		boundary = Arrays.asList(new PointBD(0, 0), new PointBD(WIDTH, 0), new PointBD(WIDTH, HEIGHT), new PointBD(0, HEIGHT));
+		pool = new ForkJoinPool(threads);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Build the cells of the whole diagram
+	 */
+	@Benchmark
+	public List<List<PointBD>> strips() {
+		return new ParallelDiagramBuilder(pool).buildCells(points, boundary);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder().include(ParallelBenchmark.class.getSimpleName()).build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,112 @@
+package test.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import controller.BatchRunner;
+
+/**
+ * JUnit testing for BatchRunner
+ * @author mxw449
+ */
+public class BatchRunnerTests {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testWritesEveryCell() throws IOException {
+		File in = folder.newFile("points.txt");
+		try (PrintWriter writer = new PrintWriter(new FileWriter(in))) {
+			writer.println("# some points");
+			Random gen = new Random(18);
+			for (int i = 0; i < 100; i++) {
+				writer.println(gen.nextInt(400) + (i % 2 == 0 ? " " : ", ") + gen.nextInt(300));
+			}
+			writer.println();
+			writer.println("400 300");
+		}
+		File out = folder.newFile("points.txt.cells");
+
+		new BatchRunner().run(in, out, new PrintStream(new ByteArrayOutputStream()));
+
+		// Each line is a point then its corners, and the cells cover the
+		// canvas
+		int lines = 0;
+		double total = 0;
+		try (BufferedReader reader = new BufferedReader(new FileReader(out))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				lines++;
+				String[] parts = line.split(" ");
+				assertEquals(0, parts.length % 2);
+				double area = 0;
+				int corners = parts.length / 2 - 1;
+				for (int k = 0; k < corners; k++) {
+					int next = (k + 1) % corners;
+					area += Double.parseDouble(parts[2 + 2 * k]) * Double.parseDouble(parts[3 + 2 * next]);
+					area -= Double.parseDouble(parts[2 + 2 * next]) * Double.parseDouble(parts[3 + 2 * k]);
+				}
+				total += Math.abs(area) / 2;
+			}
+		}
+		// Repeated points only get one cell
+		assertTrue(lines > 95 && lines <= 101);
+		assertEquals(401 * 301, total, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testRejectsBadLine() throws IOException {
+		File in = folder.newFile("bad.txt");
+		try (PrintWriter writer = new PrintWriter(new FileWriter(in))) {
+			writer.println("1 2");
+			writer.println("three 4");
+		}
+		BatchRunner.readPoints(in);
+	}
+
+	@Test
+	public void testRunsManyFilesSideBySide() throws IOException {
+		List<File> files = new ArrayList<>();
+		Random gen = new Random(22);
+		for (int f = 0; f < 4; f++) {
+			File in = folder.newFile("points" + f + ".txt");
+			try (PrintWriter writer = new PrintWriter(new FileWriter(in))) {
+				for (int i = 0; i < 50; i++) {
+					writer.println(gen.nextInt(400) + " " + gen.nextInt(300));
+				}
+			}
+			files.add(in);
+		}
+		File bad = folder.newFile("bad.txt");
+		try (PrintWriter writer = new PrintWriter(new FileWriter(bad))) {
+			writer.println("not a point");
+		}
+		files.add(bad);
+
+		ByteArrayOutputStream errors = new ByteArrayOutputStream();
+		int failed = new BatchRunner().runAll(files, new PrintStream(new ByteArrayOutputStream()), new PrintStream(errors));
+
+		assertEquals(1, failed);
+		assertTrue(errors.toString().contains("bad.txt"));
+		for (int f = 0; f < 4; f++) {
+			assertTrue(new File(files.get(f).getPath() + ".cells").length() > 0);
+		}
+	}
+}
@@ -1,7 +1,14 @@
 package test.controller;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.Canvas.VoronoiState;
 
 import org.junit.Test;
 
@@ -50,4 +57,150 @@ public class HolderTests {
 
 		assertTrue(holdTest.testFlag);
 	}
+
+	/**
+	 * Holds at each of a list of states in turn, counting how many it gets
+	 * past
+	 */
+	private static Thread holdThrough(final Holder holder, final VoronoiState[] states, final AtomicInteger passed) {
+		Thread t = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					for (VoronoiState state : states) {
+						holder.hold(state);
+						passed.incrementAndGet();
+					}
+				} catch (CancellationException e) {
+					passed.addAndGet(1000);
+				}
+			}
+		});
+		t.start();
+		return t;
+	}
+
+	private static VoronoiState[] steps(int n) {
+		VoronoiState[] states = new VoronoiState[n];
+		for (int i = 0; i < n; i++) {
+			states[i] = i % 5 == 4 ? VoronoiState.DONE : VoronoiState.TRIMMING_AFTER;
+		}
+		return states;
+	}
+
+	@Test
+	public void testNextBeforeHoldIsKept() throws InterruptedException {
+		Holder holder = new Holder();
+		holder.next();
+
+		HoldTest holdTest = new HoldTest(holder);
+		Thread t = new Thread(holdTest);
+		t.start();
+		t.join(CATCH_UP_TIME * 5);
+
+		assertTrue(holdTest.testFlag);
+	}
+
+	@Test
+	public void testAdvance() throws InterruptedException {
+		Holder holder = new Holder();
+		AtomicInteger passed = new AtomicInteger();
+		holdThrough(holder, steps(10), passed);
+
+		holder.advance(3);
+		Thread.sleep(CATCH_UP_TIME);
+		assertEquals(3, passed.get());
+
+		holder.advance(2);
+		Thread.sleep(CATCH_UP_TIME);
+		assertEquals(5, passed.get());
+	}
+
+	@Test
+	public void testRunUntil() throws InterruptedException {
+		Holder holder = new Holder();
+		AtomicInteger passed = new AtomicInteger();
+		holdThrough(holder, steps(10), passed);
+
+		// Stops at the first DONE, which is the fifth state
+		holder.runUntil(VoronoiState.DONE);
+		Thread.sleep(CATCH_UP_TIME);
+		assertEquals(4, passed.get());
+
+		// Goes on from the DONE it is held at to the next one
+		holder.runUntil(VoronoiState.DONE);
+		Thread.sleep(CATCH_UP_TIME);
+		assertEquals(9, passed.get());
+	}
+
+	@Test
+	public void testPlayRateAndPause() throws InterruptedException {
+		Holder holder = new Holder();
+		AtomicInteger passed = new AtomicInteger();
+		Thread t = holdThrough(holder, steps(40), passed);
+
+		long start = System.nanoTime();
+		holder.play(200);
+		Thread.sleep(50);
+		holder.pause();
+		int atPause = passed.get();
+		Thread.sleep(CATCH_UP_TIME);
+		assertEquals(atPause, passed.get());
+		assertTrue(atPause < 40);
+
+		long paused = System.nanoTime();
+		holder.resume();
+		t.join(5000);
+		assertEquals(40, passed.get());
+
+		// 40 steps at 200 a second is 200ms, not counting the pause
+		double millis = (System.nanoTime() - paused + paused - start) / 1e6 - CATCH_UP_TIME;
+		assertTrue(millis > 150);
+	}
+
+	@Test
+	public void testPlayBadRates() {
+		Holder holder = new Holder();
+		double[] rates = { 0, -1, Double.NaN, Double.NEGATIVE_INFINITY };
+		for (double rate : rates) {
+			try {
+				holder.play(rate);
+				fail("Played at " + rate);
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void testRunUntilStopsPlaying() throws InterruptedException {
+		Holder holder = new Holder();
+		AtomicInteger passed = new AtomicInteger();
+		holdThrough(holder, steps(10), passed);
+
+		// Reaching the state holds there, even though it was playing
+		holder.pause();
+		holder.play(Double.POSITIVE_INFINITY);
+		holder.runUntil(VoronoiState.DONE);
+		holder.resume();
+		Thread.sleep(CATCH_UP_TIME);
+		assertEquals(4, passed.get());
+		Thread.sleep(CATCH_UP_TIME);
+		assertEquals(4, passed.get());
+	}
+
+	@Test
+	public void testCancel() throws InterruptedException {
+		Holder holder = new Holder();
+		AtomicInteger passed = new AtomicInteger();
+		Thread t = holdThrough(holder, steps(10), passed);
+
+		holder.next();
+		Thread.sleep(CATCH_UP_TIME);
+		holder.cancel();
+		t.join(CATCH_UP_TIME * 5);
+
+		assertFalse(t.isAlive());
+		assertEquals(1001, passed.get());
+	}
 }
@@ -0,0 +1,195 @@
+package test.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static test.TestHelpers.cellArea;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.After;
+import org.junit.Test;
+
+import controller.SessionManager;
+import model.Canvas;
+import model.VoronoiPolygon;
+import model.math.DoubleKernel;
+import model.math.PointBD;
+
+/**
+ * JUnit testing for SessionManager
+ * @author mxw449
+ */
+public class SessionManagerTests {
+
+	private SessionManager manager;
+
+	@After
+	public void tearDown() {
+		if (manager != null) manager.shutdown();
+	}
+
+	private static List<PointBD> randomPoints(int amount, long seed) {
+		Random gen = new Random(seed);
+		List<PointBD> points = new ArrayList<>();
+		for (int i = 0; i < amount; i++) {
+			points.add(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+		}
+		return points;
+	}
+
+	private static Canvas newCanvas(Canvas.Engine engine) {
+		Canvas canvas = new Canvas(400, 300, new DoubleKernel(), engine);
+		canvas.setNotificationPolicy(Canvas.NotificationPolicy.NONE);
+		return canvas;
+	}
+
+	/**
+	 * The polygons in order of their centres, as adding the points a chunk
+	 * at a time can leave them in a different order
+	 */
+	private static List<VoronoiPolygon> byCentre(List<VoronoiPolygon> polygons) {
+		List<VoronoiPolygon> sorted = new ArrayList<>(polygons);
+		Collections.sort(sorted, new Comparator<VoronoiPolygon>() {
+			@Override
+			public int compare(VoronoiPolygon p1, VoronoiPolygon p2) {
+				int byX = Double.compare(p1.getCentre().getXVal(), p2.getCentre().getXVal());
+				return byX != 0 ? byX : Double.compare(p1.getCentre().getYVal(), p2.getCentre().getYVal());
+			}
+		});
+		return sorted;
+	}
+
+	@Test
+	public void testSessionsMatchBuildingAlone() throws Exception {
+		manager = new SessionManager(3, 50);
+		List<SessionManager.Session> sessions = new ArrayList<>();
+		int total = 0;
+		for (int s = 0; s < 8; s++) {
+			List<PointBD> points = randomPoints(200 + 50 * s, s);
+			total += points.size();
+			Canvas.Engine engine = s % 2 == 0 ? Canvas.Engine.INCREMENTAL : Canvas.Engine.SWEEP_LINE;
+			sessions.add(manager.submit("session " + s, newCanvas(engine), points));
+		}
+
+		for (int s = 0; s < sessions.size(); s++) {
+			SessionManager.Session session = sessions.get(s);
+			session.await();
+			assertTrue(session.isDone());
+			assertEquals(1, session.getProgress(), 0);
+
+			Canvas alone = newCanvas(session.getCanvas().getEngine());
+			alone.addPoints(randomPoints(200 + 50 * s, s));
+			List<VoronoiPolygon> expected = byCentre(alone.getPolygons()), actual = byCentre(session.getCanvas().getPolygons());
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).getCentre(), actual.get(i).getCentre());
+				assertEquals(expected.get(i).getCorners().size(), actual.get(i).getCorners().size());
+				assertEquals(cellArea(expected.get(i)), cellArea(actual.get(i)), 1e-6);
+			}
+		}
+
+		assertEquals(8, manager.getSessionCount());
+		assertEquals(0, manager.getRunningCount());
+		assertEquals(total, manager.getSitesAdded());
+		assertTrue(manager.getSitesPerSecond() > 0);
+	}
+
+	@Test
+	public void testSmallSessionIsNotHeldUpByBigOne() throws Exception {
+		manager = new SessionManager(1, 10);
+		SessionManager.Session big = manager.submit("big", newCanvas(Canvas.Engine.INCREMENTAL), randomPoints(3000, 1));
+		SessionManager.Session small = manager.submit("small", newCanvas(Canvas.Engine.INCREMENTAL), randomPoints(10, 2));
+
+		small.await();
+		assertFalse(big.isDone());
+		assertTrue(big.getProgress() < 1);
+		big.await();
+	}
+
+	@Test
+	public void testHeldSessionDoesNotBlockPool() throws Exception {
+		manager = new SessionManager(1);
+		final CountDownLatch carryOn = new CountDownLatch(1);
+		SessionManager.Session held = manager.submitHeld("held", newCanvas(Canvas.Engine.INCREMENTAL), 0, new Runnable() {
+			@Override
+			public void run() {
+				try {
+					// Like a stepper waiting for the user
+					carryOn.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+
+		SessionManager.Session other = manager.submit("other", newCanvas(Canvas.Engine.INCREMENTAL), randomPoints(100, 3));
+		other.await();
+		assertFalse(held.isDone());
+		assertEquals(1, manager.getRunningCount());
+
+		carryOn.countDown();
+		held.await();
+		assertEquals(0, manager.getRunningCount());
+	}
+
+	@Test
+	public void testShutdownWhileRunning() throws Exception {
+		manager = new SessionManager(1, 10);
+		SessionManager.Session session = manager.submit("long", newCanvas(Canvas.Engine.INCREMENTAL), randomPoints(3000, 4));
+		long giveUp = System.currentTimeMillis() + 10000;
+		while (session.getSitesAdded() == 0 && System.currentTimeMillis() < giveUp) {
+			Thread.sleep(1);
+		}
+		manager.shutdown();
+
+		// The next chunk can't be queued, so the session fails instead of
+		// waiting forever
+		try {
+			session.await();
+			fail("Session finished after the manager was shut down");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof RejectedExecutionException);
+		}
+		assertTrue(session.getSitesAdded() < 3000);
+		assertEquals(0, manager.getRunningCount());
+
+		// Nor is a new session counted
+		try {
+			manager.submit("late", newCanvas(Canvas.Engine.INCREMENTAL), randomPoints(10, 5));
+			fail("Session was taken after the manager was shut down");
+		} catch (RejectedExecutionException e) {
+			assertEquals(1, manager.getSessionCount());
+			assertEquals(0, manager.getRunningCount());
+		}
+	}
+
+	@Test(expected = CancellationException.class)
+	public void testCancel() throws Exception {
+		manager = new SessionManager(1, 1000);
+		SessionManager.Session first = manager.submit("first", newCanvas(Canvas.Engine.INCREMENTAL), randomPoints(2000, 1));
+		SessionManager.Session second = manager.submit("second", newCanvas(Canvas.Engine.INCREMENTAL), randomPoints(100, 2));
+		second.cancel();
+		first.await();
+		assertEquals(0, second.getSitesAdded());
+		second.await();
+	}
+
+	@Test(expected = ExecutionException.class)
+	public void testFailureIsReported() throws Exception {
+		manager = new SessionManager(1);
+		SessionManager.Session session = manager.submit("bad", newCanvas(Canvas.Engine.INCREMENTAL),
+				Arrays.asList(new PointBD(10, 10), null));
+		session.await();
+	}
+}
@@ -0,0 +1,110 @@
+package test.controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import controller.CanvasController;
+import controller.Holder;
+import controller.StepPlayer;
+import gui.CanvasView;
+import model.Canvas;
+import model.StepLog;
+import model.math.DoubleKernel;
+import model.math.PointBD;
+
+/**
+ * JUnit testing for StepPlayer
+ * @author mxw449
+ */
+public class StepPlayerTests {
+
+	private StepLog stepLog;
+	private CanvasView display;
+	private StepPlayer player;
+
+	@Before
+	public void setUp() {
+		Canvas canvas = new Canvas(400, 300, new DoubleKernel(), Canvas.Engine.INCREMENTAL);
+		stepLog = new StepLog();
+		canvas.setStepLog(stepLog);
+		Random gen = new Random(21);
+		for (int i = 0; i < 10; i++) {
+			canvas.addPoint(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+		}
+
+		display = new CanvasView(new CanvasController(canvas, new Holder()));
+		player = new StepPlayer(stepLog, display);
+	}
+
+	/**
+	 * Check the display is showing the step the player is on
+	 */
+	private void assertShowing(int step) {
+		assertEquals(step, player.getPosition());
+		StepLog.Frame expected = stepLog.frameAt(step);
+		assertEquals(expected.getState(), display.getFrame().getState());
+		assertEquals(expected.getCells().size(), display.getFrame().getCells().size());
+	}
+
+	@Test
+	public void testSeekAndStep() {
+		assertTrue(stepLog.size() > 10);
+		assertEquals(-1, player.getPosition());
+		assertNull(display.getFrame());
+
+		player.seek(5);
+		assertShowing(5);
+		player.step(-2);
+		assertShowing(3);
+
+		// Seeking past either end stops on it
+		player.seek(-10);
+		assertShowing(0);
+		player.seek(stepLog.size() + 10);
+		assertShowing(stepLog.size() - 1);
+		assertTrue(player.isAtEnd());
+	}
+
+	@Test
+	public void testStepFromLive() {
+		// Going back from the live canvas starts from the last step
+		player.step(-1);
+		assertShowing(stepLog.size() - 2);
+		assertFalse(player.isAtEnd());
+
+		player.showLive();
+		assertEquals(-1, player.getPosition());
+		assertNull(display.getFrame());
+		assertFalse(player.isAtEnd());
+	}
+
+	@Test
+	public void testPlayBackwards() throws Exception {
+		player.seek(stepLog.size() - 1);
+		player.play(-1000);
+
+		// Stops by itself on the first step. The player is moved on by the
+		// Swing thread, so it is looked at from there too.
+		final int[] position = { -1 };
+		long giveUp = System.currentTimeMillis() + 5000;
+		while (position[0] != 0 && System.currentTimeMillis() < giveUp) {
+			Thread.sleep(10);
+			SwingUtilities.invokeAndWait(new Runnable() {
+				@Override
+				public void run() {
+					position[0] = player.getPosition();
+				}
+			});
+		}
+		assertShowing(0);
+	}
+}
@@ -0,0 +1,66 @@
+package test.gui;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import controller.CanvasController;
+import gui.CanvasView;
+import model.Canvas;
+import model.math.DoubleKernel;
+import model.math.PointBD;
+
+/**
+ * JUnit testing for CanvasView
+ * @author mxw449
+ */
+public class CanvasViewTests {
+
+	private static BufferedImage paint(CanvasView view) {
+		BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		view.paint(g);
+		g.dispose();
+		return image;
+	}
+
+	private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+		for (int y = 0; y < expected.getHeight(); y++) {
+			for (int x = 0; x < expected.getWidth(); x++) {
+				assertEquals("Pixel " + x + ", " + y, expected.getRGB(x, y), actual.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testRedrawingChangesMatchesRedrawingEverything() {
+		Canvas canvas = new Canvas(400, 300, new DoubleKernel(), Canvas.Engine.INCREMENTAL);
+		CanvasView view = new CanvasView(new CanvasController(canvas, null));
+
+		Random gen = new Random(23);
+		List<PointBD> points = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			points.add(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+		}
+		canvas.addPoints(points);
+		paint(view);
+
+		// Only the cells around the new point are drawn again
+		canvas.addPoint(new PointBD(200, 150));
+		BufferedImage added = paint(view);
+		view.invalidateLayer();
+		assertSameImage(paint(view), added);
+
+		// And around the removed one, where the neighbours have grown
+		canvas.removePoint(points.get(5));
+		BufferedImage removed = paint(view);
+		view.invalidateLayer();
+		assertSameImage(paint(view), removed);
+	}
+}
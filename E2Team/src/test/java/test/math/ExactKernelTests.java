@@ -0,0 +1,78 @@
+package test.math;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import model.math.BigDecimalKernel;
+import model.math.ExactKernel;
+import model.math.LineBD;
+import model.math.MarginedBigDecimal;
+import model.math.PointBD;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for ExactKernel
+ * @author mxw449
+ */
+public class ExactKernelTests {
+
+	private static final MarginedBigDecimal WIDTH = new MarginedBigDecimal(800), HEIGHT = new MarginedBigDecimal(600);
+
+	@Test
+	public void testBisectionMatchesReference() {
+		ExactKernel exact = new ExactKernel();
+		BigDecimalKernel reference = new BigDecimalKernel();
+
+		Random gen = new Random(3);
+		for (int i = 0; i < 500; i++) {
+			PointBD centre = new PointBD(gen.nextInt(800), gen.nextInt(600));
+			PointBD p = new PointBD(gen.nextInt(800), gen.nextInt(600));
+			if (centre.equals(p)) continue;
+
+			LineBD exactLine = exact.getBisection(centre, p, WIDTH, HEIGHT);
+			LineBD referenceLine = reference.getBisection(centre, p, WIDTH, HEIGHT);
+
+			assertEquals(referenceLine.getP1().getXVal(), exactLine.getP1().getXVal(), 1e-9);
+			assertEquals(referenceLine.getP1().getYVal(), exactLine.getP1().getYVal(), 1e-9);
+			assertEquals(referenceLine.getP2().getXVal(), exactLine.getP2().getXVal(), 1e-9);
+			assertEquals(referenceLine.getP2().getYVal(), exactLine.getP2().getYVal(), 1e-9);
+		}
+	}
+
+	@Test
+	public void testBisectionIsExact() {
+		// The bisection of (0, 0) and (3, 1) is 3x + y = 5, which crosses
+		// x = 800 at y = -2395
+		LineBD line = new ExactKernel().getBisection(new PointBD(0, 0), new PointBD(3, 1), WIDTH, HEIGHT);
+		assertEquals(5.0, line.getP1().getYVal(), 0);
+		assertEquals(-2395.0, line.getP2().getYVal(), 0);
+	}
+
+	@Test
+	public void testHugeCanvasFallsBack() {
+		// The products overflow a long on a canvas this big, so the bisection
+		// has to come from the DoubleKernel instead
+		MarginedBigDecimal size = new MarginedBigDecimal(1 << 24);
+		PointBD centre = new PointBD(0, 0), p = new PointBD(1 << 24, 1);
+
+		LineBD exactLine = new ExactKernel().getBisection(centre, p, size, size);
+		LineBD referenceLine = new BigDecimalKernel().getBisection(centre, p, size, size);
+
+		assertEquals(referenceLine.getP1().getXVal(), exactLine.getP1().getXVal(), 1e-6);
+		assertEquals(referenceLine.getP1().getYVal(), exactLine.getP1().getYVal(), 1e-6);
+		assertEquals(referenceLine.getP2().getXVal(), exactLine.getP2().getXVal(), 1e-6);
+		assertEquals(referenceLine.getP2().getYVal(), exactLine.getP2().getYVal(), 1e-6);
+	}
+
+	@Test
+	public void testCompareDistances() {
+		ExactKernel exact = new ExactKernel();
+		PointBD origin = new PointBD(0, 0);
+
+		assertEquals(0, exact.compareDistances(origin, new PointBD(3, 4), new PointBD(5, 0)));
+		assertEquals(-1, Integer.signum(exact.compareDistances(origin, new PointBD(3, 3), new PointBD(5, 0))));
+		assertEquals(1, Integer.signum(exact.compareDistances(origin, new PointBD(5, 1), new PointBD(5, 0))));
+	}
+}
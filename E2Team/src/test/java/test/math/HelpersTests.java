@@ -0,0 +1,44 @@
+package test.math;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import model.math.Helpers;
+import model.math.PointBD;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for Helpers
+ * @author mxw449
+ */
+public class HelpersTests {
+
+	@Test
+	public void testPseudoAngleOrdersLikeAngle() {
+		PointBD centre = new PointBD(100, 100);
+		Random gen = new Random(5);
+
+		for (int i = 0; i < 1000; i++) {
+			PointBD p1 = new PointBD(gen.nextInt(200), gen.nextInt(200));
+			PointBD p2 = new PointBD(gen.nextInt(200), gen.nextInt(200));
+			if (p1.equals(centre) || p2.equals(centre)) continue;
+
+			int angleOrder = Double.compare(Helpers.angleBetweenPoints(centre, p1), Helpers.angleBetweenPoints(centre, p2));
+			int pseudoOrder = Double.compare(Helpers.pseudoAngle(centre, p1), Helpers.pseudoAngle(centre, p2));
+
+			// Points at exactly the same angle may round differently
+			if (angleOrder != 0 && pseudoOrder != 0) assertEquals(angleOrder, pseudoOrder);
+		}
+	}
+
+	@Test
+	public void testPseudoAngleAxes() {
+		PointBD centre = new PointBD(0, 0);
+		assertEquals(0, Helpers.pseudoAngle(centre, new PointBD(5, 0)), 0);
+		assertEquals(1, Helpers.pseudoAngle(centre, new PointBD(0, 5)), 0);
+		assertEquals(2, Helpers.pseudoAngle(centre, new PointBD(-5, 0)), 0);
+		assertEquals(3, Helpers.pseudoAngle(centre, new PointBD(0, -5)), 0);
+	}
+}
@@ -0,0 +1,58 @@
+package test.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import model.math.MarginedBigDecimal;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for MarginedBigDecimal
+ * @author mxw449
+ */
+public class MarginedBigDecimalTests {
+
+	private static final MarginedBigDecimal MARGIN = new MarginedBigDecimal(MarginedBigDecimal.marginOfError());
+
+	@Test
+	public void testEqualsAroundMargin() {
+		MarginedBigDecimal zero = MarginedBigDecimal.ZERO;
+
+		assertTrue(zero.equals(new MarginedBigDecimal(0.999999)));
+		assertFalse(zero.equals(new MarginedBigDecimal(1)));
+		assertFalse(zero.equals(new MarginedBigDecimal(1.000001)));
+
+		// Exactly on the margin after some arithmetic, which has to fall
+		// back to the BigDecimals
+		MarginedBigDecimal third = new MarginedBigDecimal(1).divide(new MarginedBigDecimal(3));
+		MarginedBigDecimal nearlyOne = third.add(third).add(third);
+		assertEquals(slowEquals(zero, nearlyOne), zero.equals(nearlyOne));
+	}
+
+	@Test
+	public void testMatchesExactComparison() {
+		Random gen = new Random(7);
+		for (int i = 0; i < 2000; i++) {
+			int p = gen.nextInt(100), q = gen.nextInt(9) + 1;
+			int r = gen.nextInt(100), s = gen.nextInt(9) + 1;
+			MarginedBigDecimal a = new MarginedBigDecimal(p).divide(new MarginedBigDecimal(q));
+			MarginedBigDecimal b = new MarginedBigDecimal(r).divide(new MarginedBigDecimal(s));
+
+			// p/q and r/s compared exactly using integers
+			int crossDifference = p * s - r * q;
+			assertEquals(Math.abs(crossDifference) < q * s, a.equals(b));
+			assertEquals(Integer.signum(crossDifference), Integer.signum(a.compareTo(b)));
+		}
+	}
+
+	/**
+	 * Equality done with BigDecimal arithmetic
+	 */
+	private static boolean slowEquals(MarginedBigDecimal a, MarginedBigDecimal b) {
+		return a.subtract(b).abs().compareTo(MARGIN) < 0;
+	}
+}
@@ -0,0 +1,78 @@
+package test.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import model.math.DoubleKernel;
+import model.math.LineBD;
+import model.math.PointBD;
+import model.math.PointSet;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for PointSet and the hashing of points and lines
+ * @author mxw449
+ */
+public class PointSetTests {
+
+	@Test
+	public void testContainsWithinMargin() {
+		PointSet set = new PointSet(new DoubleKernel());
+		assertTrue(set.add(new PointBD(100, 100)));
+
+		assertTrue(set.contains(new PointBD(100.3, 99.8)));
+		assertFalse(set.add(new PointBD(99.9, 100)));
+		assertFalse(set.contains(new PointBD(102, 100)));
+		assertEquals(1, set.size());
+	}
+
+	@Test
+	public void testContainsAcrossCellEdge() {
+		// These two points are equal, but snap to different grid cells
+		PointSet set = new PointSet(new DoubleKernel());
+		set.add(new PointBD(10.45, 20));
+
+		assertTrue(set.contains(new PointBD(10.55, 20)));
+	}
+
+	@Test
+	public void testHashCodes() {
+		PointBD p1 = new PointBD(100, 200);
+		PointBD p2 = new PointBD(300, 400);
+
+		assertEquals(p1.hashCode(), new PointBD(100.0000001, 199.9999999).hashCode());
+		assertEquals(new LineBD(p1, p2).hashCode(), new LineBD(p2, p1).hashCode());
+
+		// Equal points either side of a grid line still hash the same
+		PointBD p3 = new PointBD(10.45, 20), p4 = new PointBD(10.55, 20);
+		assertEquals(p3, p4);
+		assertEquals(p3.hashCode(), p4.hashCode());
+		assertEquals(p3.getX().hashCode(), p4.getX().hashCode());
+	}
+
+	@Test
+	public void testRemoveDuplicatesAcrossCellEdge() {
+		// These two points are equal, but snap to different grid cells
+		List<PointBD> points = Arrays.asList(new PointBD(10.45, 20), new PointBD(30, 40), new PointBD(10.55, 20));
+		List<PointBD> unique = PointSet.removeDuplicates(points, new DoubleKernel());
+
+		assertEquals(2, unique.size());
+		assertSame(points.get(0), unique.get(0));
+		assertSame(points.get(1), unique.get(1));
+	}
+
+	@Test
+	public void testIntern() {
+		PointSet set = new PointSet(new DoubleKernel());
+		PointBD p = new PointBD(10.45, 20);
+		assertSame(p, set.intern(p));
+		assertSame(p, set.intern(new PointBD(10.55, 20)));
+		assertEquals(1, set.size());
+	}
+}
@@ -0,0 +1,80 @@
+package test.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+
+import model.math.LineBD;
+import model.math.PointBD;
+import model.math.Predicates;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for Predicates
+ * @author mxw449
+ */
+public class PredicatesTests {
+
+	@Test
+	public void testOrientation() {
+		assertEquals(1, Predicates.orientation(0, 0, 10, 0, 5, 5));
+		assertEquals(-1, Predicates.orientation(0, 0, 10, 0, 5, -5));
+		assertEquals(0, Predicates.orientation(0, 0, 10, 10, 25, 25));
+	}
+
+	@Test
+	public void testOrientationNearlyCollinear() {
+		// Points very close to the line y = x, where the double calculation
+		// on its own gets the sign wrong
+		double ulp = Math.ulp(0.5);
+		for (int i = 0; i < 64; i++) {
+			for (int j = 0; j < 64; j++) {
+				double cx = 0.5 + i * ulp;
+				double cy = 0.5 + j * ulp;
+				int expected = exact(12, 12, 24, 24, cx, cy);
+				assertEquals(expected, Predicates.orientation(12, 12, 24, 24, cx, cy));
+			}
+		}
+	}
+
+	@Test
+	public void testInCircle() {
+		// The circle through these has centre (5, 5)
+		assertEquals(1, Predicates.inCircle(0, 0, 10, 0, 10, 10, 5, 6));
+		assertEquals(-1, Predicates.inCircle(0, 0, 10, 0, 10, 10, 20, 20));
+		assertEquals(0, Predicates.inCircle(0, 0, 10, 0, 10, 10, 0, 10));
+		// Clockwise flips the sign
+		assertEquals(-1, Predicates.inCircle(10, 10, 10, 0, 0, 0, 5, 6));
+	}
+
+	@Test
+	public void testSegmentsIntersect() {
+		LineBD horizontal = new LineBD(0, 0, 10, 0);
+
+		assertTrue(Predicates.segmentsIntersect(horizontal, new LineBD(5, -5, 5, 5)));
+		assertTrue(Predicates.segmentsIntersect(horizontal, new LineBD(10, 0, 10, 5)));
+		assertTrue(Predicates.segmentsIntersect(horizontal, new LineBD(5, 0, 15, 0)));
+		assertFalse(Predicates.segmentsIntersect(horizontal, new LineBD(11, 0, 15, 0)));
+		assertFalse(Predicates.segmentsIntersect(horizontal, new LineBD(5, 1, 5, 5)));
+	}
+
+	@Test
+	public void testLineIntersection() {
+		PointBD crossing = Predicates.lineIntersection(new PointBD(0, 0), new PointBD(10, 10), new PointBD(0, 10), new PointBD(10, 0));
+		assertTrue(crossing.equals(new PointBD(5, 5)));
+
+		assertEquals(null, Predicates.lineIntersection(new PointBD(0, 0), new PointBD(10, 0), new PointBD(0, 5), new PointBD(10, 5)));
+	}
+
+	/**
+	 * Orientation worked out exactly, for comparison
+	 */
+	private static int exact(double ax, double ay, double bx, double by, double cx, double cy) {
+		BigDecimal left = new BigDecimal(bx).subtract(new BigDecimal(ax)).multiply(new BigDecimal(cy).subtract(new BigDecimal(ay)));
+		BigDecimal right = new BigDecimal(by).subtract(new BigDecimal(ay)).multiply(new BigDecimal(cx).subtract(new BigDecimal(ax)));
+		return left.compareTo(right);
+	}
+}
@@ -0,0 +1,68 @@
+package test.math;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import model.math.PointStore;
+import model.math.SiteIndex;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for SiteIndex
+ * @author mxw449
+ */
+public class SiteIndexTests {
+
+	@Test
+	public void testNearestMatchesScan() {
+		PointStore store = new PointStore();
+		SiteIndex index = new SiteIndex(store, 400, 300);
+		Random gen = new Random(12);
+		for (int i = 0; i < 500; i++) {
+			index.add(store.add(gen.nextDouble() * 400, gen.nextDouble() * 300));
+		}
+
+		for (int q = 0; q < 200; q++) {
+			double x = gen.nextDouble() * 440 - 20;
+			double y = gen.nextDouble() * 340 - 20;
+			double[] distances = store.distancesSqrd(x, y);
+			int closest = 0;
+			for (int i = 1; i < distances.length; i++) {
+				if (distances[i] < distances[closest]) closest = i;
+			}
+			assertEquals(distances[closest], distances[index.nearest(x, y)], 0);
+		}
+	}
+
+	@Test
+	public void testWithin() {
+		PointStore store = new PointStore();
+		SiteIndex index = new SiteIndex(store, 100, 100);
+		index.add(store.add(10, 10));
+		index.add(store.add(11, 10));
+		index.add(store.add(50, 50));
+		index.add(store.add(100, 100));
+
+		int[] found = index.within(10.5, 10, 2);
+		Arrays.sort(found);
+		assertArrayEquals(new int[] { 0, 1 }, found);
+		assertArrayEquals(new int[] { 3 }, index.within(100, 100, 1));
+		assertEquals(0, index.within(70, 70, 5).length);
+	}
+
+	@Test
+	public void testEmpty() {
+		PointStore store = new PointStore();
+		SiteIndex index = new SiteIndex(store, 100, 100);
+		assertEquals(-1, index.nearest(50, 50));
+
+		index.add(store.add(20, 20));
+		store.clear();
+		index.clear();
+		assertEquals(-1, index.nearest(50, 50));
+	}
+}
@@ -0,0 +1,81 @@
+package test.math;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import model.math.PointBD;
+import model.math.SpatialOrder;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for SpatialOrder
+ * @author mxw449
+ */
+public class SpatialOrderTests {
+
+	@Test
+	public void testHilbertIndexVisitsEveryCell() {
+		HashSet<Long> seen = new HashSet<>();
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				long d = SpatialOrder.hilbertIndex(x, y, 8);
+				assertTrue(d >= 0 && d < 64);
+				seen.add(d);
+			}
+		}
+		assertEquals(64, seen.size());
+	}
+
+	@Test
+	public void testHilbertStepsToNeighbours() {
+		// Following the curve, each cell is next to the one before
+		int[] xs = new int[64], ys = new int[64];
+		for (int x = 0; x < 8; x++) {
+			for (int y = 0; y < 8; y++) {
+				int d = (int) SpatialOrder.hilbertIndex(x, y, 8);
+				xs[d] = x;
+				ys[d] = y;
+			}
+		}
+		for (int d = 1; d < 64; d++) {
+			assertEquals(1, Math.abs(xs[d] - xs[d - 1]) + Math.abs(ys[d] - ys[d - 1]));
+		}
+	}
+
+	@Test
+	public void testBrioKeepsEveryPoint() {
+		Random gen = new Random(13);
+		List<PointBD> points = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			points.add(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+		}
+
+		List<PointBD> ordered = SpatialOrder.brio(points, 400, 300, gen);
+		assertEquals(points.size(), ordered.size());
+		assertTrue(ordered.containsAll(points));
+	}
+
+	@Test
+	public void testHilbertOrderMatchesHilbert() {
+		Random gen = new Random(27);
+		List<PointBD> points = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			points.add(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+		}
+
+		// The indexes say where each point of the sorted list came from
+		List<PointBD> sorted = SpatialOrder.hilbert(points, 400, 300);
+		int[] order = SpatialOrder.hilbertOrder(points, 400, 300);
+		assertEquals(points.size(), order.length);
+		for (int k = 0; k < order.length; k++) {
+			assertSame(sorted.get(k), points.get(order[k]));
+		}
+	}
+}
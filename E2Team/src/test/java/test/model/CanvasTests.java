@@ -0,0 +1,537 @@
+package test.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static test.TestHelpers.cellArea;
+import static test.TestHelpers.polyArea;
+import static test.TestHelpers.polyEqual;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import model.Canvas;
+import model.VoronoiPolygon;
+import model.math.BigDecimalKernel;
+import model.math.DoubleKernel;
+import model.math.ExactKernel;
+import model.math.PointBD;
+
+import org.junit.Test;
+
+import controller.Holder;
+
+/**
+ * JUnit testing for Canvas
+ * @author mxw449
+ */
+public class CanvasTests {
+
+	/**
+	 * Create a canvas which doesn't wait to be told to continue
+	 */
+	private static Canvas freeRunningCanvas(Canvas canvas) {
+		canvas.setIsManual(true);
+		return canvas;
+	}
+
+	@Test
+	public void testDoubleKernelMatchesReference() {
+		Canvas reference = freeRunningCanvas(new Canvas(400, 300, new Holder()));
+		Canvas doubles = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+
+		Random gen = new Random(42);
+		for (int i = 0; i < 30; i++) {
+			PointBD p = new PointBD(gen.nextInt(400), gen.nextInt(300));
+			reference.addPoint(p);
+			doubles.addPoint(p);
+		}
+
+		List<VoronoiPolygon> refPolygons = reference.getPolygons();
+		List<VoronoiPolygon> doublePolygons = doubles.getPolygons();
+		assertEquals(refPolygons.size(), doublePolygons.size());
+
+		for (int i = 0; i < refPolygons.size(); i++) {
+			assertTrue(polyEqual(refPolygons.get(i).getJavaPolygon(), doublePolygons.get(i).getJavaPolygon()));
+		}
+	}
+
+	@Test
+	public void testExactKernelMatchesReference() {
+		Canvas reference = freeRunningCanvas(new Canvas(400, 300, new Holder()));
+		Canvas exact = freeRunningCanvas(new Canvas(400, 300, new Holder(), new ExactKernel()));
+
+		Random gen = new Random(11);
+		for (int i = 0; i < 30; i++) {
+			PointBD p = new PointBD(gen.nextInt(400), gen.nextInt(300));
+			reference.addPoint(p);
+			exact.addPoint(p);
+		}
+
+		assertEquals(reference.getPolygons().size(), exact.getPolygons().size());
+		for (int i = 0; i < reference.getPolygons().size(); i++) {
+			assertTrue(polyEqual(reference.getPolygons().get(i).getJavaPolygon(), exact.getPolygons().get(i).getJavaPolygon()));
+		}
+	}
+
+	@Test
+	public void testDegeneratePoints() {
+		// Cocircular and collinear points put bisections straight through
+		// corners of existing polygons
+		Canvas canvas = freeRunningCanvas(new Canvas(200, 200, new Holder()));
+		for (int x = 20; x < 200; x += 40) {
+			for (int y = 20; y < 200; y += 40) {
+				canvas.addPoint(new PointBD(x, y));
+			}
+		}
+
+		assertEquals(25, canvas.getPolygons().size());
+	}
+
+	@Test
+	public void testDuplicatePointIgnored() {
+		Canvas canvas = freeRunningCanvas(new Canvas(200, 200, new Holder(), new DoubleKernel()));
+		canvas.addPoint(new PointBD(50, 50));
+		canvas.addPoint(new PointBD(150, 150));
+		canvas.addPoint(new PointBD(50, 50));
+
+		assertEquals(2, canvas.getPolygons().size());
+	}
+
+	@Test
+	public void testSweepLineMatchesIncremental() {
+		Canvas sweep = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), Canvas.Engine.SWEEP_LINE));
+		sweep.fillCanvasWithPoints(40, "random");
+
+		Canvas incremental = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+		for (VoronoiPolygon poly : sweep.getPolygons()) {
+			incremental.addPoint(poly.getCentre());
+		}
+
+		assertEquals(incremental.getPolygons().size(), sweep.getPolygons().size());
+		for (int i = 0; i < sweep.getPolygons().size(); i++) {
+			double expected = cellArea(incremental.getPolygons().get(i));
+			assertEquals(expected, cellArea(sweep.getPolygons().get(i)), 1e-6);
+		}
+	}
+
+	@Test
+	public void testSweepLineDegeneratePoints() {
+		Canvas canvas = freeRunningCanvas(new Canvas(200, 200, new Holder(), new BigDecimalKernel(), Canvas.Engine.SWEEP_LINE));
+		canvas.fillCanvasWithPoints(25, "square");
+
+		assertEquals(25, canvas.getPolygons().size());
+		double total = 0;
+		for (VoronoiPolygon poly : canvas.getPolygons()) {
+			assertEquals(4, poly.getEdges().size());
+			assertTrue(poly.getJavaPolygon().contains(poly.getCentre().getXVal(), poly.getCentre().getYVal()));
+			total += polyArea(poly.getJavaPolygon());
+		}
+		assertEquals(200 * 200, total, 1);
+	}
+
+	@Test
+	public void testParallelSweepMatchesSweepLine() {
+		Canvas parallel = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), Canvas.Engine.PARALLEL_SWEEP));
+		Canvas sweep = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), Canvas.Engine.SWEEP_LINE));
+
+		Random gen = new Random(14);
+		List<PointBD> points = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			points.add(new PointBD(gen.nextDouble() * 400, gen.nextDouble() * 300));
+		}
+		parallel.addPoints(points);
+		sweep.addPoints(points);
+
+		assertEquals(sweep.getPolygons().size(), parallel.getPolygons().size());
+		for (int i = 0; i < sweep.getPolygons().size(); i++) {
+			assertTrue(polyEqual(sweep.getPolygons().get(i).getJavaPolygon(), parallel.getPolygons().get(i).getJavaPolygon()));
+		}
+	}
+
+	@Test
+	public void testAddPointAfterSweepLine() {
+		Canvas canvas = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), Canvas.Engine.SWEEP_LINE));
+		canvas.fillCanvasWithPoints(20, "random");
+		canvas.addPoint(new PointBD(201, 149));
+
+		double total = 0;
+		for (VoronoiPolygon poly : canvas.getPolygons()) {
+			total += polyArea(poly.getJavaPolygon());
+		}
+		assertEquals(400 * 300, total, 400);
+	}
+
+	@Test
+	public void testDelaunayMatchesIncremental() {
+		Canvas delaunay = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), Canvas.Engine.DELAUNAY));
+		Canvas incremental = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+
+		Random gen = new Random(8);
+		for (int i = 0; i < 40; i++) {
+			PointBD p = new PointBD(gen.nextInt(400), gen.nextInt(300));
+			delaunay.addPoint(p);
+			incremental.addPoint(p);
+		}
+
+		assertEquals(incremental.getPolygons().size(), delaunay.getPolygons().size());
+		for (int i = 0; i < delaunay.getPolygons().size(); i++) {
+			double expected = cellArea(incremental.getPolygons().get(i));
+			assertEquals(expected, cellArea(delaunay.getPolygons().get(i)), 1e-6);
+		}
+	}
+
+	@Test
+	public void testNeighboursMatchDelaunay() {
+		Canvas delaunay = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), Canvas.Engine.DELAUNAY));
+		Canvas incremental = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+
+		Random gen = new Random(11);
+		List<PointBD> points = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			PointBD p = new PointBD(gen.nextInt(400), gen.nextInt(300));
+			points.add(p);
+			delaunay.addPoint(p);
+			incremental.addPoint(p);
+		}
+		assertSameNeighbours(delaunay, incremental);
+
+		// Removing points gives the neighbours of the removed polygons new
+		// neighbours
+		for (int i = 0; i < 100; i++) {
+			delaunay.removePoint(points.get(i));
+			incremental.removePoint(points.get(i));
+		}
+		assertSameNeighbours(delaunay, incremental);
+	}
+
+	private static void assertSameNeighbours(Canvas expectedCanvas, Canvas actualCanvas) {
+		List<VoronoiPolygon> polygons = actualCanvas.getPolygons();
+		assertEquals(expectedCanvas.getPolygons().size(), polygons.size());
+		for (int i = 0; i < polygons.size(); i++) {
+			Set<Integer> expected = new HashSet<>();
+			for (VoronoiPolygon n : expectedCanvas.getPolygons().get(i).getNeighbours()) {
+				expected.add(expectedCanvas.getPolygons().indexOf(n));
+			}
+			Set<Integer> actual = new HashSet<>();
+			for (VoronoiPolygon n : polygons.get(i).getNeighbours()) {
+				actual.add(polygons.indexOf(n));
+				assertTrue(n.getNeighbours().contains(polygons.get(i)));
+			}
+			assertEquals(expected, actual);
+		}
+	}
+
+	@Test
+	public void testAddPointsMatchesAddPoint() {
+		Canvas batch = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+		Canvas single = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+
+		Random gen = new Random(13);
+		List<PointBD> points = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			PointBD p = new PointBD(gen.nextInt(400), gen.nextInt(300));
+			points.add(p);
+			single.addPoint(p);
+		}
+
+		final int[] notifications = new int[1];
+		batch.addObserver(new Observer() {
+			@Override
+			public void update(Observable o, Object arg) {
+				notifications[0]++;
+			}
+		});
+		batch.addPoints(points);
+
+		assertEquals(1, notifications[0]);
+		assertEquals(single.getPolygons().size(), batch.getPolygons().size());
+		for (VoronoiPolygon poly : batch.getPolygons()) {
+			for (VoronoiPolygon other : single.getPolygons()) {
+				if (!other.getCentre().equals(poly.getCentre())) continue;
+				assertEquals(cellArea(other), cellArea(poly), 1e-6);
+			}
+		}
+	}
+
+	@Test
+	public void testRemovePointMatchesRebuild() {
+		for (Canvas.Engine engine : Canvas.Engine.values()) {
+			Canvas edited = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), engine));
+			Canvas rebuilt = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), engine));
+
+			Random gen = new Random(15);
+			List<PointBD> points = new ArrayList<>();
+			for (int i = 0; i < 60; i++) {
+				points.add(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+			}
+			edited.addPoints(points);
+			for (int i = 0; i < 20; i++) {
+				assertTrue(edited.removePoint(points.get(i)));
+			}
+			assertTrue(!edited.removePoint(points.get(0)));
+			rebuilt.addPoints(points.subList(20, points.size()));
+
+			assertEquals(rebuilt.getPolygons().size(), edited.getPolygons().size());
+			for (VoronoiPolygon poly : edited.getPolygons()) {
+				for (VoronoiPolygon other : rebuilt.getPolygons()) {
+					if (!other.getCentre().equals(poly.getCentre())) continue;
+					assertEquals(cellArea(other), cellArea(poly), 1e-6);
+				}
+			}
+			assertEquals(rebuilt.getTopLeft().getCentre(), edited.getTopLeft().getCentre());
+			assertEquals(rebuilt.getBottomRight().getCentre(), edited.getBottomRight().getCentre());
+		}
+	}
+
+	@Test
+	public void testRemoveEveryPoint() {
+		Canvas canvas = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+		canvas.addPoint(new PointBD(100, 100));
+		canvas.addPoint(new PointBD(300, 200));
+
+		assertTrue(canvas.removePoint(new PointBD(100, 100)));
+		assertEquals(4, canvas.getPolygons().get(0).getEdges().size());
+		assertTrue(canvas.removePoint(new PointBD(300, 200)));
+		assertEquals(0, canvas.getPolygons().size());
+
+		canvas.addPoint(new PointBD(200, 200));
+		assertEquals(1, canvas.getPolygons().size());
+	}
+
+	@Test
+	public void testHeadlessCanvasDoesNotWait() {
+		// Not manual, so each step would wait if the canvas had a stepper
+		Canvas canvas = new Canvas(400, 300, new DoubleKernel(), Canvas.Engine.INCREMENTAL);
+		canvas.fillCanvasWithPoints(30, "random");
+
+		assertEquals(canvas.getPolygons().size(), canvas.getNodeCount());
+		assertTrue(canvas.getPolygons().size() > 20);
+	}
+
+	@Test
+	public void testDenseCellsCoverCanvas() {
+		// Close together, so the bisections cut across corners of the cells
+		// and the walk across neighbours misses some of them
+		for (boolean whole : new boolean[] { true, false }) {
+			Canvas incremental = freeRunningCanvas(new Canvas(400, 300, new Holder()));
+			Canvas sweep = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), Canvas.Engine.SWEEP_LINE));
+
+			Random gen = new Random(1);
+			List<PointBD> points = new ArrayList<>();
+			for (int i = 0; i < 1000; i++) {
+				PointBD p = whole ? new PointBD(gen.nextInt(400), gen.nextInt(300)) : new PointBD(gen.nextDouble() * 400, gen.nextDouble() * 300);
+				points.add(p);
+				incremental.addPoint(p);
+			}
+			sweep.addPoints(points);
+
+			double total = 0;
+			assertEquals(sweep.getPolygons().size(), incremental.getPolygons().size());
+			for (int i = 0; i < sweep.getPolygons().size(); i++) {
+				double area = cellArea(incremental.getPolygons().get(i));
+				assertEquals(cellArea(sweep.getPolygons().get(i)), area, 1e-6);
+				total += area;
+			}
+			assertEquals(400 * 300, total, 1e-6);
+		}
+	}
+
+	@Test
+	public void testNotificationPolicy() {
+		int[] counts = new int[Canvas.NotificationPolicy.values().length];
+		for (Canvas.NotificationPolicy policy : Canvas.NotificationPolicy.values()) {
+			Canvas canvas = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+			canvas.setNotificationPolicy(policy);
+			final int[] notifications = new int[1];
+			canvas.addObserver(new Observer() {
+				@Override
+				public void update(Observable o, Object arg) {
+					notifications[0]++;
+				}
+			});
+
+			Random gen = new Random(19);
+			for (int i = 0; i < 20; i++) {
+				canvas.addPoint(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+			}
+			assertEquals(Canvas.VoronoiState.DONE, canvas.getState());
+			counts[policy.ordinal()] = notifications[0];
+		}
+
+		// A start and a finish for each point, apart from the first which
+		// only has a start
+		assertEquals(39, counts[Canvas.NotificationPolicy.EACH_POINT.ordinal()]);
+		assertTrue(counts[Canvas.NotificationPolicy.EVERY_STEP.ordinal()] > 39);
+		assertEquals(0, counts[Canvas.NotificationPolicy.NONE.ordinal()]);
+	}
+
+	@Test
+	public void testNotificationsCoverChangedPolygons() {
+		for (Canvas.Engine engine : new Canvas.Engine[] { Canvas.Engine.INCREMENTAL, Canvas.Engine.DELAUNAY }) {
+			final Canvas canvas = new Canvas(800, 600, new DoubleKernel(), engine);
+			Random gen = new Random(24);
+			List<PointBD> points = new ArrayList<>();
+			for (int i = 0; i < 200; i++) {
+				points.add(new PointBD(gen.nextInt(800), gen.nextInt(600)));
+			}
+			canvas.addPoints(points);
+
+			final Map<VoronoiPolygon, Integer> versions = new IdentityHashMap<>();
+			final Map<VoronoiPolygon, Rectangle> bounds = new IdentityHashMap<>();
+			for (VoronoiPolygon poly : canvas.getPolygons()) {
+				versions.put(poly, poly.getVersion());
+				bounds.put(poly, poly.getJavaPolygon().getBounds());
+			}
+			final List<Rectangle> areas = new ArrayList<>();
+			canvas.addObserver(new Observer() {
+				@Override
+				public void update(Observable o, Object arg) {
+					Rectangle changed = (Rectangle) arg;
+					areas.add(changed);
+					for (VoronoiPolygon poly : canvas.getPolygons()) {
+						Integer version = versions.get(poly);
+						if (version != null && version == poly.getVersion()) continue;
+
+						Rectangle now = poly.getJavaPolygon().getBounds();
+						if (changed != null) {
+							if (version != null) assertTrue(changed.contains(bounds.get(poly)));
+							assertTrue(changed.contains(now));
+						}
+						versions.put(poly, poly.getVersion());
+						bounds.put(poly, now);
+					}
+				}
+			});
+
+			for (int i = 0; i < 20; i++) {
+				canvas.addPoint(new PointBD(gen.nextInt(800), gen.nextInt(600)));
+			}
+
+			// Each step only covers a little of the canvas
+			long total = 0;
+			for (Rectangle area : areas) {
+				total += (long) area.width * area.height;
+			}
+			assertTrue(total / areas.size() < 800 * 600 / 10);
+
+			// Removing a point only covers its neighbours too, but relaxing
+			// moves everything
+			canvas.removePoint(points.get(0));
+			canvas.relax(1);
+			assertEquals(null, areas.get(areas.size() - 1));
+		}
+	}
+
+	@Test
+	public void testBorderClippingCoversCanvas() {
+		Canvas canvas = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+
+		Random gen = new Random(17);
+		for (int i = 0; i < 80; i++) {
+			canvas.addPoint(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+
+			double total = 0;
+			for (VoronoiPolygon poly : canvas.getPolygons()) {
+				total += cellArea(poly);
+			}
+			assertEquals(400 * 300, total, 1e-6);
+		}
+
+		// The corners belong to the polygons with the closest centres
+		PointBD[] corners = { new PointBD(0, 0), new PointBD(400, 0), new PointBD(0, 300), new PointBD(400, 300) };
+		VoronoiPolygon[] owners = { canvas.getTopLeft(), canvas.getTopRight(), canvas.getBottomLeft(), canvas.getBottomRight() };
+		for (int c = 0; c < 4; c++) {
+			for (VoronoiPolygon poly : canvas.getPolygons()) {
+				assertTrue(corners[c].getDistanceSqrdVal(owners[c].getCentre()) <= corners[c].getDistanceSqrdVal(poly.getCentre()));
+			}
+		}
+	}
+
+	@Test
+	public void testRelax() {
+		for (Canvas.Engine engine : Canvas.Engine.values()) {
+			Canvas canvas = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel(), engine));
+			Random gen = new Random(16);
+			List<PointBD> points = new ArrayList<>();
+			for (int i = 0; i < 50; i++) {
+				points.add(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+			}
+			canvas.addPoints(points);
+			List<VoronoiPolygon> before = new ArrayList<>(canvas.getPolygons());
+			canvas.relax(5);
+
+			// The same polygons are moved, rather than replaced
+			assertEquals(50, canvas.getPolygons().size());
+			for (int i = 0; i < 50; i++) {
+				assertSame(before.get(i), canvas.getPolygons().get(i));
+			}
+			double total = 0;
+			for (VoronoiPolygon poly : canvas.getPolygons()) {
+				total += polyArea(poly.getJavaPolygon());
+				for (VoronoiPolygon neighbour : poly.getNeighbours()) {
+					assertTrue(neighbour.getNeighbours().contains(poly));
+				}
+			}
+			// Corners are truncated to whole pixels when drawn
+			assertEquals(400 * 300, total, 400);
+
+			// Points can still be added and removed after relaxing
+			canvas.addPoint(new PointBD(201, 151));
+			canvas.removePoint(canvas.getPolygons().get(0).getCentre());
+			total = 0;
+			for (VoronoiPolygon poly : canvas.getPolygons()) {
+				total += cellArea(poly);
+			}
+			assertEquals(400 * 300, total, 1e-6);
+		}
+	}
+
+	@Test
+	public void testRelaxOnGivenPool() {
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			Canvas canvas = freeRunningCanvas(new Canvas(400, 300, new Holder(), new DoubleKernel()));
+			canvas.setPool(pool);
+			Random gen = new Random(16);
+			for (int i = 0; i < 50; i++) {
+				canvas.addPoint(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+			}
+			canvas.relax(2);
+
+			assertEquals(50, canvas.getPolygons().size());
+			// The relaxing started threads in the canvas's pool
+			assertTrue(pool.getPoolSize() > 0);
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void testDelaunayDegeneratePoints() {
+		Canvas canvas = freeRunningCanvas(new Canvas(200, 200, new Holder(), new BigDecimalKernel(), Canvas.Engine.DELAUNAY));
+		for (int x = 20; x < 200; x += 40) {
+			for (int y = 20; y < 200; y += 40) {
+				canvas.addPoint(new PointBD(x, y));
+			}
+		}
+
+		assertEquals(25, canvas.getPolygons().size());
+		for (VoronoiPolygon poly : canvas.getPolygons()) {
+			assertEquals(4, poly.getEdges().size());
+			// getJavaPolygon truncates, so allow a pixel along one edge
+			assertEquals(40 * 40, polyArea(poly.getJavaPolygon()), 40);
+		}
+		assertTrue(canvas.getTopLeft().getCentre().equals(new PointBD(20, 20)));
+		assertTrue(canvas.getBottomRight().getCentre().equals(new PointBD(180, 180)));
+	}
+}
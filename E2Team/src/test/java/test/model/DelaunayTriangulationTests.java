@@ -0,0 +1,146 @@
+package test.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import model.DelaunayTriangulation;
+import model.math.PointBD;
+import model.math.Predicates;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for DelaunayTriangulation
+ * @author mxw449
+ */
+public class DelaunayTriangulationTests {
+
+	private static final List<PointBD> BOUNDARY = Arrays.asList(new PointBD(0, 0), new PointBD(400, 0), new PointBD(400, 300), new PointBD(0, 300));
+
+	private static DelaunayTriangulation randomTriangulation(int amount, long seed) {
+		DelaunayTriangulation triangulation = new DelaunayTriangulation(BOUNDARY);
+		Random gen = new Random(seed);
+		for (int i = 0; i < amount; i++) {
+			triangulation.insert(new PointBD(gen.nextDouble() * 400, gen.nextDouble() * 300));
+		}
+		return triangulation;
+	}
+
+	@Test
+	public void testEmptyCircumcircles() {
+		DelaunayTriangulation triangulation = randomTriangulation(200, 3);
+
+		for (int[] t : triangulation.getTriangles()) {
+			PointBD a = triangulation.getSite(t[0]);
+			PointBD b = triangulation.getSite(t[1]);
+			PointBD c = triangulation.getSite(t[2]);
+			assertEquals(1, Predicates.orientation(a, b, c));
+			for (int i = 0; i < triangulation.size(); i++) {
+				assertTrue(Predicates.inCircle(a, b, c, triangulation.getSite(i)) <= 0);
+			}
+		}
+	}
+
+	@Test
+	public void testNeighboursAreSymmetric() {
+		DelaunayTriangulation triangulation = randomTriangulation(100, 5);
+
+		for (int i = 0; i < triangulation.size(); i++) {
+			for (int neighbour : triangulation.getNeighbours(i)) {
+				boolean found = false;
+				for (int back : triangulation.getNeighbours(neighbour)) {
+					if (back == i) found = true;
+				}
+				assertTrue(found);
+			}
+		}
+	}
+
+	@Test
+	public void testCellOfOnlySiteIsBoundary() {
+		DelaunayTriangulation triangulation = new DelaunayTriangulation(BOUNDARY);
+		int site = triangulation.insert(new PointBD(100, 100));
+
+		assertEquals(0, site);
+		assertEquals(0, triangulation.getNeighbours(site).length);
+		assertEquals(4, triangulation.getCell(site, BOUNDARY).size());
+	}
+
+	@Test
+	public void testRemoveKeepsEmptyCircumcircles() {
+		DelaunayTriangulation triangulation = randomTriangulation(200, 7);
+		Random gen = new Random(7);
+		for (int r = 0; r < 150; r++) {
+			triangulation.remove(gen.nextInt(triangulation.size()));
+		}
+		assertEquals(50, triangulation.size());
+
+		int count = 0;
+		for (int[] t : triangulation.getTriangles()) {
+			PointBD a = triangulation.getSite(t[0]);
+			PointBD b = triangulation.getSite(t[1]);
+			PointBD c = triangulation.getSite(t[2]);
+			assertEquals(1, Predicates.orientation(a, b, c));
+			for (int i = 0; i < triangulation.size(); i++) {
+				assertTrue(Predicates.inCircle(a, b, c, triangulation.getSite(i)) <= 0);
+			}
+			count++;
+		}
+		assertTrue(count > 0);
+	}
+
+	@Test
+	public void testRemoveOnlySite() {
+		DelaunayTriangulation triangulation = new DelaunayTriangulation(BOUNDARY);
+		triangulation.insert(new PointBD(100, 100));
+		triangulation.remove(0);
+
+		assertEquals(0, triangulation.size());
+		assertEquals(0, triangulation.insert(new PointBD(200, 100)));
+		assertEquals(4, triangulation.getCell(0, BOUNDARY).size());
+	}
+
+	@Test
+	public void testBuildInOneGoKeepsNumbers() {
+		Random gen = new Random(9);
+		List<PointBD> sites = new ArrayList<>();
+		for (int i = 0; i < 300; i++) {
+			sites.add(new PointBD(gen.nextDouble() * 400, gen.nextDouble() * 300));
+		}
+		DelaunayTriangulation bulk = new DelaunayTriangulation(BOUNDARY, sites);
+		DelaunayTriangulation single = new DelaunayTriangulation(BOUNDARY);
+		for (PointBD site : sites) {
+			single.insert(site);
+		}
+
+		// Each site has the number it was given, and the same neighbours and
+		// cell as when inserted one at a time
+		assertEquals(sites.size(), bulk.size());
+		for (int i = 0; i < sites.size(); i++) {
+			assertSame(sites.get(i), bulk.getSite(i));
+			int[] expected = single.getNeighbours(i), actual = bulk.getNeighbours(i);
+			Arrays.sort(expected);
+			Arrays.sort(actual);
+			assertArrayEquals(expected, actual);
+			assertEquals(single.getCell(i, BOUNDARY).size(), bulk.getCell(i, BOUNDARY).size());
+		}
+
+		// It can still be changed afterwards
+		bulk.remove(0);
+		assertEquals(299, bulk.insert(new PointBD(200, 150)));
+		for (int[] t : bulk.getTriangles()) {
+			PointBD a = bulk.getSite(t[0]), b = bulk.getSite(t[1]), c = bulk.getSite(t[2]);
+			assertEquals(1, Predicates.orientation(a, b, c));
+			for (int i = 0; i < bulk.size(); i++) {
+				assertTrue(Predicates.inCircle(a, b, c, bulk.getSite(i)) <= 0);
+			}
+		}
+	}
+}
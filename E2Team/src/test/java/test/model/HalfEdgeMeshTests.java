@@ -0,0 +1,113 @@
+package test.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import model.Canvas;
+import model.HalfEdgeMesh;
+import model.math.DoubleKernel;
+import model.math.LineBD;
+import model.math.PointBD;
+
+import org.junit.Test;
+
+import controller.Holder;
+
+/**
+ * JUnit tests for HalfEdgeMesh
+ * @author mxw449
+ */
+public class HalfEdgeMeshTests {
+
+	/**
+	 * Two squares side by side, sharing the edge x = 100
+	 */
+	private static HalfEdgeMesh twoSquares() {
+		HalfEdgeMesh mesh = new HalfEdgeMesh();
+		mesh.setCell(0, Arrays.asList(new PointBD(0, 0), new PointBD(100, 0), new PointBD(100, 100), new PointBD(0, 100)));
+		// The other way round, which the mesh should turn round
+		mesh.setCell(1, Arrays.asList(new PointBD(100, 0), new PointBD(100, 100), new PointBD(200, 100), new PointBD(200, 0)));
+		return mesh;
+	}
+
+	@Test
+	public void testSharedEdgeStoredOnce() {
+		HalfEdgeMesh mesh = twoSquares();
+
+		assertEquals(6, mesh.getNumVertices());
+		assertEquals(7, mesh.getNumEdges());
+		assertArrayEquals(new int[] { 1 }, mesh.getNeighbours(0));
+		assertArrayEquals(new int[] { 0 }, mesh.getNeighbours(1));
+
+		// The shared edge is the same object in both cells
+		LineBD shared = null;
+		for (LineBD line : mesh.getLines(0)) {
+			if (line.getP1().getXVal() == 100 && line.getP2().getXVal() == 100) shared = line;
+		}
+		boolean found = false;
+		for (LineBD line : mesh.getLines(1)) {
+			if (line == shared) found = true;
+		}
+		assertTrue(found);
+	}
+
+	@Test
+	public void testReplaceCell() {
+		HalfEdgeMesh mesh = twoSquares();
+		mesh.removeCell(1);
+
+		assertEquals(4, mesh.getNumVertices());
+		assertEquals(0, mesh.getNeighbours(0).length);
+
+		mesh.setCell(1, Arrays.asList(new PointBD(100, 0), new PointBD(100, 100), new PointBD(150, 50)));
+		assertArrayEquals(new int[] { 1 }, mesh.getNeighbours(0));
+		assertEquals(3, mesh.getCorners(1).size());
+	}
+
+	@Test
+	public void testCanvasCellsShareEdges() {
+		Canvas canvas = new Canvas(400, 300, new Holder(), new DoubleKernel(), Canvas.Engine.DELAUNAY);
+		canvas.setIsManual(true);
+		Random gen = new Random(21);
+		for (int i = 0; i < 60; i++) {
+			canvas.addPoint(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+		}
+
+		// The triangulation gives each corner the same way for every cell
+		// round it, so the cells join up
+		HalfEdgeMesh mesh = new HalfEdgeMesh();
+		for (int i = 0; i < canvas.getPolygons().size(); i++) {
+			mesh.setCell(i, canvas.getPolygons().get(i).getCorners());
+		}
+		int halfEdges = 0;
+		for (int i = 0; i < canvas.getPolygons().size(); i++) {
+			List<LineBD> lines = mesh.getLines(i);
+			halfEdges += lines.size();
+			assertEquals(canvas.getPolygons().get(i).getEdges().size(), lines.size());
+
+			// Every neighbour in the mesh is a neighbour in the triangulation
+			List<Integer> delaunay = toList(canvas.getTriangulation().getNeighbours(i));
+			for (int neighbour : mesh.getNeighbours(i)) {
+				assertTrue(delaunay.contains(neighbour));
+				assertTrue(toList(mesh.getNeighbours(neighbour)).contains(i));
+			}
+		}
+
+		// Only the edges along the border have no twin
+		int border = 2 * mesh.getNumEdges() - halfEdges;
+		assertTrue(border > 0 && border < halfEdges / 4);
+	}
+
+	private static List<Integer> toList(int[] values) {
+		Integer[] boxed = new Integer[values.length];
+		for (int i = 0; i < values.length; i++) {
+			boxed[i] = values[i];
+		}
+		return Arrays.asList(boxed);
+	}
+}
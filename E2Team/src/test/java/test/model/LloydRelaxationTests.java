@@ -0,0 +1,116 @@
+package test.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import model.DelaunayTriangulation;
+import model.FortuneSweep;
+import model.LloydRelaxation;
+import model.math.PointBD;
+
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * JUnit tests for LloydRelaxation
+ * @author mxw449
+ */
+public class LloydRelaxationTests {
+
+	private static final List<PointBD> BOUNDARY = Arrays.asList(new PointBD(0, 0), new PointBD(400, 0), new PointBD(400, 300), new PointBD(0, 300));
+
+	private static final ForkJoinPool POOL = new ForkJoinPool(4);
+
+	@AfterClass
+	public static void shutDownPool() {
+		POOL.shutdown();
+	}
+
+	private static List<PointBD> randomSites(int amount, long seed) {
+		Random gen = new Random(seed);
+		List<PointBD> sites = new ArrayList<>();
+		for (int i = 0; i < amount; i++) {
+			sites.add(new PointBD(gen.nextDouble() * 400, gen.nextDouble() * 300));
+		}
+		return sites;
+	}
+
+	private static double area(List<PointBD> ring) {
+		double area = 0;
+		for (int k = 0; k < ring.size(); k++) {
+			PointBD p = ring.get(k), q = ring.get((k + 1) % ring.size());
+			area += p.getXVal() * q.getYVal() - q.getXVal() * p.getYVal();
+		}
+		return Math.abs(area) / 2;
+	}
+
+	/**
+	 * Check the relaxed cells are the same as a sweep over the relaxed sites
+	 */
+	private static void assertMatchesSweep(LloydRelaxation relaxation, int amount) {
+		List<List<PointBD>> expected = new FortuneSweep().buildCells(relaxation.getSites(), BOUNDARY);
+		double total = 0;
+		for (int i = 0; i < amount; i++) {
+			assertEquals(area(expected.get(i)), area(relaxation.getCell(i)), 1e-6);
+			total += area(relaxation.getCell(i));
+		}
+		assertEquals(400 * 300, total, 1e-6);
+	}
+
+	@Test
+	public void testCellsMatchSweep() {
+		List<PointBD> sites = randomSites(2000, 16);
+		DelaunayTriangulation triangulation = new DelaunayTriangulation(BOUNDARY);
+		for (PointBD p : sites) {
+			triangulation.insert(p);
+		}
+		int[][] neighbours = new int[sites.size()][];
+		for (int i = 0; i < sites.size(); i++) {
+			neighbours[i] = triangulation.getNeighbours(i);
+		}
+
+		LloydRelaxation relaxation = new LloydRelaxation(sites, neighbours, BOUNDARY, POOL);
+		relaxation.run(3);
+		assertMatchesSweep(relaxation, sites.size());
+	}
+
+	@Test
+	public void testWithoutNeighbours() {
+		// The grid check has to find every neighbour itself
+		List<PointBD> sites = randomSites(200, 17);
+		LloydRelaxation relaxation = new LloydRelaxation(sites, new int[sites.size()][0], BOUNDARY, POOL);
+		relaxation.run(2);
+		assertMatchesSweep(relaxation, sites.size());
+	}
+
+	@Test
+	public void testSpreadsSitesOut() {
+		List<PointBD> sites = randomSites(100, 18);
+		LloydRelaxation relaxation = new LloydRelaxation(sites, new int[sites.size()][0], BOUNDARY, POOL);
+		relaxation.run(0);
+		double before = areaSpread(relaxation, sites.size());
+
+		relaxation.run(20);
+		assertTrue(areaSpread(relaxation, sites.size()) < before / 2);
+	}
+
+	/**
+	 * The standard deviation of the cell areas
+	 */
+	private static double areaSpread(LloydRelaxation relaxation, int amount) {
+		double sum = 0, sumSqrd = 0;
+		for (int i = 0; i < amount; i++) {
+			double a = area(relaxation.getCell(i));
+			sum += a;
+			sumSqrd += a * a;
+		}
+		double mean = sum / amount;
+		return Math.sqrt(sumSqrd / amount - mean * mean);
+	}
+}
@@ -0,0 +1,110 @@
+package test.model;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import model.FortuneSweep;
+import model.HalfEdgeMesh;
+import model.ParallelDiagramBuilder;
+import model.math.DoubleKernel;
+import model.math.PointBD;
+import model.math.PointSet;
+
+import org.junit.Test;
+
+/**
+ * JUnit tests for ParallelDiagramBuilder
+ * @author mxw449
+ */
+public class ParallelDiagramBuilderTests {
+
+	private static final List<PointBD> BOUNDARY = Arrays.asList(new PointBD(0, 0), new PointBD(4000, 0), new PointBD(4000, 3000), new PointBD(0, 3000));
+
+	/**
+	 * Check the strips give the same cells as one sweep over every site
+	 */
+	private static void assertSameAsSweep(List<PointBD> sites) {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			List<List<PointBD>> expected = new FortuneSweep().buildCells(sites, BOUNDARY);
+			List<List<PointBD>> actual = new ParallelDiagramBuilder(pool).buildCells(sites, BOUNDARY);
+
+			assertEquals(expected.size(), actual.size());
+			for (int i = 0; i < expected.size(); i++) {
+				assertEquals(expected.get(i).size(), actual.get(i).size());
+				for (int j = 0; j < expected.get(i).size(); j++) {
+					assertEquals(expected.get(i).get(j).getXVal(), actual.get(i).get(j).getXVal(), 1e-6);
+					assertEquals(expected.get(i).get(j).getYVal(), actual.get(i).get(j).getYVal(), 1e-6);
+				}
+			}
+
+			// Cells from different strips have to share their corners exactly
+			// to be joined up in a mesh
+			HalfEdgeMesh expectedMesh = new HalfEdgeMesh(), actualMesh = new HalfEdgeMesh();
+			for (int i = 0; i < expected.size(); i++) {
+				expectedMesh.setCell(i, expected.get(i));
+				actualMesh.setCell(i, actual.get(i));
+			}
+			assertEquals(expectedMesh.getNumVertices(), actualMesh.getNumVertices());
+			assertEquals(expectedMesh.getNumEdges(), actualMesh.getNumEdges());
+			for (int i = 0; i < expected.size(); i++) {
+				int[] expectedNeighbours = expectedMesh.getNeighbours(i), actualNeighbours = actualMesh.getNeighbours(i);
+				Arrays.sort(expectedNeighbours);
+				Arrays.sort(actualNeighbours);
+				assertArrayEquals(expectedNeighbours, actualNeighbours);
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	private static List<PointBD> distinct(List<PointBD> points) {
+		PointSet seen = new PointSet(new DoubleKernel());
+		List<PointBD> result = new ArrayList<>();
+		for (PointBD p : points) {
+			if (seen.add(p)) result.add(p);
+		}
+		return result;
+	}
+
+	@Test
+	public void testRandomSites() {
+		Random gen = new Random(14);
+		List<PointBD> sites = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			sites.add(new PointBD(gen.nextDouble() * 4000, gen.nextDouble() * 3000));
+		}
+		assertSameAsSweep(distinct(sites));
+	}
+
+	@Test
+	public void testManySites() {
+		Random gen = new Random(1);
+		List<PointBD> sites = new ArrayList<>();
+		for (int i = 0; i < 20000; i++) {
+			sites.add(new PointBD(gen.nextDouble() * 4000, gen.nextDouble() * 3000));
+		}
+		assertSameAsSweep(distinct(sites));
+	}
+
+	@Test
+	public void testClusteredSites() {
+		// Most of the sites are in one corner, so the cells of the rest are
+		// much bigger than the first halo
+		Random gen = new Random(15);
+		List<PointBD> sites = new ArrayList<>();
+		for (int i = 0; i < 3000; i++) {
+			sites.add(new PointBD(gen.nextDouble() * 300, gen.nextDouble() * 300));
+		}
+		for (int i = 0; i < 100; i++) {
+			sites.add(new PointBD(gen.nextDouble() * 4000, gen.nextDouble() * 3000));
+		}
+		assertSameAsSweep(distinct(sites));
+	}
+}
@@ -0,0 +1,111 @@
+package test.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static test.TestHelpers.polyEqual;
+
+import java.awt.Polygon;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Observable;
+import java.util.Observer;
+import java.util.Random;
+
+import model.Canvas;
+import model.StepLog;
+import model.VoronoiPolygon;
+import model.math.DoubleKernel;
+import model.math.PointBD;
+
+import org.junit.Test;
+
+/**
+ * JUnit testing for StepLog
+ * @author mxw449
+ */
+public class StepLogTests {
+
+	/** A copy of what the canvas looked like at each step */
+	private static class Snapshot {
+		Canvas.VoronoiState state;
+		List<Polygon> cells = new ArrayList<>();
+		List<VoronoiPolygon> polygons = new ArrayList<>();
+	}
+
+	@Test
+	public void testFramesMatchCanvas() {
+		for (Canvas.Engine engine : new Canvas.Engine[] { Canvas.Engine.INCREMENTAL, Canvas.Engine.DELAUNAY }) {
+			final Canvas canvas = new Canvas(400, 300, new DoubleKernel(), engine);
+			StepLog stepLog = new StepLog();
+			canvas.setStepLog(stepLog);
+
+			final List<Snapshot> snapshots = new ArrayList<>();
+			canvas.addObserver(new Observer() {
+				@Override
+				public void update(Observable o, Object arg) {
+					Snapshot snapshot = new Snapshot();
+					snapshot.state = canvas.getState();
+					for (VoronoiPolygon poly : canvas.getPolygons()) {
+						Polygon p = poly.getJavaPolygon();
+						snapshot.cells.add(new Polygon(p.xpoints, p.ypoints, p.npoints));
+						snapshot.polygons.add(poly);
+					}
+					snapshots.add(snapshot);
+				}
+			});
+
+			Random gen = new Random(20);
+			List<PointBD> points = new ArrayList<>();
+			for (int i = 0; i < 40; i++) {
+				points.add(new PointBD(gen.nextInt(400), gen.nextInt(300)));
+				canvas.addPoint(points.get(i));
+			}
+			for (int i = 0; i < 5; i++) {
+				canvas.removePoint(points.get(i));
+			}
+
+			assertEquals(snapshots.size(), stepLog.size());
+			assertTrue(stepLog.size() > 128);
+
+			// Go backwards, so no frame is worked out from the one before
+			for (int s = stepLog.size() - 1; s >= 0; s -= 7) {
+				StepLog.Frame frame = stepLog.frameAt(s);
+				Snapshot snapshot = snapshots.get(s);
+				assertEquals(snapshot.state, frame.getState());
+				assertEquals(snapshot.cells.size(), frame.getCells().size());
+				for (int i = 0; i < snapshot.cells.size(); i++) {
+					assertTrue(polyEqual(snapshot.cells.get(i), frame.getCells().get(i)));
+					// The same polygon, so it is colored the same when shown
+					assertSame(snapshot.polygons.get(i), frame.getPolygons().get(i));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testTrimmingCell() {
+		Canvas canvas = new Canvas(400, 300, new DoubleKernel(), Canvas.Engine.INCREMENTAL);
+		StepLog stepLog = new StepLog();
+		canvas.setStepLog(stepLog);
+		canvas.addPoint(new PointBD(100, 100));
+		canvas.addPoint(new PointBD(300, 200));
+
+		boolean trimmed = false;
+		for (int s = 0; s < stepLog.size(); s++) {
+			StepLog.Frame frame = stepLog.frameAt(s);
+			if (frame.getState() == Canvas.VoronoiState.TRIMMING_BEFORE) {
+				assertNotNull(frame.getTrimmingCell());
+				assertNotNull(frame.getAddingEdges());
+				trimmed = true;
+			}
+		}
+		assertTrue(trimmed);
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testEmptyLog() {
+		new StepLog().frameAt(0);
+	}
+}
@@ -1,18 +1,23 @@
 package test.model;
 
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.assertEquals;
-import static test.TestHelpers.getFillerPolygon;
+import static test.TestHelpers.cellArea;
 import static test.TestHelpers.getSquarePolygon;
 import static test.TestHelpers.polyEqual;
 
 import java.awt.Polygon;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import model.Canvas;
 import model.VoronoiPolygon;
+import model.math.ConvexClipper;
 import model.math.LineBD;
 import model.math.PointBD;
+import model.math.Predicates;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -142,117 +147,6 @@ public class VoronoiPolygonTests {
 
 	}
 
-	@Test
-	public void testGetUnjoined() {
-		VoronoiPolygon poly = new VoronoiPolygon(new PointBD(100, 100), canvas_800x600);
-
-		PointBD p1 = new PointBD(200, 0);
-		PointBD p2 = new PointBD(100, 0);
-		PointBD p3 = new PointBD(0, 100);
-		PointBD p4 = new PointBD(0, 200);
-		PointBD p5 = new PointBD(200, 100);
-
-		poly.addEdge(new LineBD(p1, p2));
-		poly.addEdge(new LineBD(p2, p3));
-		poly.addEdge(new LineBD(p3, p4));
-		poly.addEdge(new LineBD(p4, p5));
-
-		List<PointBD> unjoined = poly.getUnjoined();
-		assertTrue(unjoined.size() == 2);
-		assertTrue(unjoined.contains(p1));
-		assertTrue(unjoined.contains(p5));
-
-	}
-
-	@Test
-	public void testGetOnBorder() {
-		VoronoiPolygon poly = new VoronoiPolygon(new PointBD(200, 200), canvas_800x600);
-		PointBD p1 = new PointBD(0, 20);
-		PointBD p2 = new PointBD(800, 20);
-		PointBD p3 = new PointBD(700, 400);
-		PointBD p4 = new PointBD(0, 400);
-
-		poly.addEdge(new LineBD(p1, p2));
-		poly.addEdge(new LineBD(p2, p3));
-		poly.addEdge(new LineBD(p3, p4));
-		poly.addEdge(new LineBD(p4, p1));
-
-		List<PointBD> border = poly.getOnBorder();
-		assertEquals(border.size(), 3);
-		assertTrue(border.contains(p1));
-		assertTrue(border.contains(p2));
-		assertTrue(border.contains(p4));
-		
-	}
-
-
-	@Test
-	public void testJoinWithBorder() {
-		VoronoiPolygon fillerPolygon = getFillerPolygon(canvas_800x600);
-
-		canvas_800x600.setTopRight(fillerPolygon);
-		canvas_800x600.setBottomLeft(fillerPolygon);
-		canvas_800x600.setBottomRight(fillerPolygon);
-
-		VoronoiPolygon polygon = new VoronoiPolygon(new PointBD(50, 50), canvas_800x600);
-		polygon.addEdge(new LineBD(new PointBD(0, 100), new PointBD(100, 0)));
-
-		canvas_800x600.setTopLeft(polygon);
-		polygon.joinWithBorder();
-
-		LineBD l1 = new LineBD(new PointBD(0, 0), new PointBD(0, 100));
-		LineBD l2 = new LineBD(new PointBD(0, 0), new PointBD(100, 0));
-
-		assertTrue(polygon.getEdges().contains(l1));
-		assertTrue(polygon.getEdges().contains(l2));
-	}
-
-	@Test
-	public void testGetIntersections() {
-		VoronoiPolygon poly = getSquarePolygon(canvas_800x600);
-		
-		PointBD hP1 = new PointBD(100, 150);
-		PointBD hP2 = new PointBD(200, 150);
-		LineBD horizLine = new LineBD(hP1, hP2);
-		LineBD horizBisection = poly.getIntersections(horizLine);
-		assertEquals(horizBisection, horizLine);
-		
-		PointBD vP1 = new PointBD(150, 100);
-		PointBD vP2 = new PointBD(150, 200);
-		LineBD vertLine = new LineBD(vP1, vP2);
-		LineBD vertBisection = poly.getIntersections(vertLine);
-		assertEquals(vertBisection, vertLine);
-		
-		PointBD dP1 = new PointBD(100, 100);
-		PointBD dP2 = new PointBD(200, 200);
-		LineBD diagLine = new LineBD(dP1, dP2);
-		LineBD diagBisection = poly.getIntersections(diagLine);
-		assertEquals(diagBisection, diagLine);		
-	}
-	
-	@Test
-	public void testGetIntersectionsEdge() {
-		LineBD l1 = new LineBD(new PointBD(100, 100), new PointBD(200, 100));
-		LineBD l2 = new LineBD(new PointBD(200, 100), new PointBD(200, 200));
-		LineBD l3 = new LineBD(new PointBD(200, 200), new PointBD(100, 200));
-		LineBD l4 = new LineBD(new PointBD(100, 200), new PointBD(100, 100));
-		
-		VoronoiPolygon poly = new VoronoiPolygon(new PointBD(150, 150), canvas_200x200);
-		poly.addEdge(l1);
-		poly.addEdge(l2);
-		poly.addEdge(l3);
-		poly.addEdge(l4);
-		
-		assertEquals(poly.getIntersections(l1), l1);
-		assertEquals(poly.getIntersections(l2), l2);
-		assertEquals(poly.getIntersections(l3), l3);
-		assertEquals(poly.getIntersections(l4), l4);
-		
-		
-		//assertEquals(poly.getIntersections(bisection))
-		
-	}
-
 	@Test
 	public void testToJavaPolygonSquare() {
 		PointBD p1 = new PointBD(100, 100);
@@ -304,4 +198,111 @@ public class VoronoiPolygonTests {
 		assertTrue(polyEqual(poly, converted));
 	}
 
+	@Test
+	public void testTrimKeepsRingInOrder() {
+		VoronoiPolygon polygon = new VoronoiPolygon(new PointBD(120, 180), canvas_800x600);
+		// Clockwise, which is turned round
+		polygon.setRing(Arrays.asList(new PointBD(100, 100), new PointBD(100, 200), new PointBD(200, 200), new PointBD(200, 100)));
+		polygon.trim(new LineBD(150, 100, 200, 150));
+
+		List<PointBD> corners = polygon.getCorners();
+		assertEquals(5, corners.size());
+		assertEquals(5, polygon.getEdges().size());
+		assertTrue(ConvexClipper.orientation(corners) > 0);
+		assertTrue(corners.containsAll(Arrays.asList(new PointBD(100, 100), new PointBD(150, 100), new PointBD(200, 150), new PointBD(200, 200), new PointBD(100, 200))));
+
+		// Each edge goes from one corner to the next
+		for (int i = 0; i < corners.size(); i++) {
+			assertEquals(new LineBD(corners.get(i), corners.get((i + 1) % corners.size())), polygon.getEdges().get(i));
+		}
+		assertTrue(polygon.isCompleteWithoutEdges());
+
+		// A bisection which misses the polygon leaves it as it is
+		polygon.trim(new LineBD(300, 100, 300, 200));
+		assertEquals(corners, polygon.getCorners());
+	}
+
+	@Test
+	public void testTrimLeavingNothingKeepsRing() {
+		// The centre is outside the ring, so the bisection has every corner
+		// on the far side of it
+		VoronoiPolygon polygon = new VoronoiPolygon(new PointBD(50, 150), canvas_800x600);
+		polygon.setRing(Arrays.asList(new PointBD(100, 100), new PointBD(200, 100), new PointBD(200, 200), new PointBD(100, 200)));
+		List<PointBD> corners = polygon.getCorners();
+		polygon.trim(new LineBD(90, 0, 90, 600));
+
+		assertEquals(corners, polygon.getCorners());
+		assertEquals(4, polygon.getEdges().size());
+	}
+
+	@Test
+	public void testTrimThroughCornerKeepsCorner() {
+		VoronoiPolygon polygon = new VoronoiPolygon(new PointBD(120, 180), canvas_800x600);
+		polygon.setRing(Arrays.asList(new PointBD(100, 100), new PointBD(200, 100), new PointBD(200, 200), new PointBD(100, 200)));
+		// Ends a rounding error away from the corner at (200, 100)
+		polygon.trim(new LineBD(100, 150, 200.0000000001, 99.9999999999));
+
+		List<PointBD> corners = polygon.getCorners();
+		assertEquals(4, corners.size());
+		assertTrue(corners.contains(new PointBD(100, 150)));
+		for (PointBD corner : corners) {
+			assertFalse(corner.getXVal() == 100 && corner.getYVal() == 100);
+		}
+		assertEquals(4, polygon.getEdges().size());
+		for (int i = 0; i < corners.size(); i++) {
+			assertEquals(new LineBD(corners.get(i), corners.get((i + 1) % corners.size())), polygon.getEdges().get(i));
+		}
+	}
+
+	@Test
+	public void testRingsCoverDenseCanvas() {
+		Canvas canvas = new Canvas(400, 300, new Holder());
+		canvas.setIsManual(true);
+		Random gen = new Random(25);
+		for (int i = 0; i < 1000; i++) {
+			canvas.addPoint(new PointBD(gen.nextDouble() * 400, gen.nextDouble() * 300));
+		}
+
+		// Every ring goes anticlockwise and never turns the other way
+		double total = 0;
+		for (VoronoiPolygon polygon : canvas.getPolygons()) {
+			List<PointBD> corners = polygon.getCorners();
+			assertTrue(ConvexClipper.orientation(corners) > 0);
+			for (int i = 0; i < corners.size(); i++) {
+				PointBD a = corners.get(i), b = corners.get((i + 1) % corners.size()), c = corners.get((i + 2) % corners.size());
+				assertTrue(Predicates.orientation(a, b, c) >= 0);
+			}
+			total += cellArea(polygon);
+		}
+		assertEquals(400 * 300, total, 1e-6);
+
+		// Points away from the sides are in exactly one cell
+		for (double x = 0.37; x < 400; x += 3.1) {
+			for (double y = 0.61; y < 300; y += 2.9) {
+				PointBD p = new PointBD(x, y);
+				int inside = 0;
+				boolean onSide = false;
+				for (VoronoiPolygon polygon : canvas.getPolygons()) {
+					int side = sideOfRing(polygon.getCorners(), p);
+					if (side > 0) inside++;
+					if (side == 0) onSide = true;
+				}
+				if (!onSide) assertEquals(1, inside);
+			}
+		}
+	}
+
+	/**
+	 * 1 if p is inside an anticlockwise ring, 0 if it is on one of the
+	 * sides, and -1 if it is outside
+	 */
+	private static int sideOfRing(List<PointBD> ring, PointBD p) {
+		int side = 1;
+		for (int i = 0; i < ring.size(); i++) {
+			int o = Predicates.orientation(ring.get(i), ring.get((i + 1) % ring.size()), p);
+			if (o < 0) return -1;
+			if (o == 0) side = 0;
+		}
+		return side;
+	}
 }